@@ -0,0 +1,264 @@
+package com.swp391.bloodcare.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.swp391.bloodcare.dto.ApiResponse;
+import com.swp391.bloodcare.util.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+Rate limit cho /api/auth/login, /api/auth/register...:
+- token bucket theo IP và theo IP + username (đọc từ body JSON): nhập sai mật khẩu của người khác
+  chỉ khóa chính IP đó, không khóa được chủ tài khoản đăng nhập từ nơi khác
+- thêm một bucket theo riêng username (mọi IP) chỉ trừ khi request trả 401: chặn dò mật khẩu một tài khoản
+  từ nhiều IP; capacity lớn hơn bucket IP + username và đăng nhập đúng không tốn token,
+  nên chủ tài khoản chỉ bị chặn khi tài khoản thật sự đang bị dò
+- request bị chặn trả 429 ngay tại filter, không chạm DB hay BCrypt
+ */
+@Component
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+
+    // body login/register rất nhỏ, endpoint có giới hạn theo username từ chối body lớn hơn (413)
+    private static final int MAX_BODY_BYTES = 8 * 1024;
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private TokenBucketRateLimiter limiter;
+    private Counter rejectedByIp;
+    private Counter rejectedByUsername;
+    private Counter rejectedByAccount;
+
+    @PostConstruct
+    void init() {
+        //cấu hình sai thì dừng lúc khởi động, không đợi tới request đầu tiên
+        properties.getEndpoints().forEach((name, rule) -> {
+            if (rule.getIpCapacity() <= 0 || !(rule.getIpRefillPerMinute() > 0)) {
+                throw new IllegalStateException("rate-limit.endpoints." + name + ": ip-capacity và ip-refill-per-minute phải > 0");
+            }
+            if (rule.getUsernameCapacity() > 0 && !(rule.getUsernameRefillPerMinute() > 0)) {
+                throw new IllegalStateException("rate-limit.endpoints." + name + ": username-refill-per-minute phải > 0");
+            }
+            if (rule.getAccountFailureCapacity() > 0 && !(rule.getAccountFailureRefillPerMinute() > 0)) {
+                throw new IllegalStateException("rate-limit.endpoints." + name + ": account-failure-refill-per-minute phải > 0");
+            }
+        });
+        limiter = new TokenBucketRateLimiter(properties.getMaxKeys());
+        rejectedByIp = Counter.builder("auth.rate_limit.rejected").tag("key", "ip").register(meterRegistry);
+        rejectedByUsername = Counter.builder("auth.rate_limit.rejected").tag("key", "username").register(meterRegistry);
+        rejectedByAccount = Counter.builder("auth.rate_limit.rejected").tag("key", "account").register(meterRegistry);
+        Gauge.builder("auth.rate_limit.buckets", limiter, TokenBucketRateLimiter::size).register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || !"POST".equalsIgnoreCase(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String endpoint = null;
+        RateLimitProperties.Rule rule = null;
+        for (Map.Entry<String, RateLimitProperties.Rule> entry : properties.getEndpoints().entrySet()) {
+            if (request.getRequestURI().equals(entry.getValue().getPath())) {
+                endpoint = entry.getKey();
+                rule = entry.getValue();
+                break;
+            }
+        }
+        if (rule == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        //giới hạn theo IP
+        String ip = request.getRemoteAddr();
+        long waitMillis = limiter.tryAcquire(endpoint + ":ip:" + ip, rule.getIpCapacity(), rule.getIpRefillPerMinute());
+        if (waitMillis > 0) {
+            rejectedByIp.increment();
+            reject(response, waitMillis);
+            return;
+        }
+
+        if (rule.getUsernameCapacity() <= 0 && rule.getAccountFailureCapacity() <= 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        //đọc body tới MAX_BODY_BYTES dù Content-Length là bao nhiêu (chunked không có Content-Length)
+        byte[] body = request.getContentLengthLong() > MAX_BODY_BYTES
+                ? null : request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+        if (body == null || body.length > MAX_BODY_BYTES) {
+            reject(response, HttpStatus.PAYLOAD_TOO_LARGE, "Dữ liệu gửi lên quá lớn");
+            return;
+        }
+        HttpServletRequest forwarded = new CachedBodyRequest(request, body);
+        String username = extractUsername(body);
+        if (username == null) {
+            filterChain.doFilter(forwarded, response);
+            return;
+        }
+
+        //giới hạn theo IP + username
+        if (rule.getUsernameCapacity() > 0) {
+            waitMillis = limiter.tryAcquire(endpoint + ":user:" + ip + ":" + username,
+                    rule.getUsernameCapacity(), rule.getUsernameRefillPerMinute());
+            if (waitMillis > 0) {
+                rejectedByUsername.increment();
+                reject(response, waitMillis);
+                return;
+            }
+        }
+
+        //giới hạn theo username trên mọi IP, chỉ tính lần trả 401
+        String accountKey = endpoint + ":account:" + username;
+        if (rule.getAccountFailureCapacity() > 0) {
+            waitMillis = limiter.peek(accountKey);
+            if (waitMillis > 0) {
+                rejectedByAccount.increment();
+                reject(response, waitMillis);
+                return;
+            }
+        }
+
+        filterChain.doFilter(forwarded, response);
+
+        if (rule.getAccountFailureCapacity() > 0 && response.getStatus() == HttpStatus.UNAUTHORIZED.value()) {
+            limiter.tryAcquire(accountKey, rule.getAccountFailureCapacity(), rule.getAccountFailureRefillPerMinute());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.sweep-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        limiter.evictIdle(properties.getIdleEvictionMs());
+    }
+
+    private String extractUsername(byte[] body) {
+        try {
+            JsonNode node = objectMapper.readTree(body);
+            JsonNode username = node == null ? null : node.get("username");
+            if (username == null || !username.isTextual() || username.asText().isBlank()) {
+                return null;
+            }
+            return username.asText().trim().toLowerCase(Locale.ROOT);
+        } catch (IOException e) {
+            // body sai định dạng -> để controller trả lỗi
+            return null;
+        }
+    }
+
+    private void reject(HttpServletResponse response, long waitMillis) throws IOException {
+        long retryAfter = Math.max(1, (waitMillis + 999) / 1000);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        reject(response, HttpStatus.TOO_MANY_REQUESTS, "Quá nhiều yêu cầu, vui lòng thử lại sau " + retryAfter + " giây");
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), new ApiResponse<>(false, message, null));
+    }
+
+    // request đã đọc body -> trả lại body cho controller
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                //body đã nằm hết trong bộ nhớ: báo có dữ liệu rồi báo đọc xong ngay
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package com.swp391.bloodcare.config;
 
+import com.swp391.bloodcare.service.SecurityEpochService;
+import com.swp391.bloodcare.service.TokenRevocationService;
 import com.swp391.bloodcare.util.JwtUtil;
+import com.swp391.bloodcare.util.VerifiedToken;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
@@ -14,6 +21,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Collections;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -24,6 +32,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private SecurityEpochService securityEpochService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -41,14 +55,51 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         token = authHeader.substring(7); // bỏ "Bearer "
-        username = jwtUtil.extractUsername(token);
+
+        // parse + kiểm tra chữ ký + hạn đúng một lần
+        final VerifiedToken verified;
+        try {
+            verified = jwtUtil.verifyToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            // token sai hoặc hết hạn -> coi như chưa đăng nhập
+            filterChain.doFilter(request, response);
+            return;
+        }
+        // token đã logout
+        if (tokenRevocationService.isRevoked(verified.tokenId())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        username = verified.subject();
 
         // Nếu user chưa được xác thực
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            if (jwtUtil.validateToken(token, userDetails.getUsername())) {
+            Claims claims = verified.claims();
+            String role = claims.get(JwtUtil.CLAIM_ROLE, String.class);
+            UserDetails userDetails;
+            String accountId = null;
+
+            if (role != null) {
+                // token mới: role + accountId nằm trong claims, không cần query DB
+                accountId = claims.get(JwtUtil.CLAIM_ACCOUNT_ID, String.class);
+                if (!securityEpochService.isCurrent(accountId, claims.getIssuedAt())) {
+                    // account đã bị khóa / đổi role sau khi token được phát hành
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+                userDetails = new User(username, "",
+                        Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase())));
+            } else {
+                // token cũ chưa có claim role -> load từ DB như trước
+                userDetails = userDetailsService.loadUserByUsername(username);
+            }
+
+            // account đã khóa (cache giữ disabled) -> không xác thực
+            if (username.equals(userDetails.getUsername()) && userDetails.isEnabled()) {
                 UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                // accountId từ claim để controller không phải tra account theo username (token cũ -> null)
+                authToken.setDetails(accountId);
 
                 SecurityContextHolder.getContext().setAuthentication(authToken);
             }
@@ -0,0 +1,43 @@
+package com.swp391.bloodcare.config;
+
+import com.swp391.bloodcare.infra.LoadTestSmtpServer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.IOException;
+import java.util.Properties;
+
+//chạy với --spring.profiles.active=loadtest: SMTP server trong process thay cho Gmail
+@Configuration
+@Profile("loadtest")
+public class LoadTestConfig {
+
+    @Bean(destroyMethod = "close")
+    public LoadTestSmtpServer loadTestSmtpServer(
+            @Value("${loadtest.smtp.port:0}") int port,
+            @Value("${loadtest.smtp.session-latency-ms:20}") long sessionLatencyMs,
+            @Value("${loadtest.smtp.per-message-micros:200}") long perMessageMicros,
+            @Value("${loadtest.seed:42}") long seed) throws IOException {
+        LoadTestSmtpServer server = new LoadTestSmtpServer(port, sessionLatencyMs, perMessageMicros, seed);
+        server.start();
+        return server;
+    }
+
+    // có bean JavaMailSender thì Spring Boot không tạo JavaMailSenderImpl từ spring.mail.* (Gmail, STARTTLS, AUTH)
+    @Bean
+    public JavaMailSenderImpl mailSender(LoadTestSmtpServer server) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("127.0.0.1");
+        sender.setPort(server.getPort());
+        Properties properties = sender.getJavaMailProperties();
+        properties.put("mail.smtp.auth", "false");
+        properties.put("mail.smtp.starttls.enable", "false");
+        properties.put("mail.smtp.connectiontimeout", "5000");
+        properties.put("mail.smtp.timeout", "10000");
+        properties.put("mail.smtp.writetimeout", "10000");
+        return sender;
+    }
+}
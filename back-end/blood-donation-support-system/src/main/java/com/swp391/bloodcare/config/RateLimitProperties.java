@@ -0,0 +1,38 @@
+package com.swp391.bloodcare.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// cấu hình rate limit cho các endpoint /api/auth, xem rate-limit.* trong application.properties
+@Data
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // số bucket tối đa giữ trong bộ nhớ
+    private int maxKeys = 100_000;
+
+    // bucket không dùng quá thời gian này sẽ bị dọn (ms)
+    private long idleEvictionMs = 600_000;
+
+    private Map<String, Rule> endpoints = new LinkedHashMap<>();
+
+    @Data
+    public static class Rule {
+        private String path;
+        private int ipCapacity = 20;
+        private double ipRefillPerMinute = 20;
+        // 0 = không giới hạn theo username
+        private int usernameCapacity = 0;
+        private double usernameRefillPerMinute = 0;
+        // số lần trả 401 cho một username trên mọi IP, 0 = không giới hạn
+        private int accountFailureCapacity = 0;
+        private double accountFailureRefillPerMinute = 0;
+    }
+}
@@ -5,10 +5,14 @@ import com.swp391.bloodcare.dto.account.AccountRegistrationDTO;
 import com.swp391.bloodcare.dto.ApiResponse;
 import com.swp391.bloodcare.dto.log.LoginRequest;
 import com.swp391.bloodcare.dto.log.LoginResponse;
+import com.swp391.bloodcare.dto.log.RefreshTokenRequest;
 import com.swp391.bloodcare.service.AccountService;
 import com.swp391.bloodcare.service.AuthService;
+import com.swp391.bloodcare.service.PasswordHashingOverloadedException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -29,7 +33,24 @@ public class AuthController {
 
     @PostMapping("/login")
     public ResponseEntity<LoginResponse> login(@RequestBody LoginRequest loginRequest) {
-        LoginResponse response = authService.login(loginRequest);
+        LoginResponse response;
+        try {
+            response = authService.login(loginRequest);
+        } catch (PasswordHashingOverloadedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(new LoginResponse(null, e.getMessage(), null, null));
+        }
+
+        if(response.getToken() != null){
+            return ResponseEntity.ok(response);
+        } else {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+    }
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginResponse> refresh(@RequestBody RefreshTokenRequest request) {
+        LoginResponse response = authService.refresh(request.getRefreshToken());
 
         if(response.getToken() != null){
             return ResponseEntity.ok(response);
@@ -37,12 +58,14 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
         }
     }
+
     @PostMapping("/logout")
-    public ResponseEntity<String> logout(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<String> logout(@RequestHeader("Authorization") String authHeader,
+                                         @RequestBody(required = false) RefreshTokenRequest request) {
         try {
 
             String token = authHeader.substring(7);
-            String message = authService.logout(token);
+            String message = authService.logout(token, request == null ? null : request.getRefreshToken());
             return ResponseEntity.ok(message);
 
         }catch (Exception e){
@@ -79,7 +102,18 @@ public class AuthController {
             return ResponseEntity.badRequest().body(response);
         }
 
-        ApiResponse<String> response = accountService.registerAccount(accountRegistrationDTO);
+        ApiResponse<String> response;
+        try {
+            response = accountService.registerAccount(accountRegistrationDTO);
+        } catch (PasswordHashingOverloadedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(new ApiResponse<>(false, e.getMessage(), null));
+        } catch (DataIntegrityViolationException e) {
+            //trùng unique constraint khi hai request đăng ký cùng lúc
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Tài khoản hoặc email đã tồn tại", null));
+        }
 
         if(response.isSuccess()){
             return ResponseEntity.ok(response);
@@ -0,0 +1,63 @@
+package com.swp391.bloodcare.controller;
+
+import com.swp391.bloodcare.dto.ApiResponse;
+import com.swp391.bloodcare.entity.Blood;
+import com.swp391.bloodcare.service.BloodCompatibilityService;
+import com.swp391.bloodcare.service.BloodInventoryLedger;
+import com.swp391.bloodcare.util.BloodCompatibility;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/blood")
+@CrossOrigin(origins = "*")
+public class BloodCompatibilityController {
+
+    @Autowired
+    private BloodCompatibilityService bloodCompatibilityService;
+
+    @Autowired
+    private BloodInventoryLedger bloodInventoryLedger;
+
+    //vd: /api/blood/compatibility?recipient=A-&component=PLATELETS&quantity=2
+    @GetMapping("/compatibility")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> compatibility(
+            @RequestParam String recipient,
+            @RequestParam(required = false) String component,
+            @RequestParam(defaultValue = "1") int quantity) {
+        int group;
+        BloodCompatibility.ComponentKind kind;
+        try {
+            group = BloodCompatibility.parseGroup(recipient);
+            kind = bloodCompatibilityService.parseKind(component);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+
+        List<Map<String, Object>> inventory = bloodCompatibilityService.findCompatibleInventory(group, kind, quantity)
+                .stream()
+                .map(this::toInventoryItem)
+                .toList();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("recipient", BloodCompatibility.groupName(group));
+        result.put("component", kind);
+        result.put("donorGroups", BloodCompatibility.groupNames(BloodCompatibility.donorMask(kind, group)));
+        result.put("inventory", inventory);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Nhóm máu tương thích", result));
+    }
+
+    private Map<String, Object> toInventoryItem(Blood blood) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("bloodCode", blood.getBloodCode());
+        item.put("group", BloodCompatibility.groupName(bloodCompatibilityService.groupOf(blood)));
+        item.put("quantity", bloodInventoryLedger.quantity(blood.getBloodCode()));
+        item.put("volumn", bloodInventoryLedger.volume(blood.getBloodCode()));
+        return item;
+    }
+}
@@ -0,0 +1,58 @@
+package com.swp391.bloodcare.controller;
+
+import com.swp391.bloodcare.dto.ApiResponse;
+import com.swp391.bloodcare.service.BloodInventoryLedger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//tồn kho theo mã máu, đọc / ghi qua BloodInventoryLedger (không sửa thẳng bảng blood)
+@RestController
+@RequestMapping("/api/admin/inventory")
+@CrossOrigin(origins = "*")
+public class BloodInventoryController {
+
+    @Autowired
+    private BloodInventoryLedger bloodInventoryLedger;
+
+    @GetMapping("/{bloodCode}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> get(@PathVariable int bloodCode) {
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(true, "Tồn kho", toStock(bloodCode)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
+    //nhập kho: số dương, xuất kho: số âm; vd POST /api/admin/inventory/3/adjust?quantity=-2&volume=-700
+    @PostMapping("/{bloodCode}/adjust")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> adjust(
+            @PathVariable int bloodCode,
+            @RequestParam(defaultValue = "0") long quantity,
+            @RequestParam(defaultValue = "0") long volume) {
+        try {
+            if (!bloodInventoryLedger.apply(bloodCode, quantity, volume)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(new ApiResponse<>(false, "Không đủ tồn kho", toStock(bloodCode)));
+            }
+            return ResponseEntity.ok(new ApiResponse<>(true, "Đã cập nhật tồn kho", toStock(bloodCode)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
+    private Map<String, Object> toStock(int bloodCode) {
+        Map<String, Object> stock = new LinkedHashMap<>();
+        stock.put("bloodCode", bloodCode);
+        stock.put("quantity", bloodInventoryLedger.quantity(bloodCode));
+        stock.put("volumn", bloodInventoryLedger.volume(bloodCode));
+        return stock;
+    }
+}
@@ -1,31 +1,103 @@
 package com.swp391.bloodcare.controller;
 
+import com.swp391.bloodcare.dto.ApiResponse;
 import com.swp391.bloodcare.dto.log.BloodNotificationRequest;
-import com.swp391.bloodcare.entity.Account;
-import com.swp391.bloodcare.repository.AccountRepository;
-import com.swp391.bloodcare.service.AuthService;
-import com.swp391.bloodcare.service.BloodNotificationService;
+import com.swp391.bloodcare.dto.log.NotificationJobStatus;
+import com.swp391.bloodcare.service.BloodCompatibilityService;
+import com.swp391.bloodcare.service.DonorEligibilityService;
+import com.swp391.bloodcare.service.NotificationJobService;
+import com.swp391.bloodcare.util.BloodCompatibility;
+import com.swp391.bloodcare.util.DonorEligibilityIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/noti")
 public class BloodNotificationController {
 
     @Autowired
-    private BloodNotificationService bloodNotificationService;
+    private NotificationJobService notificationJobService;
+
+    @Autowired
+    private DonorEligibilityService donorEligibilityService;
 
     @Autowired
-    private AuthService authService;
+    private BloodCompatibilityService bloodCompatibilityService;
 
+    //gửi chạy nền, trả 202 + jobId để theo dõi qua /noti/jobs/{id}
     @PostMapping("/send")
-    public ResponseEntity<String> sendBloodRequest(
+    public ResponseEntity<ApiResponse<NotificationJobStatus>> sendBloodRequest(
             @RequestBody BloodNotificationRequest request) {
-        List<Account> accounts = authService.getAllAccounts();
-        bloodNotificationService.sendEmailToAccounts(accounts, request.getSubject(), request.getContent());
-        return ResponseEntity.ok("Emails sent successfully");
+        NotificationJobStatus job;
+        try {
+            job = notificationJobService.submit(request);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/noti/jobs/" + job.getJobId()))
+                .body(new ApiResponse<>(true, "Đã nhận yêu cầu gửi thông báo", job));
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ApiResponse<NotificationJobStatus>> getJob(@PathVariable String id) {
+        return notificationJobService.getStatus(id)
+                .map(job -> ResponseEntity.ok(new ApiResponse<>(true, "Trạng thái gửi thông báo", job)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse<>(false, "Không tìm thấy job: " + id, null)));
     }
-}
 
+    /*
+    Người hiến đủ điều kiện ngay hôm nay, tra trong index bộ nhớ:
+    vd: /noti/eligible?district=Quận 1&group=O-  hoặc  /noti/eligible?recipient=A-&component=PLATELETS
+    không truyền group / recipient -> mọi nhóm; chỉ STAFF / ADMIN (SecurityConfig)
+     */
+    @GetMapping("/eligible")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> findEligibleDonors(
+            @RequestParam(required = false) String district,
+            @RequestParam(required = false) List<String> group,
+            @RequestParam(required = false) String recipient,
+            @RequestParam(required = false) String component,
+            @RequestParam(defaultValue = "50") int limit) {
+        int mask;
+        try {
+            mask = donorGroupMask(group, recipient, component);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+
+        LocalDate today = LocalDate.now();
+        Map<String, Object> result = new LinkedHashMap<>();
+        try {
+            result.put("count", donorEligibilityService.count(district, mask, today));
+            result.put("accountIds", donorEligibilityService.find(district, mask, today, Math.min(Math.max(0, limit), 1000)));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Người hiến đủ điều kiện", result));
+    }
+
+    //recipient (+ component) -> các nhóm cho được; group -> đúng các nhóm đó; cả hai -> giao nhau
+    private int donorGroupMask(List<String> groups, String recipient, String component) {
+        int mask = DonorEligibilityIndex.ALL_GROUPS;
+        if (groups != null && !groups.isEmpty()) {
+            mask = 0;
+            for (String value : groups) {
+                mask |= 1 << BloodCompatibility.parseGroup(value);
+            }
+        }
+        if (recipient != null && !recipient.isBlank()) {
+            mask &= BloodCompatibility.donorMask(bloodCompatibilityService.parseKind(component),
+                    BloodCompatibility.parseGroup(recipient));
+        }
+        return mask;
+    }
+}
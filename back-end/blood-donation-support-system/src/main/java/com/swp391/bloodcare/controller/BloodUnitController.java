@@ -0,0 +1,83 @@
+package com.swp391.bloodcare.controller;
+
+import com.swp391.bloodcare.dto.ApiResponse;
+import com.swp391.bloodcare.dto.log.BloodUnitDTO;
+import com.swp391.bloodcare.dto.log.BloodUnitIntakeRequest;
+import com.swp391.bloodcare.service.BloodCompatibilityService;
+import com.swp391.bloodcare.service.BloodUnitService;
+import com.swp391.bloodcare.util.BloodCompatibility;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Optional;
+
+//nhập / xuất kho theo từng túi máu (barcode), xuất túi hết hạn sớm nhất trước
+@RestController
+@RequestMapping("/api/admin/units")
+@CrossOrigin(origins = "*")
+public class BloodUnitController {
+
+    @Autowired
+    private BloodUnitService bloodUnitService;
+
+    @Autowired
+    private BloodCompatibilityService bloodCompatibilityService;
+
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BloodUnitDTO>> receive(@RequestBody BloodUnitIntakeRequest request) {
+        try {
+            BloodUnitDTO unit = bloodUnitService.receive(request);
+            return ResponseEntity.status(HttpStatus.CREATED).body(new ApiResponse<>(true, "Đã nhập túi máu", unit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
+    @GetMapping("/{barcode}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BloodUnitDTO>> get(@PathVariable String barcode) {
+        return bloodUnitService.findByBarcode(barcode)
+                .map(unit -> ResponseEntity.ok(new ApiResponse<>(true, "Túi máu", unit)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse<>(false, "Không tìm thấy túi máu", null)));
+    }
+
+    //vd: POST /api/admin/units/issue?recipient=A-&component=PLATELETS
+    @PostMapping("/issue")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BloodUnitDTO>> issue(
+            @RequestParam String recipient,
+            @RequestParam(required = false) String component) {
+        int group;
+        BloodCompatibility.ComponentKind kind;
+        try {
+            group = BloodCompatibility.parseGroup(recipient);
+            kind = bloodCompatibilityService.parseKind(component);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+        return bloodUnitService.issue(group, kind)
+                .map(unit -> ResponseEntity.ok(new ApiResponse<>(true, "Đã xuất túi máu", unit)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse<>(false, "Không còn túi máu tương thích", null)));
+    }
+
+    @PostMapping("/{barcode}/issue")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BloodUnitDTO>> issueByBarcode(@PathVariable String barcode) {
+        Optional<BloodUnitDTO> unit;
+        try {
+            unit = bloodUnitService.issueByBarcode(barcode);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+        return unit
+                .map(issued -> ResponseEntity.ok(new ApiResponse<>(true, "Đã xuất túi máu", issued)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse<>(false, "Không tìm thấy túi máu", null)));
+    }
+}
@@ -0,0 +1,72 @@
+package com.swp391.bloodcare.controller;
+
+import com.swp391.bloodcare.dto.ApiResponse;
+import com.swp391.bloodcare.dto.log.InventoryBenchmarkReport;
+import com.swp391.bloodcare.dto.log.LoadTestReport;
+import com.swp391.bloodcare.service.InventoryBenchmarkService;
+import com.swp391.bloodcare.service.LoadTestService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+//chỉ có khi chạy profile loadtest; request chờ tới khi lượt đo xong
+@RestController
+@RequestMapping("/api/admin/loadtest")
+@Profile("loadtest")
+public class LoadTestController {
+
+    @Autowired
+    private LoadTestService loadTestService;
+
+    @Autowired
+    private InventoryBenchmarkService inventoryBenchmarkService;
+
+    @PostMapping("/run")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<LoadTestReport>> run(
+            @RequestParam(defaultValue = "1000") int recipients,
+            @RequestParam(defaultValue = "0") double transientFailureRate,
+            @RequestParam(defaultValue = "0") int bouncePerThousand,
+            @RequestParam(defaultValue = "0") long outageMs) {
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(true, "Kết quả load test",
+                    loadTestService.run(recipients, transientFailureRate, bouncePerThousand, outageMs)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
+    //chạy lần lượt các cỡ trong loadtest.sizes (mặc định 1k / 10k / 100k)
+    @PostMapping("/suite")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<LoadTestReport>>> suite(
+            @RequestParam(defaultValue = "0") double transientFailureRate,
+            @RequestParam(defaultValue = "0") int bouncePerThousand,
+            @RequestParam(defaultValue = "0") long outageMs) {
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(true, "Kết quả load test",
+                    loadTestService.runSuite(transientFailureRate, bouncePerThousand, outageMs)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
+    //cập nhật tồn kho song song trên một mã máu: ledger so với JPA đọc-sửa-ghi
+    @PostMapping("/inventory")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<InventoryBenchmarkReport>> inventory(
+            @RequestParam int bloodCode,
+            @RequestParam(defaultValue = "64") int threads,
+            @RequestParam(defaultValue = "10000") long durationMs) {
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(true, "Kết quả đo tồn kho",
+                    inventoryBenchmarkService.run(bloodCode, threads, durationMs)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.swp391.bloodcare.controller;
+
+import com.swp391.bloodcare.dto.ApiResponse;
+import com.swp391.bloodcare.dto.PageResponse;
+import com.swp391.bloodcare.dto.log.NotificationMessage;
+import com.swp391.bloodcare.dto.log.NotificationPreferenceDTO;
+import com.swp391.bloodcare.service.NotificationPreferenceService;
+import com.swp391.bloodcare.service.NotificationPushService;
+import com.swp391.bloodcare.service.NotificationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/notifications")
+@CrossOrigin(origins = "*")
+public class NotificationController {
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationPushService notificationPushService;
+
+    @Autowired
+    private NotificationPreferenceService notificationPreferenceService;
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<PageResponse<NotificationMessage>>> list(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Optional<String> accountId = currentAccountId();
+        if (accountId.isEmpty()) {
+            return unauthorized();
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Danh sách thông báo",
+                notificationService.list(accountId.get(), page, size)));
+    }
+
+    @GetMapping("/unread-count")
+    public ResponseEntity<ApiResponse<Long>> unreadCount() {
+        Optional<String> accountId = currentAccountId();
+        if (accountId.isEmpty()) {
+            return unauthorized();
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Số thông báo chưa đọc",
+                notificationService.countUnread(accountId.get())));
+    }
+
+    //SSE: sự kiện "notification" cho mỗi thông báo mới, "overflow" khi client đọc chậm bị mất sự kiện
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream() {
+        Optional<String> accountId = currentAccountId();
+        if (accountId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        SseEmitter emitter;
+        try {
+            emitter = notificationPushService.subscribe(accountId.get(), currentRole());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "30").build();
+        }
+        try {
+            emitter.send(SseEmitter.event().name("connected")
+                    .data(Map.of("unread", notificationService.countUnread(accountId.get()))));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    //POST vì PUT /** chỉ dành cho ADMIN
+    @PostMapping("/{id}/read")
+    public ResponseEntity<ApiResponse<Void>> markRead(@PathVariable String id) {
+        Optional<String> accountId = currentAccountId();
+        if (accountId.isEmpty()) {
+            return unauthorized();
+        }
+        boolean updated;
+        try {
+            updated = notificationService.markRead(accountId.get(), id);
+        } catch (IllegalArgumentException e) {
+            //id không phải UUID
+            updated = false;
+        }
+        if (!updated) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse<>(false, "Không tìm thấy thông báo chưa đọc: " + id, null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Đã đánh dấu đã đọc", null));
+    }
+
+    @PostMapping("/read-all")
+    public ResponseEntity<ApiResponse<Integer>> markAllRead() {
+        Optional<String> accountId = currentAccountId();
+        if (accountId.isEmpty()) {
+            return unauthorized();
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Đã đánh dấu tất cả đã đọc",
+                notificationService.markAllRead(accountId.get())));
+    }
+
+    @GetMapping("/preferences")
+    public ResponseEntity<ApiResponse<NotificationPreferenceDTO>> getPreferences() {
+        Optional<String> accountId = currentAccountId();
+        if (accountId.isEmpty()) {
+            return unauthorized();
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Tùy chọn thông báo",
+                notificationPreferenceService.get(accountId.get())));
+    }
+
+    //kênh nhận, giờ yên lặng, hủy đăng ký kêu gọi hiến máu
+    @PostMapping("/preferences")
+    public ResponseEntity<ApiResponse<NotificationPreferenceDTO>> updatePreferences(
+            @RequestBody NotificationPreferenceDTO request) {
+        Optional<String> accountId = currentAccountId();
+        if (accountId.isEmpty()) {
+            return unauthorized();
+        }
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(true, "Đã lưu tùy chọn thông báo",
+                    notificationPreferenceService.update(accountId.get(), request)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
+    //accountId do JwtAuthenticationFilter đặt vào details; token cũ không có claim thì mới tra DB
+    private Optional<String> currentAccountId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated()) {
+            return Optional.empty();
+        }
+        if (auth.getDetails() instanceof String accountId) {
+            return Optional.of(accountId);
+        }
+        return notificationService.findAccountId(auth.getName());
+    }
+
+    //"ROLE_STAFF" -> "STAFF"; null nếu không có
+    private static String currentRole() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null) {
+            return null;
+        }
+        for (GrantedAuthority authority : auth.getAuthorities()) {
+            String name = authority.getAuthority();
+            if (name != null && name.startsWith("ROLE_")) {
+                return name.substring("ROLE_".length());
+            }
+        }
+        return null;
+    }
+
+    private static <T> ResponseEntity<ApiResponse<T>> unauthorized() {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(new ApiResponse<>(false, "Người dùng chưa đăng nhập", null));
+    }
+}
@@ -0,0 +1,58 @@
+package com.swp391.bloodcare.controller;
+
+import com.swp391.bloodcare.dto.ApiResponse;
+import com.swp391.bloodcare.dto.log.NotificationTemplateRequest;
+import com.swp391.bloodcare.entity.NotificationTemplate;
+import com.swp391.bloodcare.service.NotificationTemplateService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/notification-templates")
+@CrossOrigin(origins = "*")
+public class NotificationTemplateController {
+
+    @Autowired
+    private NotificationTemplateService notificationTemplateService;
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<NotificationTemplate>>> getAll() {
+        return ResponseEntity.ok(new ApiResponse<>(true, "Danh sách template", notificationTemplateService.findAll()));
+    }
+
+    @GetMapping("/{name}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<NotificationTemplate>> get(@PathVariable String name) {
+        return notificationTemplateService.find(name)
+                .map(template -> ResponseEntity.ok(new ApiResponse<>(true, "Template", template)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse<>(false, "Không tìm thấy template: " + name, null)));
+    }
+
+    //tạo mới hoặc ghi đè template cùng tên
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<NotificationTemplate>> save(@RequestBody NotificationTemplateRequest request) {
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(true, "Đã lưu template", notificationTemplateService.save(request)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
+    @DeleteMapping("/{name}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Void>> delete(@PathVariable String name) {
+        if (!notificationTemplateService.delete(name)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse<>(false, "Không tìm thấy template: " + name, null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Đã xóa template", null));
+    }
+}
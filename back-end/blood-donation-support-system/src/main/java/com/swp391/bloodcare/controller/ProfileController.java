@@ -2,18 +2,27 @@ package com.swp391.bloodcare.controller;
 
 import com.swp391.bloodcare.dto.ApiResponse;
 import com.swp391.bloodcare.dto.PageResponse;
+import com.swp391.bloodcare.dto.account.AccountImportResult;
 import com.swp391.bloodcare.dto.account.AccountSearchDTO;
 import com.swp391.bloodcare.dto.profile.ProfileResponseDTO;
+import com.swp391.bloodcare.service.AccountImportService;
+import com.swp391.bloodcare.service.AccountService;
 import com.swp391.bloodcare.service.ProfileService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
 
 @RestController
 @RequestMapping("/api")
@@ -23,6 +32,12 @@ public class ProfileController {
     @Autowired
     private ProfileService profileService;
 
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountImportService accountImportService;
+
 
     @GetMapping("/profile")
     public ApiResponse<ProfileResponseDTO> getUserProfile() {
@@ -88,6 +103,54 @@ public class ProfileController {
                 ResponseEntity.ok(response) :
                 ResponseEntity.badRequest().body(response);
     }
+
+    //khóa / mở khóa tài khoản
+    @PutMapping("/admin/accounts/{accountId}/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<String>> updateAccountStatus(
+            @PathVariable String accountId,
+            @RequestParam boolean active
+    ){
+        ApiResponse<String> response = accountService.updateAccountStatus(accountId, active);
+
+        return response.isSuccess() ?
+                ResponseEntity.ok(response) :
+                ResponseEntity.badRequest().body(response);
     }
 
+    //đổi role tài khoản
+    @PutMapping("/admin/accounts/{accountId}/role")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<String>> updateAccountRole(
+            @PathVariable String accountId,
+            @RequestParam String roleName
+    ){
+        ApiResponse<String> response = accountService.updateAccountRole(accountId, roleName);
+
+        return response.isSuccess() ?
+                ResponseEntity.ok(response) :
+                ResponseEntity.badRequest().body(response);
+    }
 
+    //import danh sách donor từ file CSV (có header) hoặc NDJSON
+    @PostMapping(value = "/admin/accounts/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<AccountImportResult>> importAccounts(@RequestParam("file") MultipartFile file){
+        String fileName = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase();
+        AccountImportService.Format format = fileName.endsWith(".ndjson") || fileName.endsWith(".jsonl") ?
+                AccountImportService.Format.NDJSON :
+                AccountImportService.Format.CSV;
+
+        if (accountImportService.isRunning()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ApiResponse<>(false, "Đang có một lần import khác chạy", null));
+        }
+
+        try (InputStream input = file.getInputStream()) {
+            AccountImportResult result = accountImportService.importAccounts(input, format);
+            return ResponseEntity.ok(new ApiResponse<>(true, "Import hoàn tất", result));
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(false, "Import thất bại: " + e.getMessage(), null));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.swp391.bloodcare.controller;
+
+import com.swp391.bloodcare.dto.ApiResponse;
+import com.swp391.bloodcare.service.ReferenceDataService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/reference-data")
+@CrossOrigin(origins = "*")
+public class ReferenceDataController {
+
+    @Autowired
+    private ReferenceDataService referenceDataService;
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getStats() {
+        return ResponseEntity.ok(new ApiResponse<>(true, "Thống kê dữ liệu tham chiếu", referenceDataService.getStats()));
+    }
+
+    //thay đổi qua JPA đã tự refresh sau commit; endpoint này cho dữ liệu sửa thẳng trong DB
+    @PostMapping("/refresh")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> refresh() {
+        referenceDataService.refresh();
+        return ResponseEntity.ok(new ApiResponse<>(true, "Đã tải lại dữ liệu tham chiếu", referenceDataService.getStats()));
+    }
+}
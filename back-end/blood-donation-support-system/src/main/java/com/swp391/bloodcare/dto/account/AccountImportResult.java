@@ -0,0 +1,29 @@
+package com.swp391.bloodcare.dto.account;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountImportResult {
+    private int totalRows;
+    private int imported;
+    private int failed;
+    private long durationMillis;
+    // chỉ giữ tối đa account-import.max-reported-errors lỗi đầu tiên
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        private int row;
+        private String username;
+        private String message;
+    }
+}
@@ -2,11 +2,18 @@ package com.swp391.bloodcare.dto.log;
 
 import lombok.Data;
 import java.util.List;
+import java.util.Map;
 
 @Data
 public class BloodNotificationRequest {
     private String district;
     private List<String> bloodGroups;
+    // tìm người hiến cho bệnh nhân nhóm này (vd "A-") thay cho bloodGroups; component: loại chế phẩm cần
+    private String recipientGroup;
+    private String component;
     private String subject;
     private String content;
+    // dùng template đã lưu thay cho subject/content; variables điền các biến {tên} không lấy từ người nhận
+    private String templateName;
+    private Map<String, String> variables;
 }
\ No newline at end of file
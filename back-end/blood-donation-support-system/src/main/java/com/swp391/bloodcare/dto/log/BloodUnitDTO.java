@@ -0,0 +1,22 @@
+package com.swp391.bloodcare.dto.log;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BloodUnitDTO {
+    private String unitId;
+    private String barcode;
+    private int bloodCode;
+    // "O-", "A+", ... (null nếu mã máu thiếu nhóm / Rh)
+    private String group;
+    private int volume;
+    private LocalDateTime collectedAt;
+    private LocalDateTime expiresAt;
+    private String status;
+}
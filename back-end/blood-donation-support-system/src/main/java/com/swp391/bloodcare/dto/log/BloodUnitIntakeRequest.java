@@ -0,0 +1,16 @@
+package com.swp391.bloodcare.dto.log;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+//nhập một túi máu vào kho; bloodCode bỏ trống thì lấy theo kết quả sau hiến (afterDonationId)
+@Data
+public class BloodUnitIntakeRequest {
+    private String barcode;
+    private Integer bloodCode;
+    private Integer afterDonationId;
+    private int volume;
+    private LocalDateTime collectedAt;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,23 @@
+package com.swp391.bloodcare.dto.log;
+
+import lombok.Data;
+
+//kết quả một lượt đo cập nhật tồn kho song song: ledger so với JPA đọc-sửa-ghi (profile loadtest)
+@Data
+public class InventoryBenchmarkReport {
+    private int bloodCode;
+    private int threads;
+    private long durationMs;
+    private boolean walSync;
+
+    private long ledgerUpdates;
+    private double ledgerUpdatesPerSecond;
+
+    private long jpaUpdates;
+    private double jpaUpdatesPerSecond;
+
+    private double speedup;
+    // số tồn trước và sau cả hai lượt (mỗi thread +1 rồi -1 nên phải bằng nhau)
+    private long quantityBefore;
+    private long quantityAfter;
+}
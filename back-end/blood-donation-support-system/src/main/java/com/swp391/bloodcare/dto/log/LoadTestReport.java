@@ -0,0 +1,36 @@
+package com.swp391.bloodcare.dto.log;
+
+import lombok.Data;
+
+//kết quả một lượt đo gửi thông báo (profile loadtest)
+@Data
+public class LoadTestReport {
+    private int recipients;
+    private double transientFailureRate;
+    private int bouncePerThousand;
+    private long outageMs;
+
+    // ghi outbox (từ lúc tạo job tới lúc commit)
+    private long enqueueMs;
+    // từ lúc tạo job tới lúc outbox không còn dòng chờ
+    private long elapsedMs;
+    private boolean timedOut;
+
+    private int sent;
+    private int failed;
+    private int pending;
+    private long delivered;
+    private double messagesPerSecond;
+
+    // độ trễ từ lúc tạo job tới lúc SMTP nhận thư
+    private long p50Ms;
+    private long p99Ms;
+    private long maxMs;
+
+    private long injectedTransient;
+    private long injectedPermanent;
+    private long outageRejected;
+    // số phiên SMTP đã mở, kết nối được dùng lại thì nhỏ hơn nhiều so với số lô
+    private long smtpSessions;
+    private String circuitState;
+}
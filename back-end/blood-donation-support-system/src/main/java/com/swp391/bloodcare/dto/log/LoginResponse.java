@@ -12,4 +12,9 @@ public class LoginResponse {
     private String message;
     private String username;
     private String role;
+    private String refreshToken;
+
+    public LoginResponse(String token, String message, String username, String role) {
+        this(token, message, username, role, null);
+    }
 }
@@ -0,0 +1,26 @@
+package com.swp391.bloodcare.dto.log;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NotificationJobStatus {
+    private String jobId;
+    // QUEUED, RUNNING, COMPLETED, FAILED
+    private String status;
+    // -1 khi chưa ghi xong danh sách người nhận vào outbox
+    private int total;
+    private int sent;
+    private int failed;
+    // gửi lỗi tạm thời, đang chờ gửi lại (nằm trong pending)
+    private int retrying;
+    private int pending;
+    private Date createdAt;
+    private Date finishedAt;
+    private String error;
+}
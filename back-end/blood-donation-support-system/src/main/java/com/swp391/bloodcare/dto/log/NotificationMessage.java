@@ -0,0 +1,20 @@
+package com.swp391.bloodcare.dto.log;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+//thông báo trả về cho client (REST và SSE)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NotificationMessage {
+    private String id;
+    private String title;
+    private String message;
+    private String type;
+    private boolean read;
+    private LocalDateTime createdAt;
+}
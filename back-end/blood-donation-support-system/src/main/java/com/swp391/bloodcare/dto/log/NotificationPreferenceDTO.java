@@ -0,0 +1,19 @@
+package com.swp391.bloodcare.dto.log;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalTime;
+
+//quietStart/quietEnd dạng "HH:mm", cả hai null -> không có giờ yên lặng
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NotificationPreferenceDTO {
+    private boolean emailEnabled = true;
+    private boolean inAppEnabled = true;
+    private boolean unsubscribed;
+    private LocalTime quietStart;
+    private LocalTime quietEnd;
+}
@@ -0,0 +1,35 @@
+package com.swp391.bloodcare.dto.log;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+//chỉ những cột cần để gửi thông báo, không load cả Account/Profile
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NotificationRecipient {
+    private String email;
+    private String name;
+    private String district;
+    private LocalDate restDate;
+    private String accountId;
+
+    // theo tùy chọn của người nhận (NotificationPreferenceService)
+    private boolean emailEnabled = true;
+    private boolean inAppEnabled = true;
+    // giờ yên lặng: email chưa gửi trước thời điểm này
+    private LocalDateTime notBefore;
+
+    //dùng trong JPQL constructor expression
+    public NotificationRecipient(String email, String name, String district, LocalDate restDate, String accountId) {
+        this.email = email;
+        this.name = name;
+        this.district = district;
+        this.restDate = restDate;
+        this.accountId = accountId;
+    }
+}
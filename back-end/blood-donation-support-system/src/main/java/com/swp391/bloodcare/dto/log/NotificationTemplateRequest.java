@@ -0,0 +1,10 @@
+package com.swp391.bloodcare.dto.log;
+
+import lombok.Data;
+
+@Data
+public class NotificationTemplateRequest {
+    private String name;
+    private String subject;
+    private String body;
+}
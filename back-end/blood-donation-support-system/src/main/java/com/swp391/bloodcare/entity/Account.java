@@ -1,5 +1,6 @@
 package com.swp391.bloodcare.entity;
 
+import com.swp391.bloodcare.util.UuidBinaryConverter;
 import jakarta.persistence.*;
 import java.time.LocalDate;
 import java.util.List;
@@ -8,8 +9,10 @@ import java.util.List;
 @Entity
 @Table(name = "account")
 public class Account{
+    //UUIDv7 dạng chuỗi trong code, BINARY(16) trong DB
     @Id
-    @Column(name = "id" )
+    @Convert(converter = UuidBinaryConverter.class)
+    @Column(name = "id", columnDefinition = "BINARY(16)")
     private String accountId;
 
     @Column(name = "username", unique = true, nullable = false)
@@ -11,6 +11,7 @@ package com.swp391.bloodcare.entity;
 import jakarta.persistence.*;
 
 @Entity
+@EntityListeners(ReferenceDataListener.class)
 @Table(name = "blood")
 public class Blood {
     @Id
@@ -38,6 +39,8 @@ public class Blood {
     @Column(name ="quantity")
     private int quantity;
 
+    // chữ tự do, không dùng để tính tương thích nữa -> xem BloodCompatibilityService
+    @Deprecated
     @Column(name ="blood_match")
     private String bloodMatch;
 
@@ -112,10 +115,12 @@ public class Blood {
         this.quantity = quantity;
     }
 
+    @Deprecated
     public String getBloodMatch() {
         return bloodMatch;
     }
 
+    @Deprecated
     public void setBloodMatch(String bloodMatch) {
         this.bloodMatch = bloodMatch;
     }
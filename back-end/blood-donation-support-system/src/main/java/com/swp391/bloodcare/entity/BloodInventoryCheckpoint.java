@@ -0,0 +1,59 @@
+package com.swp391.bloodcare.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/*
+Mốc ghi tồn kho xuống bảng blood (BloodInventoryLedger): mọi delta có seq <= lastSeq đã nằm trong DB,
+khởi động lại chỉ phát lại phần nhật ký sau mốc này. Mỗi node (thư mục nhật ký) một dòng, id lưu trong file node-id
+của thư mục đó; nhật ký có từ trước khi tách theo node dùng id = 1. Cập nhật cùng transaction với bảng blood.
+ */
+@Entity
+@Table(name = "blood_inventory_checkpoint")
+public class BloodInventoryCheckpoint {
+    public static final int LEGACY_ID = 1;
+
+    @Id
+    @Column(name = "id")
+    private int id;
+
+    @Column(name = "last_seq", nullable = false)
+    private long lastSeq;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public BloodInventoryCheckpoint() {
+    }
+
+    public BloodInventoryCheckpoint(int id, long lastSeq, LocalDateTime updatedAt) {
+        this.id = id;
+        this.lastSeq = lastSeq;
+        this.updatedAt = updatedAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    public void setLastSeq(long lastSeq) {
+        this.lastSeq = lastSeq;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,141 @@
+package com.swp391.bloodcare.entity;
+
+import com.swp391.bloodcare.util.UuidBinaryConverter;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/*
+Một túi máu / chế phẩm cụ thể trong kho (bảng blood chỉ giữ số lượng theo mã máu).
+Trạng thái dùng Blood.BloodStatus: AVAILABLE -> USED (xuất kho) / EXPIRED (quá hạn);
+chỉ đổi bằng UPDATE có điều kiện "status = AVAILABLE" để hai người không xuất trùng một túi.
+ */
+@Entity
+@Table(name = "blood_unit", indexes = {
+        @Index(name = "uk_blood_unit_barcode", columnList = "barcode", unique = true),
+        @Index(name = "idx_blood_unit_status_expiry", columnList = "status, expires_at"),
+        @Index(name = "idx_blood_unit_code_status", columnList = "blood_code, status")
+})
+public class BloodUnit {
+    @Id
+    @Convert(converter = UuidBinaryConverter.class)
+    @Column(name = "unit_id", columnDefinition = "BINARY(16)")
+    private String unitId;
+
+    // mã vạch trên túi máu
+    @Column(name = "barcode", length = 64, nullable = false)
+    private String barcode;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "blood_code", nullable = false)
+    private Blood blood;
+
+    // kết quả xét nghiệm sau hiến của lần hiến tạo ra túi này (túi nhập từ nơi khác thì null)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "after_donation_id")
+    private AfterDonationBlood afterDonation;
+
+    @Column(name = "volume", nullable = false)
+    private int volume;
+
+    @Column(name = "collected_at", nullable = false)
+    private LocalDateTime collectedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 16, nullable = false)
+    private Blood.BloodStatus status;
+
+    // thời điểm xuất kho / hết hạn
+    @Column(name = "status_changed_at")
+    private LocalDateTime statusChangedAt;
+
+    public BloodUnit() {
+    }
+
+    public BloodUnit(String unitId, String barcode, Blood blood, AfterDonationBlood afterDonation, int volume,
+                     LocalDateTime collectedAt, LocalDateTime expiresAt, Blood.BloodStatus status) {
+        this.unitId = unitId;
+        this.barcode = barcode;
+        this.blood = blood;
+        this.afterDonation = afterDonation;
+        this.volume = volume;
+        this.collectedAt = collectedAt;
+        this.expiresAt = expiresAt;
+        this.status = status;
+    }
+
+    public String getUnitId() {
+        return unitId;
+    }
+
+    public void setUnitId(String unitId) {
+        this.unitId = unitId;
+    }
+
+    public String getBarcode() {
+        return barcode;
+    }
+
+    public void setBarcode(String barcode) {
+        this.barcode = barcode;
+    }
+
+    public Blood getBlood() {
+        return blood;
+    }
+
+    public void setBlood(Blood blood) {
+        this.blood = blood;
+    }
+
+    public AfterDonationBlood getAfterDonation() {
+        return afterDonation;
+    }
+
+    public void setAfterDonation(AfterDonationBlood afterDonation) {
+        this.afterDonation = afterDonation;
+    }
+
+    public int getVolume() {
+        return volume;
+    }
+
+    public void setVolume(int volume) {
+        this.volume = volume;
+    }
+
+    public LocalDateTime getCollectedAt() {
+        return collectedAt;
+    }
+
+    public void setCollectedAt(LocalDateTime collectedAt) {
+        this.collectedAt = collectedAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public Blood.BloodStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(Blood.BloodStatus status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getStatusChangedAt() {
+        return statusChangedAt;
+    }
+
+    public void setStatusChangedAt(LocalDateTime statusChangedAt) {
+        this.statusChangedAt = statusChangedAt;
+    }
+}
@@ -0,0 +1,78 @@
+package com.swp391.bloodcare.entity;
+
+import com.swp391.bloodcare.util.UuidBinaryConverter;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/*
+Thông báo trong app của một account. Id là UUIDv7 sinh trong code để ghi bằng JDBC batch
+mà vẫn biết id ngay (đẩy qua SSE kèm id để client đánh dấu đã đọc).
+ */
+@Entity
+@Table(name = "notification", indexes = {
+        @Index(name = "idx_notification_account_created", columnList = "account_id, created_at"),
+        @Index(name = "idx_notification_account_read", columnList = "account_id, is_read")
+})
+public class Notification {
+    @Id
+    @Convert(converter = UuidBinaryConverter.class)
+    @Column(name = "id", columnDefinition = "BINARY(16)")
+    private String id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id", nullable = false)
+    private Account account;
+
+    @Column(name = "title", nullable = false)
+    private String title;
+
+    @Lob
+    @Column(name = "message", columnDefinition = "TEXT")
+    private String message;
+
+    // BLOOD_CALL, DONATION, ...
+    @Column(name = "type", length = 32, nullable = false)
+    private String type;
+
+    @Column(name = "is_read", nullable = false)
+    private boolean isRead;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public Notification() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Account getAccount() {
+        return account;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public boolean isRead() {
+        return isRead;
+    }
+
+    public void setRead(boolean read) {
+        isRead = read;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,150 @@
+package com.swp391.bloodcare.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/*
+Một lần gửi thông báo kêu gọi hiến máu. Nội dung lưu ở đây, từng người nhận là một dòng notification_outbox.
+Trạng thái: QUEUED (chưa ghi outbox) -> ENQUEUING (đang ghi outbox theo lô, node ghi giữ lease)
+-> RUNNING (đã ghi outbox, đang gửi) -> COMPLETED / FAILED.
+ */
+@Entity
+@Table(name = "notification_job", indexes = {
+        @Index(name = "idx_notification_job_status", columnList = "status")
+})
+public class NotificationJob {
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Column(name = "subject", nullable = false)
+    private String subject;
+
+    @Lob
+    @Column(name = "content", columnDefinition = "TEXT")
+    private String content;
+
+    // biến dùng chung cho mọi người nhận (JSON object), xem NotificationTemplateService
+    @Lob
+    @Column(name = "variables", columnDefinition = "TEXT")
+    private String variables;
+
+    @Column(name = "district")
+    private String district;
+
+    @Column(name = "blood_groups")
+    private String bloodGroups;
+
+    @Column(name = "status", length = 16, nullable = false)
+    private String status;
+
+    @Column(name = "total")
+    private Integer total;
+
+    @Column(name = "error")
+    private String error;
+
+    // ENQUEUING: email người nhận cuối cùng đã ghi outbox (đã commit), ghi tiếp từ sau email này
+    @Column(name = "enqueue_cursor")
+    private String enqueueCursor;
+
+    // ENQUEUING: node đang ghi outbox và hạn lease; hết hạn thì node khác ghi tiếp
+    @Column(name = "claimed_by", length = 64)
+    private String claimedBy;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    public NotificationJob() {
+    }
+
+    public NotificationJob(String id, String subject, String content, String variables, String district, String bloodGroups, LocalDateTime createdAt) {
+        this.id = id;
+        this.subject = subject;
+        this.content = content;
+        this.variables = variables;
+        this.district = district;
+        this.bloodGroups = bloodGroups;
+        this.status = "QUEUED";
+        this.createdAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public String getVariables() {
+        return variables;
+    }
+
+    public String getDistrict() {
+        return district;
+    }
+
+    public String getBloodGroups() {
+        return bloodGroups;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+
+    public void setTotal(Integer total) {
+        this.total = total;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getEnqueueCursor() {
+        return enqueueCursor;
+    }
+
+    public String getClaimedBy() {
+        return claimedBy;
+    }
+
+    public LocalDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -0,0 +1,126 @@
+package com.swp391.bloodcare.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/*
+Outbox: mỗi dòng là một email cần gửi. Ghi/nhận việc bằng JDBC trong NotificationOutboxService,
+entity này chủ yếu để Hibernate tạo bảng + index.
+Trạng thái: PENDING -> SENDING (đã được một node nhận, có hạn lease_until) -> SENT / FAILED;
+lease hết hạn (node chết khi đang gửi) -> PENDING lại.
+ */
+@Entity
+@Table(name = "notification_outbox", indexes = {
+        @Index(name = "idx_outbox_claim", columnList = "status, available_at"),
+        @Index(name = "idx_outbox_lease", columnList = "status, lease_until"),
+        @Index(name = "idx_outbox_job", columnList = "job_id, status")
+})
+public class NotificationOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private long id;
+
+    @Column(name = "job_id", length = 36, nullable = false)
+    private String jobId;
+
+    @Column(name = "email", nullable = false)
+    private String email;
+
+    @Column(name = "name")
+    private String name;
+
+    // dữ liệu để cá nhân hóa nội dung lúc gửi, chụp lại khi ghi outbox
+    @Column(name = "district")
+    private String district;
+
+    @Column(name = "rest_date")
+    private LocalDate restDate;
+
+    @Column(name = "status", length = 16, nullable = false)
+    private String status;
+
+    // số lần đã nhận đi gửi
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    // chưa tới thời điểm này thì chưa gửi (chờ backoff)
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "claimed_by", length = 64)
+    private String claimedBy;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    public NotificationOutbox() {
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDistrict() {
+        return district;
+    }
+
+    public LocalDate getRestDate() {
+        return restDate;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public LocalDateTime getAvailableAt() {
+        return availableAt;
+    }
+
+    public String getClaimedBy() {
+        return claimedBy;
+    }
+
+    public LocalDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+}
@@ -0,0 +1,100 @@
+package com.swp391.bloodcare.entity;
+
+import com.swp391.bloodcare.util.UuidBinaryConverter;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/*
+Tùy chọn nhận thông báo kêu gọi hiến máu của một account. Không có dòng -> nhận tất cả, mọi lúc.
+Giờ yên lặng: email không gửi trong [quietStart, quietEnd) (có thể qua nửa đêm), dời tới quietEnd.
+ */
+@Entity
+@Table(name = "notification_preference", indexes = {
+        @Index(name = "idx_notification_preference_updated", columnList = "updated_at")
+})
+public class NotificationPreference {
+    @Id
+    @Convert(converter = UuidBinaryConverter.class)
+    @Column(name = "account_id", columnDefinition = "BINARY(16)")
+    private String accountId;
+
+    @Column(name = "email_enabled", nullable = false)
+    private boolean emailEnabled = true;
+
+    @Column(name = "in_app_enabled", nullable = false)
+    private boolean inAppEnabled = true;
+
+    // hủy đăng ký: không nhận kêu gọi hiến máu qua kênh nào
+    @Column(name = "unsubscribed", nullable = false)
+    private boolean unsubscribed;
+
+    @Column(name = "quiet_start")
+    private LocalTime quietStart;
+
+    @Column(name = "quiet_end")
+    private LocalTime quietEnd;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public NotificationPreference() {
+    }
+
+    public NotificationPreference(String accountId) {
+        this.accountId = accountId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public boolean isEmailEnabled() {
+        return emailEnabled;
+    }
+
+    public void setEmailEnabled(boolean emailEnabled) {
+        this.emailEnabled = emailEnabled;
+    }
+
+    public boolean isInAppEnabled() {
+        return inAppEnabled;
+    }
+
+    public void setInAppEnabled(boolean inAppEnabled) {
+        this.inAppEnabled = inAppEnabled;
+    }
+
+    public boolean isUnsubscribed() {
+        return unsubscribed;
+    }
+
+    public void setUnsubscribed(boolean unsubscribed) {
+        this.unsubscribed = unsubscribed;
+    }
+
+    public LocalTime getQuietStart() {
+        return quietStart;
+    }
+
+    public void setQuietStart(LocalTime quietStart) {
+        this.quietStart = quietStart;
+    }
+
+    public LocalTime getQuietEnd() {
+        return quietEnd;
+    }
+
+    public void setQuietEnd(LocalTime quietEnd) {
+        this.quietEnd = quietEnd;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
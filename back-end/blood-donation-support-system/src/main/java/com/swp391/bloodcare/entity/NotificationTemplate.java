@@ -0,0 +1,65 @@
+package com.swp391.bloodcare.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/*
+Mẫu thông báo có biến, vd: "Cần gấp nhóm máu {bloodGroups} tại {district}, {name} đã có thể hiến từ {restDate}".
+Job gửi chụp lại subject/body lúc tạo, sửa mẫu không ảnh hưởng job đang chạy.
+ */
+@Entity
+@Table(name = "notification_template")
+public class NotificationTemplate {
+    @Id
+    @Column(name = "name", length = 100)
+    private String name;
+
+    @Column(name = "subject", nullable = false)
+    private String subject;
+
+    @Lob
+    @Column(name = "body", columnDefinition = "TEXT", nullable = false)
+    private String body;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public NotificationTemplate() {
+    }
+
+    public NotificationTemplate(String name, String subject, String body, LocalDateTime updatedAt) {
+        this.name = name;
+        this.subject = subject;
+        this.body = body;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
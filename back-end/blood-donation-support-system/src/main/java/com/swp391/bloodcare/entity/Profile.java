@@ -17,7 +17,10 @@ import java.time.LocalDate;
 import java.util.Date;
 
 @Entity
-@Table(name = "profile")
+//lọc người nhận thông báo theo quận + nhóm máu + ngày hết nghỉ
+@Table(name = "profile", indexes = {
+        @Index(name = "idx_profile_district_blood_rest", columnList = "district, blood_code, rest_date")
+})
 
 
 public class Profile {
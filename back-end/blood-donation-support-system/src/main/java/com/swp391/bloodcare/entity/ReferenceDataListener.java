@@ -0,0 +1,25 @@
+package com.swp391.bloodcare.entity;
+
+import com.swp391.bloodcare.service.ReferenceDataService;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/*
+Gắn vào entity dữ liệu tham chiếu (@EntityListeners): mọi thêm / sửa / xóa qua JPA làm
+ReferenceDataService tải lại snapshot sau khi commit. Hibernate tạo listener qua Spring nên @Autowired dùng được.
+Ghi bằng JDBC (vd: BloodInventoryLedger cộng quantity) không đi qua đây.
+ */
+public class ReferenceDataListener {
+
+    @Autowired
+    private ReferenceDataService referenceDataService;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void changed(Object entity) {
+        referenceDataService.refreshAfterCommit();
+    }
+}
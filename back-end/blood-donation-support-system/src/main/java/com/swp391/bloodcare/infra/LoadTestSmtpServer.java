@@ -0,0 +1,281 @@
+package com.swp391.bloodcare.infra;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/*
+SMTP server chạy trong process (profile loadtest), thay cho Gmail khi đo tải / thử lỗi, không cần mạng:
+- nghe trên 127.0.0.1, JavaMail nói SMTP thật qua TCP (EHLO, MAIL, RCPT, DATA, RSET, NOOP, QUIT),
+  nên đo được cả chi phí mở phiên và việc dùng lại kết nối của SmtpTransportPool
+- mỗi phiên chờ sessionLatencyMs trước lời chào (giả lập kết nối + STARTTLS + AUTH), mỗi thư perMessageMicros
+- lỗi tiêm vào: RCPT bị 451 theo tỉ lệ (Random có seed -> lặp lại được), địa chỉ bắt đầu bằng "bounce" bị 550,
+  outage -> đóng mọi phiên đang mở và trả 421 cho phiên / lệnh MAIL mới
+- chỉ nhận thư, không lưu nội dung; listener được gọi với địa chỉ người nhận mỗi khi một thư được nhận
+Không dùng GreenMail: cần trả đúng mã 4xx / 5xx theo từng người nhận để EmailSender phân loại lỗi như với server thật.
+ */
+public class LoadTestSmtpServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestSmtpServer.class);
+
+    private final int requestedPort;
+    private final long sessionLatencyMs;
+    private final long perMessageMicros;
+    private Random random;
+
+    private volatile double transientFailureRate;
+    private volatile boolean outage;
+    private volatile Consumer<String> listener;
+
+    private final AtomicLong sessions = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong injectedTransient = new AtomicLong();
+    private final AtomicLong injectedPermanent = new AtomicLong();
+    private final AtomicLong outageRejected = new AtomicLong();
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+
+    private ServerSocket serverSocket;
+    private volatile boolean running;
+
+    // port 0 = chọn port trống, đọc lại bằng getPort() sau start()
+    public LoadTestSmtpServer(int port, long sessionLatencyMs, long perMessageMicros, long seed) {
+        this.requestedPort = port;
+        this.sessionLatencyMs = sessionLatencyMs;
+        this.perMessageMicros = perMessageMicros;
+        this.random = new Random(seed);
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        serverSocket = new ServerSocket(requestedPort, 512, InetAddress.getLoopbackAddress());
+        running = true;
+        Thread.ofVirtual().name("loadtest-smtp-accept").start(this::acceptLoop);
+        log.info("Load test SMTP server listening on {}", getPort());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException ignored) {
+                //đang tắt
+            }
+        }
+        dropSessions();
+    }
+
+    // bắt đầu một lượt đo: đặt lại bộ đếm, seed và lỗi tiêm vào
+    public synchronized void reset(long seed, double transientFailureRate, Consumer<String> listener) {
+        this.random = new Random(seed);
+        this.transientFailureRate = transientFailureRate;
+        this.listener = listener;
+        this.outage = false;
+        sessions.set(0);
+        delivered.set(0);
+        injectedTransient.set(0);
+        injectedPermanent.set(0);
+        outageRejected.set(0);
+    }
+
+    //bật outage thì các phiên đang mở bị cắt như server sập
+    public void setOutage(boolean outage) {
+        this.outage = outage;
+        if (outage) {
+            dropSessions();
+        }
+    }
+
+    public void setListener(Consumer<String> listener) {
+        this.listener = listener;
+    }
+
+    // số phiên SMTP đã mở từ lần reset() cuối
+    public long getSessions() {
+        return sessions.get();
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    public long getInjectedTransient() {
+        return injectedTransient.get();
+    }
+
+    public long getInjectedPermanent() {
+        return injectedPermanent.get();
+    }
+
+    // số phiên / lệnh MAIL bị từ chối trong lúc outage
+    public long getOutageRejected() {
+        return outageRejected.get();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread.ofVirtual().name("loadtest-smtp-session").start(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Load test SMTP accept failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        open.add(socket);
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+             OutputStream out = socket.getOutputStream()) {
+            if (outage) {
+                outageRejected.incrementAndGet();
+                reply(out, "421 4.3.2 Injected outage: service not available");
+                return;
+            }
+            sessions.incrementAndGet();
+            sleep(TimeUnit.MILLISECONDS.toNanos(sessionLatencyMs));
+            reply(out, "220 loadtest.invalid ESMTP");
+
+            List<String> recipients = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() < 4 ? line.toUpperCase(Locale.ROOT) : line.substring(0, 4).toUpperCase(Locale.ROOT);
+                switch (command) {
+                    case "EHLO" -> reply(out, "250-loadtest.invalid\r\n250 8BITMIME");
+                    case "HELO" -> reply(out, "250 loadtest.invalid");
+                    case "MAIL" -> {
+                        if (outage) {
+                            outageRejected.incrementAndGet();
+                            reply(out, "421 4.3.2 Injected outage: service not available");
+                            return;
+                        }
+                        recipients.clear();
+                        reply(out, "250 2.1.0 OK");
+                    }
+                    case "RCPT" -> reply(out, rcpt(address(line), recipients));
+                    case "DATA" -> {
+                        if (recipients.isEmpty()) {
+                            reply(out, "503 5.5.1 No valid recipients");
+                            continue;
+                        }
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            //chỉ đọc bỏ nội dung thư
+                        }
+                        if (line == null) {
+                            return;
+                        }
+                        sleep(TimeUnit.MICROSECONDS.toNanos(perMessageMicros));
+                        Consumer<String> current = listener;
+                        for (String recipient : recipients) {
+                            delivered.incrementAndGet();
+                            if (current != null) {
+                                current.accept(recipient);
+                            }
+                        }
+                        recipients.clear();
+                        reply(out, "250 2.0.0 OK queued");
+                    }
+                    case "RSET" -> {
+                        recipients.clear();
+                        reply(out, "250 2.0.0 OK");
+                    }
+                    case "NOOP" -> reply(out, "250 2.0.0 OK");
+                    case "QUIT" -> {
+                        reply(out, "221 2.0.0 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 5.5.1 Command not implemented");
+                }
+            }
+        } catch (SocketException e) {
+            //phiên bị cắt (outage / client đóng kết nối)
+        } catch (IOException e) {
+            log.debug("Load test SMTP session failed: {}", e.getMessage());
+        } finally {
+            open.remove(socket);
+        }
+    }
+
+    private String rcpt(String address, List<String> recipients) {
+        if (address.startsWith("bounce")) {
+            injectedPermanent.incrementAndGet();
+            return "550 5.1.1 Injected: mailbox unavailable";
+        }
+        if (nextDouble() < transientFailureRate) {
+            injectedTransient.incrementAndGet();
+            return "451 4.3.0 Injected: temporary failure, try again later";
+        }
+        recipients.add(address);
+        return "250 2.1.5 OK";
+    }
+
+    //"RCPT TO:<a@b>" -> "a@b"
+    private static String address(String line) {
+        int start = line.indexOf('<');
+        int end = line.indexOf('>', start + 1);
+        if (start >= 0 && end > start) {
+            return line.substring(start + 1, end);
+        }
+        int colon = line.indexOf(':');
+        return colon < 0 ? "" : line.substring(colon + 1).trim();
+    }
+
+    private void dropSessions() {
+        for (Socket socket : open) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                //đã đóng
+            }
+        }
+    }
+
+    private synchronized double nextDouble() {
+        return random.nextDouble();
+    }
+
+    private static void reply(OutputStream out, String response) throws IOException {
+        out.write((response + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
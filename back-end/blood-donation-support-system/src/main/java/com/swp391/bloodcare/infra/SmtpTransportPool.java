@@ -0,0 +1,187 @@
+package com.swp391.bloodcare.infra;
+
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Giữ các kết nối SMTP đã mở (kết nối + STARTTLS + AUTH) để dùng lại giữa các lần gửi,
+JavaMailSenderImpl.send() tự mở và đóng một kết nối mỗi lần gọi:
+- send() mượn một kết nối, gửi lần lượt từng thư, xong trả lại pool; lỗi ném ra giống JavaMailSenderImpl
+  (MailSendException kèm thư lỗi, MailAuthenticationException khi sai tài khoản) để caller phân loại như cũ
+- mượn: lấy kết nối dùng gần nhất (LIFO), kiểm tra bằng isConnected() (NOOP), hỏng / rảnh quá lâu thì đóng và mở mới
+- tối đa maxIdle kết nối rảnh, thừa thì đóng; evictIdle() đóng các kết nối rảnh quá idleTimeoutMillis
+  (server thường tự cắt kết nối rảnh, đóng trước để lần mượn sau không gặp kết nối chết)
+Số kết nối đang dùng cùng lúc do caller giới hạn (bulkhead của EmailSender).
+ */
+public class SmtpTransportPool implements AutoCloseable {
+
+    private record Idle(Transport transport, long since) {
+    }
+
+    private final JavaMailSenderImpl sender;
+    private final int maxIdle;
+    private final long idleTimeoutMillis;
+    private final ConcurrentLinkedDeque<Idle> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicLong opened = new AtomicLong();
+    private volatile boolean closed;
+
+    public SmtpTransportPool(JavaMailSenderImpl sender, int maxIdle, long idleTimeoutMillis) {
+        if (maxIdle <= 0 || idleTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("maxIdle and idleTimeoutMillis must be positive");
+        }
+        this.sender = sender;
+        this.maxIdle = maxIdle;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    //gửi các thư trên một kết nối của pool; kết nối chết giữa chừng thì mở lại cho các thư còn lại
+    public void send(SimpleMailMessage... messages) {
+        Map<Object, Exception> failed = new LinkedHashMap<>();
+        Transport transport = null;
+        try {
+            for (int i = 0; i < messages.length; i++) {
+                if (transport == null) {
+                    try {
+                        transport = borrow();
+                    } catch (AuthenticationFailedException e) {
+                        throw new MailAuthenticationException(e);
+                    } catch (MessagingException e) {
+                        //không kết nối được -> mọi thư còn lại đều lỗi
+                        for (int j = i; j < messages.length; j++) {
+                            failed.put(messages[j], e);
+                        }
+                        throw new MailSendException("Mail server connection failed", e, failed);
+                    }
+                }
+                try {
+                    MimeMessage mime = toMimeMessage(messages[i]);
+                    transport.sendMessage(mime, mime.getAllRecipients());
+                } catch (MailException e) {
+                    //thư sai định dạng, kết nối không bị ảnh hưởng
+                    failed.put(messages[i], e);
+                } catch (MessagingException e) {
+                    failed.put(messages[i], e);
+                    //địa chỉ bị từ chối thì kết nối vẫn dùng được; lỗi khác kiểm tra lại kết nối
+                    if (!(e instanceof SendFailedException) && !transport.isConnected()) {
+                        closeQuietly(transport);
+                        transport = null;
+                    }
+                }
+            }
+        } finally {
+            if (transport != null) {
+                release(transport);
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new MailSendException(failed);
+        }
+    }
+
+    //đóng các kết nối rảnh quá idleTimeoutMillis; trả về số kết nối đã đóng
+    public int evictIdle() {
+        long threshold = System.currentTimeMillis() - idleTimeoutMillis;
+        int evicted = 0;
+        Idle entry;
+        //kết nối trả về được thêm vào đầu -> cuối deque là kết nối rảnh lâu nhất
+        while ((entry = idle.peekLast()) != null && entry.since() < threshold) {
+            if (idle.removeLastOccurrence(entry)) {
+                closeQuietly(entry.transport());
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    // tổng số kết nối đã mở, dùng lại tốt thì tăng chậm hơn nhiều so với số lô
+    public long getOpenedCount() {
+        return opened.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Idle entry;
+        while ((entry = idle.pollFirst()) != null) {
+            closeQuietly(entry.transport());
+        }
+    }
+
+    private Transport borrow() throws MessagingException {
+        long threshold = System.currentTimeMillis() - idleTimeoutMillis;
+        Idle entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (entry.since() >= threshold && entry.transport().isConnected()) {
+                return entry.transport();
+            }
+            closeQuietly(entry.transport());
+        }
+        Transport transport = sender.getSession().getTransport(protocol());
+        String username = sender.getUsername();
+        String password = sender.getPassword();
+        transport.connect(sender.getHost(), sender.getPort(),
+                username == null || username.isEmpty() ? null : username,
+                password == null || password.isEmpty() ? null : password);
+        opened.incrementAndGet();
+        return transport;
+    }
+
+    //giống JavaMailSenderImpl.getTransport: protocol của sender, không có thì mail.transport.protocol, mặc định smtp
+    private String protocol() {
+        String protocol = sender.getProtocol();
+        if (protocol == null) {
+            protocol = sender.getSession().getProperty("mail.transport.protocol");
+        }
+        return protocol == null ? "smtp" : protocol;
+    }
+
+    private void release(Transport transport) {
+        if (closed || idle.size() >= maxIdle) {
+            closeQuietly(transport);
+            return;
+        }
+        idle.addFirst(new Idle(transport, System.currentTimeMillis()));
+        //close() chạy đồng thời có thể đã dọn xong trước khi kết nối này được thêm vào
+        if (closed) {
+            close();
+        }
+    }
+
+    private MimeMessage toMimeMessage(SimpleMailMessage message) throws MessagingException {
+        MimeMessage mime = sender.createMimeMessage();
+        message.copyTo(new MimeMailMessage(new MimeMessageHelper(mime, sender.getDefaultEncoding())));
+        if (mime.getSentDate() == null) {
+            mime.setSentDate(new Date());
+        }
+        mime.saveChanges();
+        return mime;
+    }
+
+    private static void closeQuietly(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException ignored) {
+            //kết nối đã hỏng, không còn gì để dọn
+        }
+    }
+}
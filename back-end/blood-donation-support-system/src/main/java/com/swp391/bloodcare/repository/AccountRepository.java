@@ -18,6 +18,10 @@ public interface AccountRepository extends JpaRepository<Account, String> {
     Optional<Account> findByUserName(String userName);
     Optional<Account> findByEmail(String email);
 
+    //login bằng username hoặc email trong một query
+    @Query("SELECT a FROM Account a LEFT JOIN FETCH a.role WHERE a.userName = :login OR a.email = :login")
+    List<Account> findByUserNameOrEmail(@Param("login") String login);
+
 
 
     boolean existsByUserName(String userName);
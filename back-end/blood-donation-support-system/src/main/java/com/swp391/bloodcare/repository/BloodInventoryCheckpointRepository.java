@@ -0,0 +1,7 @@
+package com.swp391.bloodcare.repository;
+
+import com.swp391.bloodcare.entity.BloodInventoryCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface BloodInventoryCheckpointRepository extends JpaRepository<BloodInventoryCheckpoint, Integer> {
+}
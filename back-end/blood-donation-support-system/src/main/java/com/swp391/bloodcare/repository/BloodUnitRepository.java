@@ -0,0 +1,28 @@
+package com.swp391.bloodcare.repository;
+
+import com.swp391.bloodcare.entity.Blood;
+import com.swp391.bloodcare.entity.BloodUnit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface BloodUnitRepository extends JpaRepository<BloodUnit, String> {
+
+    Optional<BloodUnit> findByBarcode(String barcode);
+
+    boolean existsByBarcode(String barcode);
+
+    //chỉ đổi khi túi vẫn còn AVAILABLE; trả về 0 nếu đã có người xuất / đã hết hạn trước
+    @Modifying
+    @Transactional
+    @Query("UPDATE BloodUnit u SET u.status = :status, u.statusChangedAt = :changedAt " +
+            "WHERE u.unitId = :unitId AND u.status = com.swp391.bloodcare.entity.Blood.BloodStatus.AVAILABLE")
+    int changeStatusIfAvailable(@Param("unitId") String unitId,
+                                @Param("status") Blood.BloodStatus status,
+                                @Param("changedAt") LocalDateTime changedAt);
+}
@@ -0,0 +1,13 @@
+package com.swp391.bloodcare.repository;
+
+import com.swp391.bloodcare.entity.NotificationJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface NotificationJobRepository extends JpaRepository<NotificationJob, String> {
+    List<NotificationJob> findByStatus(String status);
+
+    List<NotificationJob> findByStatusAndLeaseUntilBefore(String status, LocalDateTime time);
+}
@@ -0,0 +1,11 @@
+package com.swp391.bloodcare.repository;
+
+import com.swp391.bloodcare.entity.NotificationPreference;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface NotificationPreferenceRepository extends JpaRepository<NotificationPreference, String> {
+    List<NotificationPreference> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
+}
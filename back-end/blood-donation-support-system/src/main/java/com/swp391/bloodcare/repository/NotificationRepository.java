@@ -0,0 +1,27 @@
+package com.swp391.bloodcare.repository;
+
+import com.swp391.bloodcare.entity.Notification;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface NotificationRepository extends JpaRepository<Notification, String> {
+
+    Page<Notification> findByAccount_AccountIdOrderByCreatedAtDesc(String accountId, Pageable pageable);
+
+    long countByAccount_AccountIdAndIsReadFalse(String accountId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.id = :id AND n.account.accountId = :accountId AND n.isRead = false")
+    int markRead(@Param("id") String id, @Param("accountId") String accountId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.account.accountId = :accountId AND n.isRead = false")
+    int markAllRead(@Param("accountId") String accountId);
+}
@@ -0,0 +1,7 @@
+package com.swp391.bloodcare.repository;
+
+import com.swp391.bloodcare.entity.NotificationTemplate;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface NotificationTemplateRepository extends JpaRepository<NotificationTemplate, String> {
+}
@@ -1,11 +1,18 @@
 package com.swp391.bloodcare.repository;
 
+import com.swp391.bloodcare.dto.log.NotificationRecipient;
 import com.swp391.bloodcare.entity.Profile;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ProfileRepository extends JpaRepository<Profile, Long> {
 
@@ -20,4 +27,28 @@ public interface ProfileRepository extends JpaRepository<Profile, Long> {
             "LEFT JOIN FETCH a.hospital h " +
             "WHERE a.accountId = :accountId")
     Optional<Profile> findProfileWithDetailsByAccountId(@Param("accountId") String accountId);
+
+    //người nhận thông báo kêu gọi hiến máu: stream (email, name) theo district / nhóm máu,
+    //chỉ account đang hoạt động và đã hết thời gian nghỉ; dùng index (district, blood_code, rest_date).
+    //district so sánh bằng "=" vì collation không phân biệt hoa thường (LOWER() sẽ bỏ qua index).
+    //anyBlood = true -> bỏ lọc nhóm máu (bloodCodes vẫn phải khác rỗng)
+    //sắp theo email (unique) để ghi outbox theo lô và chạy tiếp từ afterEmail (null = từ đầu) nếu bị ngắt giữa chừng
+    //Phải gọi trong transaction và đóng stream sau khi dùng.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.swp391.bloodcare.dto.log.NotificationRecipient(a.email, p.name, p.address.district, p.restDate, a.accountId) " +
+            "FROM Profile p JOIN p.accountId a " +
+            "WHERE a.isActive = true " +
+            "AND (:district IS NULL OR p.address.district = :district) " +
+            "AND (:anyBlood = true OR p.bloodCode.bloodCode IN :bloodCodes) " +
+            "AND (p.restDate IS NULL OR p.restDate <= :eligibleOn) " +
+            "AND (:afterEmail IS NULL OR a.email > :afterEmail) " +
+            "ORDER BY a.email")
+    Stream<NotificationRecipient> streamNotificationRecipients(@Param("district") String district,
+                                                               @Param("anyBlood") boolean anyBlood,
+                                                               @Param("bloodCodes") Collection<Integer> bloodCodes,
+                                                               @Param("eligibleOn") LocalDate eligibleOn,
+                                                               @Param("afterEmail") String afterEmail);
 }
@@ -0,0 +1,33 @@
+package com.swp391.bloodcare.repository;
+
+import com.swp391.bloodcare.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    @Query("SELECT r FROM RefreshToken r JOIN FETCH r.account a LEFT JOIN FETCH a.role WHERE r.tokenHash = :tokenHash")
+    Optional<RefreshToken> findByTokenHash(@Param("tokenHash") String tokenHash);
+
+    //đánh dấu đã dùng, trả về 0 nếu token đã bị dùng / thu hồi trước đó (refresh song song)
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken r SET r.used = true WHERE r.id = :id AND r.used = false AND r.revoked = false")
+    int markUsed(@Param("id") long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.familyId = :familyId")
+    int revokeFamily(@Param("familyId") String familyId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,148 @@
+package com.swp391.bloodcare.service;
+
+import com.swp391.bloodcare.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Bloom filter username/email đã tồn tại, dùng trước existsByUserName/existsByEmail:
+- build lúc khởi động bằng một lần quét bảng account (stream, không load hết vào bộ nhớ)
+- đăng ký / import mới -> add() ngay
+- mightContain = false -> bỏ qua query exists; = true -> vẫn hỏi DB
+Cột username/email dùng collation không phân biệt hoa thường nên key lưu bằng lower-case.
+Unique constraint của DB vẫn là chốt chặn cuối cùng.
+ */
+@Service
+public class AccountExistenceFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountExistenceFilter.class);
+
+    private static final String USERNAME_PREFIX = "u:";
+    private static final String EMAIL_PREFIX = "e:";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${account-filter.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${account-filter.fpp:0.01}")
+    private double fpp;
+
+    // filter đang dùng; null khi chưa build xong -> luôn hỏi DB
+    private volatile BloomFilter filter;
+    // filter đang build, add() ghi vào cả hai để không mất key mới
+    private volatile BloomFilter building;
+
+    private final AtomicLong lastRebuildMillis = new AtomicLong();
+    private Timer rebuildTimer;
+    private Counter negativeChecks;
+    private Counter positiveChecks;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        rebuildTimer = Timer.builder("account_filter.rebuild").register(meterRegistry);
+        negativeChecks = Counter.builder("account_filter.checks").tag("result", "negative").register(meterRegistry);
+        positiveChecks = Counter.builder("account_filter.checks").tag("result", "positive").register(meterRegistry);
+        Gauge.builder("account_filter.size", this, f -> f.filter == null ? 0 : f.filter.getInsertions()).register(meterRegistry);
+        Gauge.builder("account_filter.bits", this, f -> f.filter == null ? 0 : f.filter.getBitSize()).register(meterRegistry);
+        Gauge.builder("account_filter.fpp", this, f -> f.filter == null ? 1.0 : f.filter.expectedFpp()).register(meterRegistry);
+        Gauge.builder("account_filter.rebuild_millis", lastRebuildMillis, AtomicLong::get).register(meterRegistry);
+        rebuild();
+    }
+
+    // build lại định kỳ: filter cũ đầy dần (fpp tăng) và không bỏ được username/email đã xóa
+    @Scheduled(initialDelayString = "${account-filter.rebuild-interval-ms:86400000}",
+            fixedDelayString = "${account-filter.rebuild-interval-ms:86400000}")
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM account", Long.class);
+            //mỗi account 2 key, chừa gấp đôi cho account mới đến lần build sau
+            long capacity = Math.max(expectedInsertions, (count == null ? 0 : count) * 4);
+            BloomFilter next = new BloomFilter(capacity, fpp);
+            building = next;
+
+            //useCursorFetch=true (datasource url) -> MySQL trả từng đợt fetchSize dòng
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement("SELECT username, email FROM account",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(1000);
+                return ps;
+            }, (ResultSet rs) -> {
+                put(next, USERNAME_PREFIX, rs.getString(1));
+                put(next, EMAIL_PREFIX, rs.getString(2));
+            });
+
+            filter = next;
+            long elapsed = System.currentTimeMillis() - start;
+            lastRebuildMillis.set(elapsed);
+            rebuildTimer.record(elapsed, TimeUnit.MILLISECONDS);
+            log.info("Account existence filter rebuilt in {} ms: {} keys, {} bits, fpp {}",
+                    elapsed, next.getInsertions(), next.getBitSize(), String.format("%.5f", next.expectedFpp()));
+        } catch (RuntimeException e) {
+            // giữ filter cũ (hoặc không có filter -> mọi check đều hỏi DB)
+            log.warn("Could not rebuild account existence filter: {}", e.getMessage());
+        } finally {
+            building = null;
+        }
+    }
+
+    public boolean mightContainUsername(String username) {
+        return check(USERNAME_PREFIX, username);
+    }
+
+    public boolean mightContainEmail(String email) {
+        return check(EMAIL_PREFIX, email);
+    }
+
+    // gọi trước khi insert: nếu insert lỗi thì chỉ thêm một dương tính giả, không sai kết quả
+    public void add(String username, String email) {
+        BloomFilter current = filter;
+        BloomFilter next = building;
+        if (current != null) {
+            put(current, USERNAME_PREFIX, username);
+            put(current, EMAIL_PREFIX, email);
+        }
+        if (next != null && next != current) {
+            put(next, USERNAME_PREFIX, username);
+            put(next, EMAIL_PREFIX, email);
+        }
+    }
+
+    private boolean check(String prefix, String value) {
+        BloomFilter current = filter;
+        if (current == null || value == null) {
+            return true;
+        }
+        boolean result = current.mightContain(prefix + value.toLowerCase(Locale.ROOT));
+        (result ? positiveChecks : negativeChecks).increment();
+        return result;
+    }
+
+    private static void put(BloomFilter target, String prefix, String value) {
+        if (value != null) {
+            target.put(prefix + value.toLowerCase(Locale.ROOT));
+        }
+    }
+}
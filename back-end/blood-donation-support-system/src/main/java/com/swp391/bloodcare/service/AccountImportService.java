@@ -0,0 +1,415 @@
+package com.swp391.bloodcare.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.swp391.bloodcare.dto.AddressDTO;
+import com.swp391.bloodcare.dto.account.AccountImportResult;
+import com.swp391.bloodcare.dto.account.AccountRegistrationDTO;
+import com.swp391.bloodcare.entity.Role;
+import com.swp391.bloodcare.util.UuidBinaryConverter;
+import com.swp391.bloodcare.util.UuidV7;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/*
+Import hàng loạt account từ file CSV / NDJSON (danh sách donor của bệnh viện):
+- đọc file theo từng dòng, không load cả file vào bộ nhớ
+- validate từng dòng theo cùng rule với AccountRegistrationDTO
+- mỗi chunk: kiểm tra trùng username/email bằng 1 query IN, băm mật khẩu song song,
+  insert account + profile bằng JDBC batch trong 1 transaction
+- dòng lỗi được ghi vào báo cáo, không dừng cả lần import
+ */
+@Service
+public class AccountImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountImportService.class);
+
+    private static final String DEFAULT_ROLE = "MEMBER";
+
+    private static final List<String> CSV_COLUMNS = List.of(
+            "username", "email", "password", "name", "phone", "dob", "gender",
+            "city", "district", "ward", "street");
+
+    private static final String INSERT_ACCOUNT =
+            "INSERT INTO account (id, username, email, password, is_active, creation_date, role_name) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_PROFILE =
+            "INSERT INTO profile (account_id, name, phone, date_of_birth, gender, city, district, ward, street, " +
+            "number_of_blood_donation, rest_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // account.id là BINARY(16), JDBC phải tự chuyển giống như entity Account
+    private static final UuidBinaryConverter ID_CONVERTER = new UuidBinaryConverter();
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private record ImportRow(int row, AccountRegistrationDTO dto) {
+    }
+
+    private record PreparedRow(ImportRow source, String accountId, String passwordHash) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReferenceDataService referenceDataService;
+
+    @Autowired
+    private AccountExistenceFilter accountExistenceFilter;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DonorEligibilityService donorEligibilityService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${account-import.batch-size:1000}")
+    private int batchSize;
+
+    // 0 = số core
+    @Value("${account-import.hash-threads:0}")
+    private int hashThreads;
+
+    @Value("${account-import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    // chỉ cho chạy một lần import tại một thời điểm
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public AccountImportResult importAccounts(InputStream input, Format format) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Đang có một lần import khác chạy");
+        }
+
+        long start = System.currentTimeMillis();
+        AccountImportResult result = new AccountImportResult();
+        int poolSize = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService hashPool = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "account-import-hash-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Role role = referenceDataService.findRole(DEFAULT_ROLE)
+                    .orElseThrow(() -> new IllegalStateException("Không tìm thấy role mặc định"));
+            Object roleId = entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(role);
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+            Map<String, Integer> columns = null;
+            Set<String> seenUsernames = new HashSet<>();
+            Set<String> seenEmails = new HashSet<>();
+            List<ImportRow> chunk = new ArrayList<>(batchSize);
+
+            String line;
+            int rowNo = 0;
+            while ((line = reader.readLine()) != null) {
+                rowNo++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == Format.CSV && columns == null) {
+                    columns = parseHeader(line);
+                    continue;
+                }
+                result.setTotalRows(result.getTotalRows() + 1);
+
+                AccountRegistrationDTO dto;
+                try {
+                    dto = format == Format.CSV ? parseCsvRow(line, columns) : objectMapper.readValue(line, AccountRegistrationDTO.class);
+                } catch (IOException | IllegalArgumentException | DateTimeParseException e) {
+                    addError(result, rowNo, null, "Dòng không hợp lệ: " + e.getMessage());
+                    continue;
+                }
+
+                String error = validate(dto);
+                if (error == null && !seenUsernames.add(dto.getUsername().toLowerCase(Locale.ROOT))) {
+                    error = "Username bị trùng trong file";
+                }
+                if (error == null && !seenEmails.add(dto.getEmail().toLowerCase(Locale.ROOT))) {
+                    error = "Email bị trùng trong file";
+                }
+                if (error != null) {
+                    addError(result, rowNo, dto.getUsername(), error);
+                    continue;
+                }
+
+                chunk.add(new ImportRow(rowNo, dto));
+                if (chunk.size() >= batchSize) {
+                    processChunk(chunk, roleId, hashPool, tx, result);
+                    chunk = new ArrayList<>(batchSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                processChunk(chunk, roleId, hashPool, tx, result);
+            }
+        } finally {
+            hashPool.shutdownNow();
+            running.set(false);
+        }
+
+        result.setDurationMillis(System.currentTimeMillis() - start);
+        log.info("Account import finished: {} rows, {} imported, {} failed in {} ms",
+                result.getTotalRows(), result.getImported(), result.getFailed(), result.getDurationMillis());
+        //insert bằng JDBC không qua hook của từng account -> build lại index người hiến ở nền
+        if (result.getImported() > 0) {
+            Thread.ofVirtual().name("donor-eligibility-rebuild").start(donorEligibilityService::rebuild);
+        }
+        return result;
+    }
+
+    private void processChunk(List<ImportRow> chunk, Object roleId, ExecutorService hashPool,
+                              TransactionTemplate tx, AccountImportResult result) {
+        //trùng với dữ liệu đã có trong DB: 2 query cho cả chunk,
+        //chỉ hỏi DB những giá trị mà bloom filter không loại được
+        Set<String> existingUsernames = findExisting("username", chunk.stream()
+                .map(r -> r.dto().getUsername())
+                .filter(accountExistenceFilter::mightContainUsername)
+                .toList());
+        Set<String> existingEmails = findExisting("email", chunk.stream()
+                .map(r -> r.dto().getEmail())
+                .filter(accountExistenceFilter::mightContainEmail)
+                .toList());
+
+        List<ImportRow> accepted = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            if (existingUsernames.contains(row.dto().getUsername().toLowerCase(Locale.ROOT))) {
+                addError(result, row.row(), row.dto().getUsername(), "Tài khoản đã tồn tại");
+            } else if (existingEmails.contains(row.dto().getEmail().toLowerCase(Locale.ROOT))) {
+                addError(result, row.row(), row.dto().getUsername(), "Email đã tồn tại");
+            } else {
+                accepted.add(row);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        //băm mật khẩu song song
+        List<Future<String>> hashes = new ArrayList<>(accepted.size());
+        for (ImportRow row : accepted) {
+            String raw = row.dto().getPassword();
+            hashes.add(hashPool.submit(() -> passwordEncoder.encode(raw)));
+        }
+        List<PreparedRow> prepared = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            try {
+                prepared.add(new PreparedRow(accepted.get(i), UuidV7.nextString(), hashes.get(i).get()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Import bị gián đoạn", e);
+            } catch (ExecutionException e) {
+                addError(result, accepted.get(i).row(), accepted.get(i).dto().getUsername(),
+                        "Không băm được mật khẩu: " + e.getCause().getMessage());
+            }
+        }
+
+        for (PreparedRow row : prepared) {
+            accountExistenceFilter.add(row.source().dto().getUsername(), row.source().dto().getEmail());
+        }
+
+        try {
+            tx.executeWithoutResult(status -> insertBatch(prepared, roleId));
+            result.setImported(result.getImported() + prepared.size());
+        } catch (DataAccessException e) {
+            // có dòng lỗi (vd: bị insert song song) -> insert lại từng dòng để tìm dòng lỗi
+            log.warn("Batch insert failed, retrying row by row: {}", e.getMessage());
+            for (PreparedRow row : prepared) {
+                try {
+                    tx.executeWithoutResult(status -> insertBatch(List.of(row), roleId));
+                    result.setImported(result.getImported() + 1);
+                } catch (DataAccessException rowError) {
+                    addError(result, row.source().row(), row.source().dto().getUsername(),
+                            "Không lưu được: " + rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private void insertBatch(List<PreparedRow> rows, Object roleId) {
+        Date today = Date.valueOf(LocalDate.now());
+
+        jdbcTemplate.batchUpdate(INSERT_ACCOUNT, rows, rows.size(), (ps, row) -> {
+            AccountRegistrationDTO dto = row.source().dto();
+            ps.setBytes(1, ID_CONVERTER.convertToDatabaseColumn(row.accountId()));
+            ps.setString(2, dto.getUsername());
+            ps.setString(3, dto.getEmail());
+            ps.setString(4, row.passwordHash());
+            ps.setBoolean(5, true);
+            ps.setDate(6, today);
+            ps.setObject(7, roleId);
+        });
+
+        jdbcTemplate.batchUpdate(INSERT_PROFILE, rows, rows.size(), (ps, row) -> {
+            AccountRegistrationDTO dto = row.source().dto();
+            AddressDTO address = dto.getAddress();
+            ps.setBytes(1, ID_CONVERTER.convertToDatabaseColumn(row.accountId()));
+            ps.setString(2, dto.getName());
+            ps.setString(3, dto.getPhone());
+            ps.setDate(4, new Date(dto.getDob().getTime()));
+            ps.setBoolean(5, dto.isGender());
+            ps.setString(6, address.getCity());
+            ps.setString(7, address.getDistrict());
+            ps.setString(8, address.getWard());
+            ps.setString(9, address.getStreet());
+            ps.setInt(10, 0);
+            //giống registerAccount: ngày nghỉ ngơi = ngày tạo
+            ps.setDate(11, today);
+        });
+    }
+
+    // cột username/email dùng collation không phân biệt hoa thường -> so sánh bằng lower-case
+    private Set<String> findExisting(String column, List<String> values) {
+        if (values.isEmpty()) {
+            return Set.of();
+        }
+        String sql = "SELECT " + column + " FROM account WHERE " + column + " IN (:values)";
+        return namedJdbcTemplate.queryForList(sql, new MapSqlParameterSource("values", values), String.class)
+                .stream()
+                .map(v -> v.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+    }
+
+    private String validate(AccountRegistrationDTO dto) {
+        Set<ConstraintViolation<AccountRegistrationDTO>> violations = validator.validate(dto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.joining(", "));
+    }
+
+    private void addError(AccountImportResult result, int row, String username, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxReportedErrors) {
+            result.getErrors().add(new AccountImportResult.RowError(row, username, message));
+        }
+    }
+
+    private Map<String, Integer> parseHeader(String line) {
+        List<String> header = parseCsvLine(line);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : CSV_COLUMNS) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("Thiếu cột " + required + " trong header CSV");
+            }
+        }
+        return columns;
+    }
+
+    private AccountRegistrationDTO parseCsvRow(String line, Map<String, Integer> columns) {
+        List<String> values = parseCsvLine(line);
+        AccountRegistrationDTO dto = new AccountRegistrationDTO();
+        dto.setUsername(column(values, columns, "username"));
+        dto.setEmail(column(values, columns, "email"));
+        dto.setPassword(column(values, columns, "password"));
+        dto.setName(column(values, columns, "name"));
+        dto.setPhone(column(values, columns, "phone"));
+
+        String dob = column(values, columns, "dob");
+        if (dob != null) {
+            dto.setDob(Date.valueOf(LocalDate.parse(dob)));
+        }
+        String gender = column(values, columns, "gender");
+        dto.setGender("true".equalsIgnoreCase(gender) || "1".equals(gender));
+
+        dto.setAddress(new AddressDTO(
+                column(values, columns, "city"),
+                column(values, columns, "district"),
+                column(values, columns, "ward"),
+                column(values, columns, "street")));
+        return dto;
+    }
+
+    private String column(List<String> values, Map<String, Integer> columns, String name) {
+        int index = columns.get(name);
+        if (index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // CSV đơn giản: dấu phẩy, hỗ trợ "..." và "" bên trong
+    private static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+}
@@ -8,14 +8,15 @@ import com.swp391.bloodcare.entity.Profile;
 import com.swp391.bloodcare.entity.Role;
 import com.swp391.bloodcare.repository.AccountRepository;
 import com.swp391.bloodcare.repository.ProfileRepository;
-import com.swp391.bloodcare.repository.RoleRepository;
+import com.swp391.bloodcare.util.UuidBinaryConverter;
+import com.swp391.bloodcare.util.UuidV7;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.UUID;
+import java.util.Optional;
 
 @Service
 public class AccountService {
@@ -27,42 +28,59 @@ public class AccountService {
     private ProfileRepository profileRepository;
 
     @Autowired
-    private RoleRepository roleRepository;
+    private ReferenceDataService referenceDataService;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private AccountExistenceFilter accountExistenceFilter;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private SecurityEpochService securityEpochService;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private DonorEligibilityService donorEligibilityService;
 
     @Transactional
     public ApiResponse<String> registerAccount(AccountRegistrationDTO accountRegistration) {
         try{
 
-            if(accountRepository.existsByUserName(accountRegistration.getUsername())){
+            //bloom filter trả lời "chắc chắn chưa có" thì không cần query exists
+            if(accountExistenceFilter.mightContainUsername(accountRegistration.getUsername())
+                    && accountRepository.existsByUserName(accountRegistration.getUsername())){
                 return new ApiResponse<>(false,"Tài khoản đã tồn tại",null);
             }
 
-            if(accountRepository.existsByEmail(accountRegistration.getEmail())){
+            if(accountExistenceFilter.mightContainEmail(accountRegistration.getEmail())
+                    && accountRepository.existsByEmail(accountRegistration.getEmail())){
                 return new ApiResponse<>(false,"Email đã tồn tại",null);
             }
 
 
 
             Account account = new Account();
-            account.setAccountId(UUID.randomUUID().toString());
+            account.setAccountId(UuidV7.nextString());
             account.setUserName(accountRegistration.getUsername());
             account.setEmail(accountRegistration.getEmail());
-            account.setPassword(passwordEncoder.encode(accountRegistration.getPassword()));
+            account.setPassword(passwordHashingService.encode(accountRegistration.getPassword()));
             account.setActive(true);
             account.setCreationDate(LocalDate.now());
 
 
             //set role
-            Role role = roleRepository.findByRole("MEMBER")
+            Role role = referenceDataService.findRole("MEMBER")
                     .orElseThrow(() -> new RuntimeException("Không tìm thấy role mặc định"));
             account.setRole(role);
 
 
 
-            Account savedAccount = accountRepository.save(account);
+            accountExistenceFilter.add(account.getUserName(), account.getEmail());
+            //flush ngay để lỗi trùng username/email (đăng ký song song) bắn ra trong try
+            Account savedAccount = accountRepository.saveAndFlush(account);
 
             //tạo profile
             Profile profile = new Profile();
@@ -86,13 +104,62 @@ public class AccountService {
             profile.setRestDate(LocalDate.now());
 
             profileRepository.save(profile);
+            donorEligibilityService.refresh(savedAccount.getAccountId());
 
             return new ApiResponse<>(true,"Đăng ký tài khoản thành công!", savedAccount.getAccountId());
 
 
 
+        }catch(PasswordHashingOverloadedException | DataIntegrityViolationException e){
+            throw e;
         }catch(Exception e){
             return new ApiResponse<>(false, "Có lỗi xảy ra: " + e.getMessage(), null);
         }
     }
+
+    //khóa / mở khóa tài khoản
+    @Transactional
+    public ApiResponse<String> updateAccountStatus(String accountId, boolean active) {
+        //id sai định dạng (từ URL) coi như không tồn tại, không để converter ném lỗi 500
+        Optional<Account> accountOpt = UuidBinaryConverter.isUuid(accountId)
+                ? accountRepository.findById(accountId) : Optional.empty();
+        if (accountOpt.isEmpty()) {
+            return new ApiResponse<>(false, "Không tồn tại tài khoản", null);
+        }
+
+        Account account = accountOpt.get();
+        account.setActive(active);
+        accountRepository.save(account);
+
+        //token cũ hết hiệu lực ngay
+        securityEpochService.bump(accountId);
+        userDetailsService.evict(account.getUserName());
+        donorEligibilityService.refresh(accountId);
+        return new ApiResponse<>(true, "Cập nhật trạng thái tài khoản thành công", accountId);
+    }
+
+    //đổi role tài khoản
+    @Transactional
+    public ApiResponse<String> updateAccountRole(String accountId, String roleName) {
+        //id sai định dạng (từ URL) coi như không tồn tại, không để converter ném lỗi 500
+        Optional<Account> accountOpt = UuidBinaryConverter.isUuid(accountId)
+                ? accountRepository.findById(accountId) : Optional.empty();
+        if (accountOpt.isEmpty()) {
+            return new ApiResponse<>(false, "Không tồn tại tài khoản", null);
+        }
+
+        Optional<Role> roleOpt = referenceDataService.findRole(roleName);
+        if (roleOpt.isEmpty()) {
+            return new ApiResponse<>(false, "Không tồn tại role: " + roleName, null);
+        }
+
+        Account account = accountOpt.get();
+        account.setRole(roleOpt.get());
+        accountRepository.save(account);
+
+        //token cũ mang role cũ -> buộc đăng nhập lại
+        securityEpochService.bump(accountId);
+        userDetailsService.evict(account.getUserName());
+        return new ApiResponse<>(true, "Cập nhật role thành công", accountId);
+    }
 }
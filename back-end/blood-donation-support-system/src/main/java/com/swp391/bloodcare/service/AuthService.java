@@ -7,8 +7,9 @@ import com.swp391.bloodcare.entity.Account;
 
 import com.swp391.bloodcare.repository.AccountRepository;
 import com.swp391.bloodcare.util.JwtUtil;
+import com.swp391.bloodcare.util.VerifiedToken;
+import io.jsonwebtoken.ExpiredJwtException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -16,6 +17,7 @@ import java.util.*;
 /*
 Các chức năng xử lý trong AuthService:
 - Login/Logout
+- Refresh token
 - Tìm kiếm tất cả Account
  */
 @Service
@@ -28,7 +30,16 @@ public class AuthService  {
     private JwtUtil jwtUtil;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private SecurityEpochService securityEpochService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
 
 
 
@@ -41,12 +52,12 @@ public class AuthService  {
 
             }
 
-           Optional<Account> accountOtp = accountRepository.findByUserName(loginRequest.getUsername());
-
-
-            if(accountOtp.isEmpty()){
-                accountOtp = accountRepository.findByEmail(loginRequest.getUsername());
-            }
+            //một query cho cả username và email, ưu tiên khớp username
+            List<Account> matches = accountRepository.findByUserNameOrEmail(loginRequest.getUsername());
+            Optional<Account> accountOtp = matches.stream()
+                    .filter(a -> loginRequest.getUsername().equals(a.getUserName()))
+                    .findFirst()
+                    .or(() -> matches.stream().findFirst());
 
             if(accountOtp.isEmpty()){
                 return new LoginResponse(null,"User not found", null, null);
@@ -60,35 +71,67 @@ public class AuthService  {
             }
 
             // kiểm tra password
-            if(!passwordEncoder.matches(loginRequest.getPassword(), account.getPassword())){
+            if(!passwordHashingService.matches(loginRequest.getPassword(), account.getPassword())){
                 return new LoginResponse(null,"Wrong password", null, null);
             }
 //            if(!loginRequest.getPassword().equals(account.getPassword())){
 //                return new LoginResponse(null,"Password is incorrect", null, null);
 //            }
 
-            //tạo jwt token
-            String token = jwtUtil.generateToken(account.getUserName());
-
-            return new LoginResponse(token,"Login successful", account.getUserName(),account.getRole().getRole());
+            //tạo access token + refresh token
+            return issueTokens(account, refreshTokenService.issue(account), "Login successful");
+        }catch (PasswordHashingOverloadedException e) {
+            throw e;
         }catch (Exception e) {
             return new LoginResponse(null, "Login failed: " + e.getMessage(), null, null);
         }
     }
 
-    public String logout(String token) {
+    //cấp access token mới từ refresh token, không cần kiểm tra mật khẩu
+    public LoginResponse refresh(String refreshToken) {
+        Optional<RefreshTokenService.Rotation> rotation = refreshTokenService.rotate(refreshToken);
+        if (rotation.isEmpty()) {
+            return new LoginResponse(null, "Invalid refresh token", null, null);
+        }
+
+        Account account = rotation.get().account();
+        if (!account.isActive()) {
+            refreshTokenService.revoke(rotation.get().refreshToken());
+            return new LoginResponse(null, "Account is not active", null, null);
+        }
+        return issueTokens(account, rotation.get().refreshToken(), "Refresh successful");
+    }
+
+    public String logout(String token, String refreshToken) {
+        try {
+            VerifiedToken verified = jwtUtil.verifyToken(token);
+            tokenRevocationService.revoke(verified.tokenId(), verified.expiration());
+        } catch (ExpiredJwtException e) {
+            // token đã hết hạn thì không cần thu hồi
+        }
+        refreshTokenService.revoke(refreshToken);
         return "logout successful";
     }
 
     public boolean validateToken(String token) {
         try{
-            String username = jwtUtil.extractUsername(token);
-            return jwtUtil.validateToken(token, username);
+            // verifyToken ném exception nếu sai chữ ký hoặc hết hạn
+            VerifiedToken verified = jwtUtil.verifyToken(token);
+            String accountId = verified.claims().get(JwtUtil.CLAIM_ACCOUNT_ID, String.class);
+            return verified.subject() != null
+                    && !tokenRevocationService.isRevoked(verified.tokenId())
+                    && securityEpochService.isCurrent(accountId, verified.claims().getIssuedAt());
         }catch(Exception e){
             return false;
         }
     }
 
+    private LoginResponse issueTokens(Account account, String refreshToken, String message) {
+        String role = account.getRole().getRole();
+        String token = jwtUtil.generateToken(account.getUserName(), account.getAccountId(), role);
+        return new LoginResponse(token, message, account.getUserName(), role, refreshToken);
+    }
+
     public List<Account> getAllAccounts() {
         return accountRepository.findAll();
     }
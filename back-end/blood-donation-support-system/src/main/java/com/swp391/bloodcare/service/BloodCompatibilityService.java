@@ -0,0 +1,131 @@
+package com.swp391.bloodcare.service;
+
+import com.swp391.bloodcare.entity.Blood;
+import com.swp391.bloodcare.entity.BloodRequest;
+import com.swp391.bloodcare.util.BloodCompatibility;
+import com.swp391.bloodcare.util.BloodCompatibility.ComponentKind;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/*
+Tương thích nhóm máu trên dữ liệu thật (bảng blood trong ReferenceDataService), thay cho cột chữ blood_match:
+- mỗi mã máu -> (nhóm 0..7, loại chế phẩm); loại lấy theo từ khóa trong id của Component,
+  không có Component -> máu toàn phần, không đoán được -> blood-compatibility.default-component
+- "mã tồn kho nào cấp được cho yêu cầu này" / "người hiến nhóm nào cho được bệnh nhân này"
+  = một bitmask tra sẵn + test bit cho từng mã máu
+- số tồn lấy từ BloodInventoryLedger (snapshot tham chiếu có thể cũ tới một chu kỳ refresh)
+ */
+@Service
+public class BloodCompatibilityService {
+
+    @Autowired
+    private ReferenceDataService referenceDataService;
+
+    @Autowired
+    private BloodInventoryLedger bloodInventoryLedger;
+
+    @Value("${blood-compatibility.default-component:RED_CELLS}")
+    private ComponentKind defaultKind;
+
+    //-1 nếu mã máu thiếu nhóm / Rh
+    public int groupOf(Blood blood) {
+        if (blood.getBloodType() == null || blood.getRh() == null) {
+            return -1;
+        }
+        return BloodCompatibility.groupIndex(blood.getBloodType().ordinal(), blood.getRh() == Blood.RhFactor.NEGATIVE);
+    }
+
+    public ComponentKind kindOf(Blood blood) {
+        if (blood.getComponent() == null) {
+            return ComponentKind.WHOLE_BLOOD;
+        }
+        ComponentKind kind = ComponentKind.fromKeyword(referenceDataService.componentKey(blood));
+        return kind == null ? defaultKind : kind;
+    }
+
+    // tên loại chế phẩm (không phân biệt hoa thường), null -> mặc định; sai -> IllegalArgumentException
+    public ComponentKind parseKind(String value) {
+        if (value == null || value.isBlank()) {
+            return defaultKind;
+        }
+        try {
+            return ComponentKind.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            ComponentKind kind = ComponentKind.fromKeyword(value);
+            if (kind == null) {
+                throw new IllegalArgumentException("Loại chế phẩm không hợp lệ: " + value);
+            }
+            return kind;
+        }
+    }
+
+    /*
+    Mã máu của người hiến cho được bệnh nhân nhóm recipientGroup (chế phẩm kind),
+    dùng lọc Profile.bloodCode khi tìm người hiến; không xét chế phẩm của mã máu người hiến.
+     */
+    public Set<Integer> donorBloodCodes(int recipientGroup, ComponentKind kind) {
+        int mask = BloodCompatibility.donorMask(kind, recipientGroup);
+        Set<Integer> codes = new HashSet<>();
+        for (Blood blood : referenceDataService.getBloods()) {
+            int group = groupOf(blood);
+            if (group >= 0 && BloodCompatibility.contains(mask, group)) {
+                codes.add(blood.getBloodCode());
+            }
+        }
+        return codes;
+    }
+
+    /*
+    Mã tồn kho cấp được cho bệnh nhân, theo thứ tự nên dùng:
+    cùng nhóm trước, rồi nhóm cho được ít người nhận hơn (giữ O- / AB huyết tương cho ca không còn lựa chọn),
+    cùng mức thì mã còn nhiều hơn trước. Chỉ lấy mã còn ít nhất minQuantity.
+     */
+    public List<Blood> findCompatibleInventory(int recipientGroup, ComponentKind kind, int minQuantity) {
+        List<Blood> result = new ArrayList<>();
+        for (Blood blood : compatibleBloods(recipientGroup, kind)) {
+            if (bloodInventoryLedger.quantity(blood.getBloodCode()) >= Math.max(1, minQuantity)) {
+                result.add(blood);
+            }
+        }
+        result.sort(Comparator
+                .comparing((Blood blood) -> groupOf(blood) != recipientGroup)
+                .thenComparingInt(blood -> Integer.bitCount(BloodCompatibility.recipientMask(kind, groupOf(blood))))
+                .thenComparing(Comparator.comparingLong((Blood blood) -> bloodInventoryLedger.quantity(blood.getBloodCode())).reversed()));
+        return result;
+    }
+
+    //mọi mã máu cùng loại chế phẩm cho được bệnh nhân, cùng nhóm trước rồi nhóm khan hiếm hơn để sau (không xét tồn kho)
+    public List<Blood> compatibleBloods(int recipientGroup, ComponentKind kind) {
+        int mask = BloodCompatibility.donorMask(kind, recipientGroup);
+        List<Blood> result = new ArrayList<>();
+        for (Blood blood : referenceDataService.getBloods()) {
+            int group = groupOf(blood);
+            if (group >= 0 && BloodCompatibility.contains(mask, group) && kindOf(blood) == kind) {
+                result.add(blood);
+            }
+        }
+        result.sort(Comparator
+                .comparing((Blood blood) -> groupOf(blood) != recipientGroup)
+                .thenComparingInt(blood -> Integer.bitCount(BloodCompatibility.recipientMask(kind, groupOf(blood)))));
+        return result;
+    }
+
+    //nhóm + chế phẩm lấy từ mã máu của yêu cầu
+    public List<Blood> findCompatibleInventory(BloodRequest request) {
+        Blood wanted = request.getBloodCode();
+        if (wanted == null || groupOf(wanted) < 0) {
+            throw new IllegalArgumentException("Yêu cầu máu chưa có nhóm máu hợp lệ");
+        }
+        return findCompatibleInventory(groupOf(wanted), kindOf(wanted), request.getQuatity());
+    }
+
+    public boolean canDonate(Blood donor, Blood recipient) {
+        int donorGroup = groupOf(donor);
+        int recipientGroup = groupOf(recipient);
+        return donorGroup >= 0 && recipientGroup >= 0
+                && BloodCompatibility.canDonate(kindOf(recipient), donorGroup, recipientGroup);
+    }
+}
@@ -0,0 +1,405 @@
+package com.swp391.bloodcare.service;
+
+import com.swp391.bloodcare.entity.Blood;
+import com.swp391.bloodcare.entity.BloodInventoryCheckpoint;
+import com.swp391.bloodcare.repository.BloodInventoryCheckpointRepository;
+import com.swp391.bloodcare.util.DeltaLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/*
+Tồn kho máu (Blood.quantity / Blood.volumn): nhập kho ghi trong bộ nhớ + nhật ký, xuất kho kiểm tra ngay trong DB:
+- nhập kho (delta không âm): ghi vào DeltaLog (file, group commit) rồi cộng vào phần chưa ghi DB (LongAdder),
+  trả về khi delta đã xuống đĩa; ghi nhật ký lỗi -> bỏ delta khỏi bộ nhớ rồi ném lỗi cho caller
+- xuất kho (có delta âm): "UPDATE blood ... WHERE quantity + ? >= 0 AND volumn + ? >= 0" trong transaction riêng,
+  DB là nơi duy nhất quyết định còn đủ hàng -> chạy nhiều instance cũng không xuất quá;
+  bị từ chối mà node này còn phần nhập chưa ghi DB thì flush rồi thử lại một lần
+- flush() mỗi blood-inventory.flush-interval-ms: gom phần nhập theo mã máu, một transaction
+  "UPDATE blood SET quantity = quantity + ?" theo batch + checkpoint của node (seq cuối đã vào DB), xóa segment nhật ký cũ,
+  rồi đọc lại số tồn từ DB (gồm cả nhập / xuất của node khác)
+- mỗi thư mục nhật ký là một node: id lưu trong file node-id (dòng checkpoint riêng), khóa file node.lock
+  để hai process không dùng chung thư mục; khởi động phát lại nhật ký sau checkpoint của node vào DB rồi mới load số tồn
+- ghi DB bằng JDBC nên phải evict Blood trong L2 cache sau mỗi lần ghi
+Số tồn đọc từ node này có thể chưa thấy thay đổi của node khác tới một chu kỳ flush.
+ */
+@Service
+public class BloodInventoryLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(BloodInventoryLedger.class);
+
+    private static final String UPDATE_BLOOD =
+            "UPDATE blood SET quantity = quantity + ?, volumn = volumn + ? WHERE blood_code = ?";
+    private static final String ISSUE_BLOOD =
+            "UPDATE blood SET quantity = quantity + ?, volumn = volumn + ? "
+                    + "WHERE blood_code = ? AND quantity + ? >= 0 AND volumn + ? >= 0";
+    private static final String NODE_ID_FILE = "node-id";
+    private static final String LOCK_FILE = "node.lock";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BloodInventoryCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${blood-inventory.wal-dir:data/inventory-wal}")
+    private String walDir;
+
+    @Value("${blood-inventory.wal-segment-bytes:8388608}")
+    private long segmentBytes;
+
+    @Value("${blood-inventory.wal-buffer-records:4096}")
+    private int bufferRecords;
+
+    @Value("${blood-inventory.wal-sync:true}")
+    private boolean walSync;
+
+    private final Map<Integer, Stock> stocks = new ConcurrentHashMap<>();
+    // nhập / xuất giữ read lock (nhiều thread cùng lúc), flush giữ write lock khi chụp phần chưa ghi + seq và khi đọc lại DB
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    private DeltaLog deltaLog;
+    private FileChannel lockChannel;
+    private int nodeId;
+    private TransactionTemplate tx;
+    private TransactionTemplate issueTx;
+    private long checkpointSeq;
+    private Counter flushedCounter;
+    private Counter failedFlushCounter;
+    private Counter rejectedCounter;
+
+    //một mã máu: số trong DB lần đọc cuối (cộng các lần xuất của node này), phần nhập đang flush và chưa ghi DB
+    private static final class Stock {
+        private final AtomicLong quantity = new AtomicLong();
+        private final AtomicLong volume = new AtomicLong();
+        private final LongAdder flushingQuantity = new LongAdder();
+        private final LongAdder flushingVolume = new LongAdder();
+        private final LongAdder pendingQuantity = new LongAdder();
+        private final LongAdder pendingVolume = new LongAdder();
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        tx = new TransactionTemplate(transactionManager);
+        //xuất kho commit ngay, không phụ thuộc transaction của caller (giống delta nhập kho đã xuống nhật ký)
+        issueTx = new TransactionTemplate(transactionManager);
+        issueTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        flushedCounter = Counter.builder("blood_inventory.flushed_rows").register(meterRegistry);
+        failedFlushCounter = Counter.builder("blood_inventory.flush_failures").register(meterRegistry);
+        rejectedCounter = Counter.builder("blood_inventory.rejected").register(meterRegistry);
+        Gauge.builder("blood_inventory.pending_codes", this, BloodInventoryLedger::countPendingCodes).register(meterRegistry);
+
+        Path directory = Path.of(walDir);
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (lockChannel.tryLock() == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Thư mục nhật ký tồn kho đang được process khác dùng: " + directory.toAbsolutePath());
+        }
+        nodeId = loadNodeId(directory);
+
+        deltaLog = new DeltaLog(directory, segmentBytes, bufferRecords, walSync);
+        checkpointSeq = checkpointRepository.findById(nodeId)
+                .map(BloodInventoryCheckpoint::getLastSeq)
+                .orElse(0L);
+
+        //delta đã xác nhận nhưng chưa kịp vào DB trước lần tắt / crash trước
+        Map<Integer, long[]> replayed = new HashMap<>();
+        long lastSeq = deltaLog.replay(checkpointSeq, entry -> {
+            long[] delta = replayed.computeIfAbsent(entry.key(), k -> new long[2]);
+            delta[0] += entry.first();
+            delta[1] += entry.second();
+        });
+        if (lastSeq > checkpointSeq) {
+            writeDeltas(replayed, lastSeq);
+            log.info("Replayed blood inventory log of node {}: {} blood codes up to seq {}", nodeId, replayed.size(), lastSeq);
+        }
+        deltaLog.start(lastSeq);
+        deltaLog.truncate(checkpointSeq);
+
+        jdbcTemplate.query("SELECT blood_code, quantity, volumn FROM blood", rs -> {
+            Stock stock = new Stock();
+            stock.quantity.set(rs.getLong(2));
+            stock.volume.set(rs.getLong(3));
+            stocks.put(rs.getInt(1), stock);
+        });
+        evictBloodCache(stocks.keySet());
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException {
+        flush();
+        deltaLog.close();
+        lockChannel.close();
+    }
+
+    public long quantity(int bloodCode) {
+        Stock stock = stock(bloodCode);
+        return stock.quantity.get() + stock.flushingQuantity.sum() + stock.pendingQuantity.sum();
+    }
+
+    public long volume(int bloodCode) {
+        Stock stock = stock(bloodCode);
+        return stock.volume.get() + stock.flushingVolume.sum() + stock.pendingVolume.sum();
+    }
+
+    /*
+    Nhập (delta dương) / xuất (delta âm) kho cho một mã máu.
+    Nhập kho trả về sau khi delta đã nằm trong nhật ký trên đĩa, xuất kho sau khi DB đã trừ.
+    false nếu xuất quá số đang có; mã máu không tồn tại -> IllegalArgumentException.
+     */
+    public boolean apply(int bloodCode, long quantityDelta, long volumeDelta) {
+        Stock stock = stock(bloodCode);
+        if (quantityDelta < 0 || volumeDelta < 0) {
+            if (issue(bloodCode, stock, quantityDelta, volumeDelta)) {
+                return true;
+            }
+            //DB chưa có phần nhập kho của node này (hoặc đang flush dở) -> chờ ghi xong rồi thử lại
+            if (stock.pendingQuantity.sum() + stock.flushingQuantity.sum() > 0
+                    || stock.pendingVolume.sum() + stock.flushingVolume.sum() > 0) {
+                flush();
+                if (issue(bloodCode, stock, quantityDelta, volumeDelta)) {
+                    return true;
+                }
+            }
+            rejectedCounter.increment();
+            return false;
+        }
+
+        long seq;
+        flushLock.readLock().lock();
+        try {
+            seq = deltaLog.append(bloodCode, quantityDelta, volumeDelta);
+            stock.pendingQuantity.add(quantityDelta);
+            stock.pendingVolume.add(volumeDelta);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        try {
+            deltaLog.awaitDurable(seq);
+        } catch (RuntimeException e) {
+            //caller nhận lỗi thì delta không được tính; flush nào đã kịp ghi nó thì lần flush sau ghi bù phần âm
+            flushLock.readLock().lock();
+            try {
+                stock.pendingQuantity.add(-quantityDelta);
+                stock.pendingVolume.add(-volumeDelta);
+            } finally {
+                flushLock.readLock().unlock();
+            }
+            throw e;
+        }
+        return true;
+    }
+
+    //ghi lỗi thì trả phần đã chụp lại vào pending, lần sau ghi tiếp
+    @Scheduled(fixedDelayString = "${blood-inventory.flush-interval-ms:200}")
+    public synchronized void flush() {
+        Map<Integer, long[]> deltas = new HashMap<>();
+        long seq;
+        flushLock.writeLock().lock();
+        try {
+            seq = deltaLog.lastSeq();
+            stocks.forEach((code, stock) -> {
+                long quantity = stock.pendingQuantity.sumThenReset();
+                long volume = stock.pendingVolume.sumThenReset();
+                if (quantity != 0 || volume != 0) {
+                    stock.flushingQuantity.add(quantity);
+                    stock.flushingVolume.add(volume);
+                    deltas.put(code, new long[]{quantity, volume});
+                }
+            });
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+
+        if (seq != checkpointSeq || !deltas.isEmpty()) {
+            try {
+                writeDeltas(deltas, seq);
+            } catch (RuntimeException e) {
+                flushLock.writeLock().lock();
+                try {
+                    deltas.forEach((code, delta) -> {
+                        Stock stock = stocks.get(code);
+                        stock.flushingQuantity.add(-delta[0]);
+                        stock.flushingVolume.add(-delta[1]);
+                        stock.pendingQuantity.add(delta[0]);
+                        stock.pendingVolume.add(delta[1]);
+                    });
+                } finally {
+                    flushLock.writeLock().unlock();
+                }
+                failedFlushCounter.increment();
+                log.warn("Could not flush blood inventory ({} blood codes): {}", deltas.size(), e.getMessage());
+                return;
+            }
+            checkpointSeq = seq;
+            flushedCounter.increment(deltas.size());
+            evictBloodCache(deltas.keySet());
+            try {
+                deltaLog.truncate(seq);
+            } catch (IOException e) {
+                log.warn("Could not truncate blood inventory log: {}", e.getMessage());
+            }
+        }
+        reload(deltas);
+    }
+
+    //đọc lại số tồn trong DB dưới write lock: không có lần xuất nào của node này đang dở giữa DB và bộ nhớ
+    private void reload(Map<Integer, long[]> flushed) {
+        flushLock.writeLock().lock();
+        try {
+            try {
+                jdbcTemplate.query("SELECT blood_code, quantity, volumn FROM blood", rs -> {
+                    Stock stock = stocks.get(rs.getInt(1));
+                    if (stock != null) {
+                        stock.quantity.set(rs.getLong(2));
+                        stock.volume.set(rs.getLong(3));
+                    }
+                });
+            } catch (RuntimeException e) {
+                //phần vừa flush đã nằm trong DB, cộng thẳng vào số đã biết
+                flushed.forEach((code, delta) -> {
+                    Stock stock = stocks.get(code);
+                    stock.quantity.addAndGet(delta[0]);
+                    stock.volume.addAndGet(delta[1]);
+                });
+                log.warn("Could not reload blood inventory: {}", e.getMessage());
+            }
+            flushed.forEach((code, delta) -> {
+                Stock stock = stocks.get(code);
+                stock.flushingQuantity.add(-delta[0]);
+                stock.flushingVolume.add(-delta[1]);
+            });
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    //trừ trong DB nếu còn đủ; read lock giữ DB và bộ nhớ đổi cùng nhau so với reload()
+    private boolean issue(int bloodCode, Stock stock, long quantityDelta, long volumeDelta) {
+        flushLock.readLock().lock();
+        try {
+            Integer updated = issueTx.execute(status -> jdbcTemplate.update(ISSUE_BLOOD,
+                    quantityDelta, volumeDelta, bloodCode, quantityDelta, volumeDelta));
+            if (updated == null || updated == 0) {
+                return false;
+            }
+            stock.quantity.addAndGet(quantityDelta);
+            stock.volume.addAndGet(volumeDelta);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        evictBloodCache(List.of(bloodCode));
+        return true;
+    }
+
+    //thư mục đã có nhật ký từ trước khi có file node-id -> dòng checkpoint cũ (id 1)
+    private int loadNodeId(Path directory) throws IOException {
+        Path file = directory.resolve(NODE_ID_FILE);
+        if (Files.exists(file)) {
+            return Integer.parseInt(Files.readString(file).trim());
+        }
+        boolean legacy;
+        try (Stream<Path> entries = Files.list(directory)) {
+            legacy = entries.anyMatch(path -> path.getFileName().toString().startsWith("delta-"));
+        }
+        int id = BloodInventoryCheckpoint.LEGACY_ID;
+        if (!legacy) {
+            do {
+                id = ThreadLocalRandom.current().nextInt(BloodInventoryCheckpoint.LEGACY_ID + 1, Integer.MAX_VALUE);
+            } while (checkpointRepository.existsById(id));
+        }
+        Files.writeString(file, Integer.toString(id));
+        return id;
+    }
+
+    //cộng delta vào bảng blood và lưu checkpoint trong cùng một transaction
+    private void writeDeltas(Map<Integer, long[]> deltas, long seq) {
+        List<Map.Entry<Integer, long[]>> rows = new ArrayList<>(deltas.entrySet());
+        tx.executeWithoutResult(status -> {
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_BLOOD, rows, rows.size(), (ps, row) -> {
+                    ps.setLong(1, row.getValue()[0]);
+                    ps.setLong(2, row.getValue()[1]);
+                    ps.setInt(3, row.getKey());
+                });
+            }
+            checkpointRepository.save(new BloodInventoryCheckpoint(nodeId, seq, LocalDateTime.now()));
+        });
+    }
+
+    //mã máu thêm sau khi khởi động -> load lần đầu dùng tới
+    private Stock stock(int bloodCode) {
+        Stock stock = stocks.computeIfAbsent(bloodCode, code -> {
+            List<long[]> found = jdbcTemplate.query("SELECT quantity, volumn FROM blood WHERE blood_code = ?",
+                    (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2)}, code);
+            if (found.isEmpty()) {
+                return null;
+            }
+            Stock loaded = new Stock();
+            loaded.quantity.set(found.get(0)[0]);
+            loaded.volume.set(found.get(0)[1]);
+            return loaded;
+        });
+        if (stock == null) {
+            throw new IllegalArgumentException("Không tồn tại mã máu: " + bloodCode);
+        }
+        return stock;
+    }
+
+    private void evictBloodCache(Iterable<Integer> bloodCodes) {
+        for (Integer bloodCode : bloodCodes) {
+            entityManager.getEntityManagerFactory().getCache().evict(Blood.class, bloodCode);
+        }
+    }
+
+    private double countPendingCodes() {
+        int count = 0;
+        for (Stock stock : stocks.values()) {
+            if (stock.pendingQuantity.sum() != 0 || stock.pendingVolume.sum() != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -1,30 +1,105 @@
 package com.swp391.bloodcare.service;
 
-import com.swp391.bloodcare.entity.Account;
+import com.swp391.bloodcare.dto.log.BloodNotificationRequest;
+import com.swp391.bloodcare.dto.log.NotificationRecipient;
 import com.swp391.bloodcare.entity.Blood;
-import com.swp391.bloodcare.repository.AccountRepository;
-import com.swp391.bloodcare.repository.BloodRepository;
+import com.swp391.bloodcare.repository.ProfileRepository;
+import com.swp391.bloodcare.util.BloodCompatibility;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class BloodNotificationService {
 
+    //bloodCodes = null -> mọi nhóm máu
+    public record RecipientFilter(String district, Set<Integer> bloodCodes, LocalDate eligibleOn) {
+    }
+
     @Autowired
-    private AccountRepository accountRepository;
+    private ProfileRepository profileRepository;
 
     @Autowired
-    private EmailSender emailSender;
+    private ReferenceDataService referenceDataService;
 
     @Autowired
-    private BloodRepository bloodRepository;
+    private NotificationPreferenceService notificationPreferenceService;
+
+    //kiểm tra request trước khi tạo job, nhóm máu sai -> IllegalArgumentException
+    public RecipientFilter buildFilter(BloodNotificationRequest request) {
+        String district = request.getDistrict() == null || request.getDistrict().isBlank()
+                ? null : request.getDistrict().trim();
+
+        Set<Integer> bloodCodes = null;
+        List<String> groups = request.getBloodGroups();
+        if (groups != null && !groups.isEmpty()) {
+            bloodCodes = new HashSet<>();
+            for (String group : groups) {
+                bloodCodes.addAll(resolveBloodCodes(group));
+            }
+        }
+        return new RecipientFilter(district, bloodCodes, LocalDate.now());
+    }
 
+    //đọc người nhận theo kiểu stream, chỉ các cột cần gửi; bỏ người đã hủy đăng ký / tắt mọi kênh,
+    //đánh dấu kênh và giờ yên lặng theo tùy chọn (không query thêm); trả về số người nhận.
+    //Người nhận theo email tăng dần, chỉ các email > afterEmail (null = từ đầu)
+    @Transactional(readOnly = true)
+    public int forEachRecipient(RecipientFilter filter, String afterEmail, Consumer<NotificationRecipient> consumer) {
+        if (filter.bloodCodes() != null && filter.bloodCodes().isEmpty()) {
+            return 0;
+        }
+        boolean anyBlood = filter.bloodCodes() == null;
+        //IN () rỗng là SQL sai, khi không lọc nhóm máu thì truyền giá trị giả
+        Set<Integer> bloodCodes = anyBlood ? Set.of(-1) : filter.bloodCodes();
+
+        int count = 0;
+        LocalDateTime now = LocalDateTime.now();
+        try (Stream<NotificationRecipient> recipients = profileRepository.streamNotificationRecipients(
+                filter.district(), anyBlood, bloodCodes, filter.eligibleOn(), afterEmail)) {
+            for (NotificationRecipient recipient : (Iterable<NotificationRecipient>) recipients::iterator) {
+                if (!notificationPreferenceService.applyTo(recipient, now)) {
+                    continue;
+                }
+                consumer.accept(recipient);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //"A+", "O-", "AB" (mọi Rh) -> các blood_code tương ứng, tra trong bộ nhớ
+    private Set<Integer> resolveBloodCodes(String group) {
+        String value = group == null ? "" : group.replace(" ", "");
+        int mask;
+        try {
+            if (value.endsWith("+") || value.endsWith("-")) {
+                mask = 1 << BloodCompatibility.parseGroup(value);
+            } else {
+                mask = 1 << BloodCompatibility.parseGroup(value + "+") | 1 << BloodCompatibility.parseGroup(value + "-");
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Nhóm máu không hợp lệ: " + group);
+        }
 
-    public void sendEmailToAccounts(List<Account> accounts, String subject, String body) {
-        for (Account account : accounts) {
-            String to = account.getEmail();
-            emailSender.sendSimpleEmail(to, subject, body);
+        Set<Integer> codes = new HashSet<>();
+        for (Blood blood : referenceDataService.getBloods()) {
+            if (blood.getBloodType() == null || blood.getRh() == null) {
+                continue;
+            }
+            int bloodGroup = BloodCompatibility.groupIndex(blood.getBloodType().ordinal(), blood.getRh() == Blood.RhFactor.NEGATIVE);
+            if (BloodCompatibility.contains(mask, bloodGroup)) {
+                codes.add(blood.getBloodCode());
+            }
         }
+        return codes;
     }
 }
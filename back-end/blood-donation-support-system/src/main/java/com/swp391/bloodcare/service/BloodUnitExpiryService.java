@@ -0,0 +1,246 @@
+package com.swp391.bloodcare.service;
+
+import com.swp391.bloodcare.entity.Blood;
+import com.swp391.bloodcare.util.HashedTimingWheel;
+import com.swp391.bloodcare.util.UuidBinaryConverter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+Chuyển túi máu sang EXPIRED đúng lúc hết hạn, không quét cả bảng blood_unit:
+- hai tầng: DB (index status + expires_at) là tầng thô, chỉ nạp các túi hết hạn trong blood-unit.expiry.window-ms tới;
+  HashedTimingWheel là tầng mịn (độ chính xác tick-ms), nạp thêm cửa sổ kế tiếp mỗi refill-interval-ms
+- khởi động lại: đọc theo index "status = AVAILABLE AND expires_at <= now + window" (gồm cả túi quá hạn lúc app tắt)
+- túi nhập mới hết hạn trong cửa sổ đã nạp -> BloodUnitService gọi schedule() sau khi lưu
+- wheel chỉ đẩy unit_id vào hàng đợi; drain() đổi trạng thái theo lô nhỏ (batch-size túi / transaction):
+  SELECT ... FOR UPDATE các túi còn AVAILABLE rồi UPDATE đúng các túi đó -> lần xuất kho chạy cùng lúc
+  hoặc thắng (USED) hoặc thấy 0 dòng, tồn kho chỉ bị trừ một lần
+- sau commit: trừ tồn kho trên BloodInventoryLedger, gửi sự kiện SSE "blood-expired" (barcode, mã máu, hạn dùng)
+  chỉ cho các kết nối của account có role trong blood-unit.expiry.notify-roles (nhân viên / admin), không gửi cho người hiến
+ */
+@Service
+public class BloodUnitExpiryService {
+
+    private static final Logger log = LoggerFactory.getLogger(BloodUnitExpiryService.class);
+
+    private static final UuidBinaryConverter ID_CONVERTER = new UuidBinaryConverter();
+
+    private static final String SELECT_WINDOW =
+            "SELECT unit_id, expires_at FROM blood_unit WHERE status = ? AND expires_at > ? AND expires_at <= ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BloodInventoryLedger bloodInventoryLedger;
+
+    @Autowired
+    private NotificationPushService notificationPushService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${blood-unit.expiry.tick-ms:1000}")
+    private long tickMillis;
+
+    @Value("${blood-unit.expiry.window-ms:21600000}")
+    private long windowMillis;
+
+    @Value("${blood-unit.expiry.batch-size:200}")
+    private int batchSize;
+
+    // role (viết hoa, không có ROLE_) nhận sự kiện SSE "blood-expired"
+    @Value("${blood-unit.expiry.notify-roles:STAFF,ADMIN}")
+    private Set<String> notifyRoles;
+
+    // unit_id đã tới hạn, chờ drain()
+    private final Queue<String> due = new ConcurrentLinkedQueue<>();
+
+    private HashedTimingWheel<String> wheel;
+    private TransactionTemplate tx;
+    // mọi túi hết hạn <= loadedUntil đã nằm trong wheel; đọc / ghi trong synchronized
+    private LocalDateTime loadedUntil;
+    private Counter expiredCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(transactionManager);
+        expiredCounter = Counter.builder("blood_unit.expired").register(meterRegistry);
+        failedCounter = Counter.builder("blood_unit.expiry_failures").register(meterRegistry);
+        // 4096 tick * 1s ~ 68 phút một vòng, túi xa hơn giữ bằng số vòng còn lại
+        wheel = new HashedTimingWheel<>("blood-unit-expiry-wheel", tickMillis, 4096, due::add);
+        Gauge.builder("blood_unit.expiry_scheduled", wheel, HashedTimingWheel::size).register(meterRegistry);
+        Gauge.builder("blood_unit.expiry_due", due, Queue::size).register(meterRegistry);
+
+        int loaded = load(LocalDateTime.now().plusNanos(windowMillis * 1_000_000));
+        log.info("Scheduled {} blood units for expiry", loaded);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        wheel.close();
+    }
+
+    //gọi sau khi túi mới đã lưu DB; túi hết hạn sau cửa sổ hiện tại sẽ được refill() nạp sau
+    public synchronized void schedule(String unitId, LocalDateTime expiresAt) {
+        if (!expiresAt.isAfter(loadedUntil)) {
+            wheel.schedule(unitId, toMillis(expiresAt));
+        }
+    }
+
+    //nạp tiếp phần cửa sổ mới; túi vừa nhập trong lúc đọc có thể bị schedule hai lần, drain() bỏ qua lần sau
+    @Scheduled(initialDelayString = "${blood-unit.expiry.refill-interval-ms:1800000}",
+            fixedDelayString = "${blood-unit.expiry.refill-interval-ms:1800000}")
+    public void refill() {
+        try {
+            load(LocalDateTime.now().plusNanos(windowMillis * 1_000_000));
+        } catch (RuntimeException e) {
+            //cửa sổ còn lại đủ lâu, lần sau đọc lại cùng khoảng
+            log.warn("Could not load next blood unit expiry window: {}", e.getMessage());
+        }
+    }
+
+    //mỗi lô một transaction ngắn; lô lỗi thì trả unit_id lại hàng đợi, lần sau làm tiếp
+    @Scheduled(fixedDelayString = "${blood-unit.expiry.drain-interval-ms:1000}")
+    public void drain() {
+        while (!due.isEmpty()) {
+            List<String> batch = new ArrayList<>(batchSize);
+            String unitId;
+            while (batch.size() < batchSize && (unitId = due.poll()) != null) {
+                batch.add(unitId);
+            }
+            List<ExpiredUnit> expired;
+            try {
+                expired = expire(batch);
+            } catch (RuntimeException e) {
+                due.addAll(batch);
+                failedCounter.increment();
+                log.warn("Could not expire {} blood units: {}", batch.size(), e.getMessage());
+                return;
+            }
+            if (!expired.isEmpty()) {
+                afterExpire(expired);
+            }
+        }
+    }
+
+    private record ExpiredUnit(String barcode, int bloodCode, int volume, LocalDateTime expiresAt) {
+    }
+
+    //khóa các túi còn AVAILABLE trong lô rồi đổi đúng các túi đó sang EXPIRED
+    private List<ExpiredUnit> expire(List<String> unitIds) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String placeholders = String.join(",", Collections.nCopies(unitIds.size(), "?"));
+        List<Object> args = new ArrayList<>(unitIds.size() + 2);
+        args.add(Blood.BloodStatus.AVAILABLE.name());
+        args.add(now);
+        for (String unitId : unitIds) {
+            args.add(ID_CONVERTER.convertToDatabaseColumn(unitId));
+        }
+
+        return tx.execute(status -> {
+            List<byte[]> locked = new ArrayList<>();
+            List<ExpiredUnit> expired = jdbcTemplate.query(
+                    "SELECT unit_id, barcode, blood_code, volume, expires_at FROM blood_unit " +
+                    "WHERE status = ? AND expires_at <= ? AND unit_id IN (" + placeholders + ") FOR UPDATE",
+                    (rs, i) -> {
+                        locked.add(rs.getBytes(1));
+                        return new ExpiredUnit(rs.getString(2), rs.getInt(3), rs.getInt(4),
+                                rs.getTimestamp(5).toLocalDateTime());
+                    }, args.toArray());
+            if (locked.isEmpty()) {
+                return expired;
+            }
+            List<Object> updateArgs = new ArrayList<>(locked.size() + 2);
+            updateArgs.add(Blood.BloodStatus.EXPIRED.name());
+            updateArgs.add(now);
+            updateArgs.addAll(locked);
+            jdbcTemplate.update("UPDATE blood_unit SET status = ?, status_changed_at = ? WHERE unit_id IN ("
+                    + String.join(",", Collections.nCopies(locked.size(), "?")) + ")", updateArgs.toArray());
+            return expired;
+        });
+    }
+
+    private void afterExpire(List<ExpiredUnit> expired) {
+        Map<Integer, long[]> byCode = new LinkedHashMap<>();
+        List<Map<String, Object>> units = new ArrayList<>(expired.size());
+        for (ExpiredUnit unit : expired) {
+            long[] total = byCode.computeIfAbsent(unit.bloodCode(), k -> new long[2]);
+            total[0]++;
+            total[1] += unit.volume();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("barcode", unit.barcode());
+            item.put("bloodCode", unit.bloodCode());
+            item.put("volume", unit.volume());
+            item.put("expiresAt", unit.expiresAt());
+            units.add(item);
+        }
+        byCode.forEach((code, total) -> {
+            try {
+                if (!bloodInventoryLedger.apply(code, -total[0], -total[1])) {
+                    log.warn("Inventory count for blood {} is lower than its {} expired units", code, total[0]);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not update inventory for {} expired units of blood {}: {}", total[0], code, e.getMessage());
+            }
+        });
+        expiredCounter.increment(expired.size());
+        notificationPushService.pushToRoles(notifyRoles, "blood-expired", units);
+    }
+
+    //đọc các túi hết hạn trong (loadedUntil, to] theo index rồi đưa vào wheel;
+    //lần đầu mốc dưới rất xa -> lấy luôn các túi đã quá hạn lúc app tắt
+    private synchronized int load(LocalDateTime to) {
+        if (loadedUntil != null && !to.isAfter(loadedUntil)) {
+            return 0;
+        }
+        LocalDateTime from = loadedUntil == null ? LocalDateTime.of(1970, 1, 1, 0, 0) : loadedUntil;
+        int[] count = new int[1];
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(SELECT_WINDOW);
+            ps.setString(1, Blood.BloodStatus.AVAILABLE.name());
+            ps.setTimestamp(2, Timestamp.valueOf(from));
+            ps.setTimestamp(3, Timestamp.valueOf(to));
+            ps.setFetchSize(1000);
+            return ps;
+        }, rs -> {
+            wheel.schedule(ID_CONVERTER.convertToEntityAttribute(rs.getBytes(1)),
+                    toMillis(rs.getTimestamp(2).toLocalDateTime()));
+            count[0]++;
+        });
+        loadedUntil = to;
+        return count[0];
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,552 @@
+package com.swp391.bloodcare.service;
+
+import com.swp391.bloodcare.dto.log.BloodUnitDTO;
+import com.swp391.bloodcare.dto.log.BloodUnitIntakeRequest;
+import com.swp391.bloodcare.entity.AfterDonationBlood;
+import com.swp391.bloodcare.entity.Blood;
+import com.swp391.bloodcare.entity.BloodUnit;
+import com.swp391.bloodcare.repository.AfterDonationRepository;
+import com.swp391.bloodcare.repository.BloodUnitRepository;
+import com.swp391.bloodcare.util.BloodCompatibility;
+import com.swp391.bloodcare.util.BloodCompatibility.ComponentKind;
+import com.swp391.bloodcare.util.UuidBinaryConverter;
+import com.swp391.bloodcare.util.UuidV7;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+Xuất / nhập kho theo từng túi máu (bảng blood_unit), túi nào hết hạn sớm nhất thì xuất trước:
+- mỗi mã máu một min-heap các túi AVAILABLE theo hạn dùng, khóa riêng theo mã máu; dựng lại từ DB lúc khởi động
+  và mỗi blood-unit.rebuild-interval-ms (thấy túi do node khác nhập / xuất), đổi cả bộ heap + map barcode một lần;
+  túi nhập / đang xuất ở node này trong lúc đọc DB được đối chiếu lại khi đổi
+- xuất cho bệnh nhân: xem đỉnh heap của các mã máu tương thích (tối đa 8), lấy túi hết hạn sớm nhất -> O(log n);
+  hạn bằng nhau thì ưu tiên mã đứng trước (cùng nhóm, nhóm ít khan hiếm hơn)
+- tra barcode bằng hash map trong bộ nhớ; xuất theo barcode chỉ đánh dấu túi trong heap (xóa lười),
+  heap bỏ qua túi đã đánh dấu khi tới đỉnh và tự dọn khi túi đánh dấu chiếm quá nửa
+- DB là nguồn đúng: đổi trạng thái bằng UPDATE có điều kiện "status = AVAILABLE"; không đổi được (node khác đã xuất)
+  thì bỏ túi đó và lấy túi kế tiếp, lỗi DB thì trả túi lại heap
+- số lượng tổng theo mã máu đi qua BloodInventoryLedger (+1 khi nhập, -1 khi xuất);
+  hết hạn do BloodUnitExpiryService đổi trạng thái + trừ tồn kho, heap chỉ bỏ túi quá hạn khi tới đỉnh
+ */
+@Service
+public class BloodUnitService {
+
+    private static final Logger log = LoggerFactory.getLogger(BloodUnitService.class);
+
+    private static final UuidBinaryConverter ID_CONVERTER = new UuidBinaryConverter();
+
+    // số lần thử lấy túi khác khi túi vừa lấy đã bị node khác xuất
+    private static final int MAX_ISSUE_ATTEMPTS = 16;
+
+    @Autowired
+    private BloodUnitRepository bloodUnitRepository;
+
+    @Autowired
+    private AfterDonationRepository afterDonationRepository;
+
+    @Autowired
+    private ReferenceDataService referenceDataService;
+
+    @Autowired
+    private BloodCompatibilityService bloodCompatibilityService;
+
+    @Autowired
+    private BloodInventoryLedger bloodInventoryLedger;
+
+    @Autowired
+    private BloodUnitExpiryService bloodUnitExpiryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // đổi cả hai cùng lúc khi rebuild (giữ write lock của swapLock)
+    private volatile Map<Integer, ExpiryHeap> heaps = new ConcurrentHashMap<>();
+    // chỉ các túi còn trong heap và chưa bị đánh dấu
+    private volatile Map<String, Unit> byBarcode = new ConcurrentHashMap<>();
+
+    // mọi thao tác sửa heap / byBarcode giữ read lock, rebuild giữ write lock lúc bắt đầu và lúc đổi
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    // barcode đã lấy khỏi heap, chưa đổi xong trạng thái trong DB
+    private final Set<String> issuing = ConcurrentHashMap.newKeySet();
+    // trong lúc rebuild đọc DB: túi nhập / lấy ra ở node này, snapshot có thể chưa thấy
+    private final Map<String, Unit> receivedDuringRebuild = new ConcurrentHashMap<>();
+    private final Set<String> takenDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+
+    //một túi AVAILABLE trong heap; removed đọc / ghi dưới lock của heap chứa nó
+    private static final class Unit implements Comparable<Unit> {
+        private final String unitId;
+        private final String barcode;
+        private final int bloodCode;
+        private final int volume;
+        private final LocalDateTime collectedAt;
+        private final LocalDateTime expiresAt;
+        private boolean removed;
+
+        private Unit(String unitId, String barcode, int bloodCode, int volume,
+                     LocalDateTime collectedAt, LocalDateTime expiresAt) {
+            this.unitId = unitId;
+            this.barcode = barcode;
+            this.bloodCode = bloodCode;
+            this.volume = volume;
+            this.collectedAt = collectedAt;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public int compareTo(Unit other) {
+            int cmp = expiresAt.compareTo(other.expiresAt);
+            return cmp != 0 ? cmp : unitId.compareTo(other.unitId);
+        }
+    }
+
+    private static final class ExpiryHeap {
+        private final ReentrantLock lock = new ReentrantLock();
+        private PriorityQueue<Unit> heap;
+        // túi đã đánh dấu removed nhưng còn nằm trong heap
+        private int stale;
+
+        private ExpiryHeap(List<Unit> units) {
+            //từ Collection -> heapify O(n)
+            heap = new PriorityQueue<>(units);
+        }
+
+        //đỉnh heap còn dùng được (bỏ túi đã đánh dấu / đã quá hạn), null nếu hết; gọi khi giữ lock
+        private Unit peekUsable(LocalDateTime now, Map<String, Unit> byBarcode) {
+            Unit top = heap.peek();
+            while (top != null && (top.removed || !top.expiresAt.isAfter(now))) {
+                heap.poll();
+                if (top.removed) {
+                    stale--;
+                } else {
+                    //quá hạn: để lần quét hết hạn đổi trạng thái trong DB
+                    top.removed = true;
+                    byBarcode.remove(top.barcode, top);
+                }
+                top = heap.peek();
+            }
+            return top;
+        }
+
+        //túi đánh dấu chiếm quá nửa -> dựng lại heap; gọi khi giữ lock
+        private void compactIfNeeded() {
+            if (stale > 64 && stale * 2 > heap.size()) {
+                List<Unit> live = new ArrayList<>(heap.size() - stale);
+                for (Unit unit : heap) {
+                    if (!unit.removed) {
+                        live.add(unit);
+                    }
+                }
+                heap = new PriorityQueue<>(live);
+                stale = 0;
+            }
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("blood_unit.available", this, service -> service.byBarcode.size()).register(meterRegistry);
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${blood-unit.rebuild-interval-ms:600000}",
+            fixedDelayString = "${blood-unit.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Could not rebuild blood unit heaps: {}", e.getMessage());
+        }
+    }
+
+    /*
+    Đọc mọi túi AVAILABLE còn hạn từ DB rồi đổi toàn bộ heap; nhập / xuất vẫn chạy trong lúc đọc:
+    - túi đang xuất lúc bắt đầu hoặc lấy ra trong lúc đọc -> bỏ khỏi snapshot (DB có thể chưa kịp đổi USED)
+    - túi nhập trong lúc đọc mà snapshot chưa có -> thêm vào
+    Túi do node khác xuất sau khi đọc vẫn nằm trong heap tới lần sau, xuất trúng thì UPDATE có điều kiện bỏ qua.
+     */
+    private synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        swapLock.writeLock().lock();
+        try {
+            rebuilding = true;
+            takenDuringRebuild.addAll(issuing);
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        Map<String, Unit> barcodes = new HashMap<>();
+        try {
+            loadAvailable(barcodes);
+        } catch (RuntimeException e) {
+            swapLock.writeLock().lock();
+            try {
+                stopTracking();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        Map<Integer, List<Unit>> grouped = new HashMap<>();
+        swapLock.writeLock().lock();
+        try {
+            takenDuringRebuild.forEach(barcodes::remove);
+            receivedDuringRebuild.forEach((barcode, unit) -> {
+                if (!takenDuringRebuild.contains(barcode)) {
+                    barcodes.putIfAbsent(barcode, unit);
+                }
+            });
+            for (Unit unit : barcodes.values()) {
+                grouped.computeIfAbsent(unit.bloodCode, k -> new ArrayList<>()).add(unit);
+            }
+            Map<Integer, ExpiryHeap> newHeaps = new ConcurrentHashMap<>();
+            grouped.forEach((code, units) -> newHeaps.put(code, new ExpiryHeap(units)));
+            heaps = newHeaps;
+            byBarcode = new ConcurrentHashMap<>(barcodes);
+        } finally {
+            stopTracking();
+            swapLock.writeLock().unlock();
+        }
+        log.info("Blood unit heaps rebuilt in {} ms: {} units, {} blood codes",
+                System.currentTimeMillis() - start, barcodes.size(), grouped.size());
+    }
+
+    //gọi khi giữ write lock
+    private void stopTracking() {
+        rebuilding = false;
+        receivedDuringRebuild.clear();
+        takenDuringRebuild.clear();
+    }
+
+    private void loadAvailable(Map<String, Unit> barcodes) {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(
+                    "SELECT unit_id, barcode, blood_code, volume, collected_at, expires_at FROM blood_unit " +
+                    "WHERE status = ? AND expires_at > ?");
+            ps.setString(1, Blood.BloodStatus.AVAILABLE.name());
+            ps.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+            ps.setFetchSize(1000);
+            return ps;
+        }, rs -> {
+            Unit unit = new Unit(ID_CONVERTER.convertToEntityAttribute(rs.getBytes(1)), rs.getString(2),
+                    rs.getInt(3), rs.getInt(4),
+                    rs.getTimestamp(5).toLocalDateTime(), rs.getTimestamp(6).toLocalDateTime());
+            barcodes.put(unit.barcode, unit);
+        });
+    }
+
+    //dữ liệu sai (barcode trùng, hạn dùng đã qua, kết quả sau hiến không dùng được...) -> IllegalArgumentException
+    public BloodUnitDTO receive(BloodUnitIntakeRequest request) {
+        String barcode = request.getBarcode() == null ? "" : request.getBarcode().trim();
+        if (barcode.isEmpty() || barcode.length() > 64) {
+            throw new IllegalArgumentException("Barcode không hợp lệ");
+        }
+        if (request.getVolume() <= 0) {
+            throw new IllegalArgumentException("Thể tích túi máu phải lớn hơn 0");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime collectedAt = request.getCollectedAt() == null ? now : request.getCollectedAt();
+        LocalDateTime expiresAt = request.getExpiresAt();
+        if (expiresAt == null || !expiresAt.isAfter(now) || !expiresAt.isAfter(collectedAt)) {
+            throw new IllegalArgumentException("Hạn dùng phải sau thời điểm lấy máu và sau hiện tại");
+        }
+
+        AfterDonationBlood afterDonation = null;
+        if (request.getAfterDonationId() != null) {
+            afterDonation = afterDonationRepository.findById((long) request.getAfterDonationId())
+                    .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy kết quả sau hiến: " + request.getAfterDonationId()));
+            if (Boolean.FALSE.equals(afterDonation.getBloodUsable())) {
+                throw new IllegalArgumentException("Máu của lần hiến này không dùng được");
+            }
+        }
+        Integer bloodCode = request.getBloodCode();
+        if (bloodCode == null && afterDonation != null && afterDonation.getBlood() != null) {
+            bloodCode = afterDonation.getBlood().getBloodCode();
+        }
+        if (bloodCode == null) {
+            throw new IllegalArgumentException("Thiếu mã máu");
+        }
+        Blood blood = referenceDataService.findBlood(bloodCode)
+                .orElseThrow(() -> new IllegalArgumentException("Không tồn tại mã máu"));
+        if (byBarcode.containsKey(barcode) || bloodUnitRepository.existsByBarcode(barcode)) {
+            throw new IllegalArgumentException("Barcode đã tồn tại: " + barcode);
+        }
+
+        BloodUnit unit = new BloodUnit(UuidV7.nextString(), barcode, blood, afterDonation, request.getVolume(),
+                collectedAt, expiresAt, Blood.BloodStatus.AVAILABLE);
+        try {
+            bloodUnitRepository.saveAndFlush(unit);
+        } catch (DataIntegrityViolationException e) {
+            //nhập song song cùng barcode
+            throw new IllegalArgumentException("Barcode đã tồn tại: " + barcode);
+        }
+
+        //đã commit mới vào heap + cộng tồn kho
+        Unit entry = new Unit(unit.getUnitId(), barcode, bloodCode, unit.getVolume(), collectedAt, expiresAt);
+        swapLock.readLock().lock();
+        try {
+            ExpiryHeap heap = heaps.computeIfAbsent(bloodCode, k -> new ExpiryHeap(List.of()));
+            heap.lock.lock();
+            try {
+                heap.heap.add(entry);
+                byBarcode.put(barcode, entry);
+            } finally {
+                heap.lock.unlock();
+            }
+            if (rebuilding) {
+                receivedDuringRebuild.put(barcode, entry);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        bloodInventoryLedger.apply(bloodCode, 1, unit.getVolume());
+        bloodUnitExpiryService.schedule(unit.getUnitId(), expiresAt);
+        return toDTO(entry, Blood.BloodStatus.AVAILABLE);
+    }
+
+    //túi AVAILABLE trong bộ nhớ, không có (hoặc vừa quá hạn) thì tra DB
+    public Optional<BloodUnitDTO> findByBarcode(String barcode) {
+        Unit unit = byBarcode.get(barcode);
+        if (unit != null && unit.expiresAt.isAfter(LocalDateTime.now())) {
+            return Optional.of(toDTO(unit, Blood.BloodStatus.AVAILABLE));
+        }
+        return bloodUnitRepository.findByBarcode(barcode).map(this::toDTO);
+    }
+
+    //xuất túi hết hạn sớm nhất cho bệnh nhân nhóm recipientGroup; không còn túi phù hợp -> empty
+    public Optional<BloodUnitDTO> issue(int recipientGroup, ComponentKind kind) {
+        List<Integer> codes = new ArrayList<>();
+        for (Blood blood : bloodCompatibilityService.compatibleBloods(recipientGroup, kind)) {
+            codes.add(blood.getBloodCode());
+        }
+
+        for (int attempt = 0; attempt < MAX_ISSUE_ATTEMPTS; attempt++) {
+            Unit taken;
+            swapLock.readLock().lock();
+            try {
+                taken = pollSoonest(codes, LocalDateTime.now());
+                if (taken != null) {
+                    markTaken(taken);
+                }
+            } finally {
+                swapLock.readLock().unlock();
+            }
+            if (taken == null) {
+                return Optional.empty();
+            }
+            if (markUsed(taken)) {
+                return Optional.of(toDTO(taken, Blood.BloodStatus.USED));
+            }
+        }
+        log.warn("Could not issue a unit for group {} after {} attempts", BloodCompatibility.groupName(recipientGroup),
+                MAX_ISSUE_ATTEMPTS);
+        return Optional.empty();
+    }
+
+    /*
+    Xuất đúng túi theo barcode: empty nếu không có túi này,
+    IllegalStateException nếu túi đã xuất / hết hạn / đang được xuất ở request khác.
+     */
+    public Optional<BloodUnitDTO> issueByBarcode(String barcode) {
+        Unit unit;
+        swapLock.readLock().lock();
+        try {
+            unit = byBarcode.remove(barcode);
+            if (unit != null) {
+                //BloodUnitExpiryService đổi trạng thái trong DB, heap tự bỏ túi khi tới đỉnh
+                if (!unit.expiresAt.isAfter(LocalDateTime.now())) {
+                    throw new IllegalStateException("Túi máu đã hết hạn");
+                }
+                ExpiryHeap heap = heaps.get(unit.bloodCode);
+                heap.lock.lock();
+                try {
+                    if (unit.removed) {
+                        throw new IllegalStateException("Túi máu đang được xuất");
+                    }
+                    unit.removed = true;
+                    heap.stale++;
+                    heap.compactIfNeeded();
+                } finally {
+                    heap.lock.unlock();
+                }
+                markTaken(unit);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        if (unit == null) {
+            Optional<BloodUnit> stored = bloodUnitRepository.findByBarcode(barcode);
+            if (stored.isEmpty()) {
+                return Optional.empty();
+            }
+            throw new IllegalStateException("Túi máu không còn trong kho (" + stored.get().getStatus() + ")");
+        }
+        if (!markUsed(unit)) {
+            throw new IllegalStateException("Túi máu không còn trong kho");
+        }
+        return Optional.of(toDTO(unit, Blood.BloodStatus.USED));
+    }
+
+    //heap xếp theo hạn dùng nên túi quá hạn luôn nằm trên đỉnh: bỏ chúng trước rồi mới đếm
+    public int countAvailable(int bloodCode) {
+        swapLock.readLock().lock();
+        try {
+            ExpiryHeap heap = heaps.get(bloodCode);
+            if (heap == null) {
+                return 0;
+            }
+            heap.lock.lock();
+            try {
+                heap.peekUsable(LocalDateTime.now(), byBarcode);
+                return heap.heap.size() - heap.stale;
+            } finally {
+                heap.lock.unlock();
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    //gọi khi giữ read lock của swapLock
+    private void markTaken(Unit unit) {
+        issuing.add(unit.barcode);
+        if (rebuilding) {
+            takenDuringRebuild.add(unit.barcode);
+        }
+    }
+
+    //xem đỉnh từng heap (khóa từng cái một), lấy túi hết hạn sớm nhất; null nếu mọi heap đều rỗng
+    private Unit pollSoonest(List<Integer> codes, LocalDateTime now) {
+        while (true) {
+            Unit best = null;
+            for (Integer code : codes) {
+                ExpiryHeap heap = heaps.get(code);
+                if (heap == null) {
+                    continue;
+                }
+                heap.lock.lock();
+                try {
+                    Unit top = heap.peekUsable(now, byBarcode);
+                    //hạn bằng nhau giữ mã đứng trước
+                    if (top != null && (best == null || top.expiresAt.isBefore(best.expiresAt))) {
+                        best = top;
+                    }
+                } finally {
+                    heap.lock.unlock();
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+
+            ExpiryHeap heap = heaps.get(best.bloodCode);
+            heap.lock.lock();
+            try {
+                //request khác lấy mất trong lúc so sánh -> so sánh lại
+                if (heap.peekUsable(now, byBarcode) != best) {
+                    continue;
+                }
+                heap.heap.poll();
+                best.removed = true;
+                byBarcode.remove(best.barcode, best);
+                return best;
+            } finally {
+                heap.lock.unlock();
+            }
+        }
+    }
+
+    //đổi AVAILABLE -> USED trong DB; false nếu đã có nơi khác đổi trước; lỗi DB -> trả túi lại heap rồi ném tiếp
+    private boolean markUsed(Unit unit) {
+        int updated;
+        try {
+            updated = bloodUnitRepository.changeStatusIfAvailable(unit.unitId, Blood.BloodStatus.USED, LocalDateTime.now());
+        } catch (RuntimeException e) {
+            restore(unit);
+            throw e;
+        } finally {
+            issuing.remove(unit.barcode);
+        }
+        if (updated == 0) {
+            return false;
+        }
+        if (!bloodInventoryLedger.apply(unit.bloodCode, -1, -unit.volume)) {
+            log.warn("Inventory count for blood {} is lower than its units, unit {} issued anyway", unit.bloodCode, unit.barcode);
+        }
+        return true;
+    }
+
+    //heap có thể đã được dựng lại sau khi lấy túi ra: khi đó túi không còn trong heap mới -> thêm lại
+    private void restore(Unit unit) {
+        swapLock.readLock().lock();
+        try {
+            ExpiryHeap heap = heaps.computeIfAbsent(unit.bloodCode, k -> new ExpiryHeap(List.of()));
+            heap.lock.lock();
+            try {
+                if (!unit.removed || byBarcode.containsKey(unit.barcode)) {
+                    return;
+                }
+                unit.removed = false;
+                //còn trong heap (xuất theo barcode) thì chỉ bỏ đánh dấu, đã poll ra thì thêm lại
+                if (heap.heap.contains(unit)) {
+                    heap.stale--;
+                } else {
+                    heap.heap.add(unit);
+                }
+                byBarcode.put(unit.barcode, unit);
+            } finally {
+                heap.lock.unlock();
+            }
+            if (rebuilding) {
+                takenDuringRebuild.remove(unit.barcode);
+                receivedDuringRebuild.put(unit.barcode, unit);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private BloodUnitDTO toDTO(Unit unit, Blood.BloodStatus status) {
+        return new BloodUnitDTO(unit.unitId, unit.barcode, unit.bloodCode, groupName(unit.bloodCode), unit.volume,
+                unit.collectedAt, unit.expiresAt, status.name());
+    }
+
+    private BloodUnitDTO toDTO(BloodUnit unit) {
+        int bloodCode = unit.getBlood().getBloodCode();
+        return new BloodUnitDTO(unit.getUnitId(), unit.getBarcode(), bloodCode, groupName(bloodCode), unit.getVolume(),
+                unit.getCollectedAt(), unit.getExpiresAt(), unit.getStatus().name());
+    }
+
+    private String groupName(int bloodCode) {
+        return referenceDataService.findBlood(bloodCode)
+                .map(bloodCompatibilityService::groupOf)
+                .filter(group -> group >= 0)
+                .map(BloodCompatibility::groupName)
+                .orElse(null);
+    }
+}
@@ -2,29 +2,115 @@ package com.swp391.bloodcare.service;
 
 import com.swp391.bloodcare.entity.Account;
 import com.swp391.bloodcare.repository.AccountRepository;
+import com.swp391.bloodcare.util.ExpiringCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Collections;
+import java.util.concurrent.atomic.LongAdder;
 
+/*
+UserDetails được cache theo username (TTL + giới hạn kích thước).
+Mọi thay đổi account (khóa, đổi role, đổi mật khẩu) phải gọi evict(username).
+Account bị khóa được cache với disabled = true -> DaoAuthenticationProvider từ chối đăng nhập.
+ */
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
     @Autowired
     private AccountRepository accountRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${security.user-cache.ttl:300000}")
+    private long cacheTtl;
+
+    @Value("${security.user-cache.max-size:5000}")
+    private int cacheMaxSize;
+
+    private ExpiringCache<String, UserDetails> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        cache = new ExpiringCache<>(cacheMaxSize);
+
+        FunctionCounter.builder("security.user_cache.hits", hits, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("security.user_cache.misses", misses, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("security.user_cache.evictions", this, CustomUserDetailsService::getEvictionCount).register(meterRegistry);
+        Gauge.builder("security.user_cache.size", cache, ExpiringCache::size).register(meterRegistry);
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserDetails cached = cache.get(username);
+        if (cached != null) {
+            hits.increment();
+            // trả bản copy: ProviderManager có thể eraseCredentials() trên object được trả về
+            return User.withUserDetails(cached).build();
+        }
+        misses.increment();
+
         Account account = accountRepository.findByUserName(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
 
-        return new User(
-                account.getUserName(),
-                account.getPassword(),
-                Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + account.getRole().getRole().toUpperCase()))
-        );
+        UserDetails userDetails = User.withUsername(account.getUserName())
+                .password(account.getPassword())
+                .authorities(Collections.singletonList(
+                        new SimpleGrantedAuthority("ROLE_" + account.getRole().getRole().toUpperCase())))
+                .disabled(!account.isActive())
+                .build();
+        cache.put(username, userDetails, System.currentTimeMillis() + cacheTtl);
+        return User.withUserDetails(userDetails).build();
+    }
+
+    // xóa cache khi account thay đổi; trong transaction thì xóa sau khi commit,
+    // nếu xóa trước thì request chen vào giữa có thể load lại dữ liệu cũ và cache tiếp cả TTL
+    public void evict(String username) {
+        if (username == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remove(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remove(username);
+            }
+        });
+    }
+
+    private void remove(String username) {
+        cache.remove(username);
+        invalidations.increment();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    // bị bỏ do đầy + bị xóa chủ động
+    public long getEvictionCount() {
+        return cache.getEvictionCount() + invalidations.sum();
     }
 
 }
@@ -18,6 +18,10 @@ public class DonationRegistrationService {
     private DonationRegistrationRepository donationRegistrationRepository;
     @Autowired
     private AccountRepository accountRepository;
+    @Autowired
+    private NotificationService notificationService;
+    @Autowired
+    private DonorEligibilityService donorEligibilityService;
     public DonationRegistration createDonationByUsername(String username, DonationRegistration donationRegistration) {
         Account account = accountRepository.findByUserName(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
@@ -29,6 +33,8 @@ public class DonationRegistrationService {
         DonationRegistration existing = donationRegistrationRepository.findById((long) id)
                 .orElseThrow(() -> new EntityNotFoundException("DonationRegistration not found with id: " + id));
 
+        String previousStatus = existing.getStatus();
+
         // Cập nhật các field cần thiết
         existing.setDateCreated(updatedData.getDateCreated());
         existing.setStatus(updatedData.getStatus());
@@ -39,7 +45,20 @@ public class DonationRegistrationService {
 
         // Không cập nhật profile (tránh thay đổi người tạo bản ghi)
 
-        return donationRegistrationRepository.save(existing);
+        DonationRegistration saved = donationRegistrationRepository.save(existing);
+
+        // báo cho người đăng ký khi trạng thái thay đổi
+        if (saved.getAccount() != null && saved.getStatus() != null && !saved.getStatus().equals(previousStatus)) {
+            notificationService.publish(saved.getAccount().getAccountId(),
+                    "Cập nhật đăng ký hiến máu",
+                    "Đăng ký hiến máu #" + saved.getRegistrationId() + " đã chuyển sang trạng thái " + saved.getStatus(),
+                    NotificationService.TYPE_DONATION);
+        }
+        // hiến xong / hủy có thể đổi ngày nghỉ của người hiến
+        if (saved.getAccount() != null) {
+            donorEligibilityService.refresh(saved.getAccount().getAccountId());
+        }
+        return saved;
     }
 
     public DonationRegistration deleteDonationRegistration(long id) {
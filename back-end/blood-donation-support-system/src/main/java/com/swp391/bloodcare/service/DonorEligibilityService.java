@@ -0,0 +1,232 @@
+package com.swp391.bloodcare.service;
+
+import com.swp391.bloodcare.entity.Blood;
+import com.swp391.bloodcare.util.DonorEligibilityIndex;
+import com.swp391.bloodcare.util.UuidBinaryConverter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+Tìm nhanh người hiến đủ điều kiện (account đang hoạt động, đã hết thời gian nghỉ) theo quận + nhóm máu,
+không cần join account / profile / blood mỗi lần (DonorEligibilityIndex, ~40-60 byte mỗi donor):
+- build lúc khởi động và định kỳ (nhận thay đổi từ node khác / import hàng loạt)
+- đổi profile, khám sàng lọc, đăng ký hiến máu, khóa tài khoản -> refresh() đọc lại đúng một donor sau khi commit
+- build lại nạp cả bảng vào index mới rồi mới sắp (DonorEligibilityIndex.startLoad / finishLoad);
+  snapshot có thể đã đọc dòng cũ của donor vừa đổi -> refresh trong lúc build được ghi lại,
+  đọc lại vào index mới sau khi load xong rồi mới đổi index, không bị index mới ghi đè
+ */
+@Service
+public class DonorEligibilityService {
+
+    private static final Logger log = LoggerFactory.getLogger(DonorEligibilityService.class);
+
+    private static final UuidBinaryConverter ID_CONVERTER = new UuidBinaryConverter();
+
+    private static final String SELECT_DONORS =
+            "SELECT a.id, a.is_active, p.district, p.blood_code, p.rest_date " +
+            "FROM profile p JOIN account a ON a.id = p.account_id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReferenceDataService referenceDataService;
+
+    @Autowired
+    private BloodCompatibilityService bloodCompatibilityService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // null khi chưa build xong
+    private volatile DonorEligibilityIndex index;
+    // đang build lại -> refresh ghi account id vào changedDuringRebuild
+    private boolean building;
+    private final Set<String> changedDuringRebuild = new HashSet<>();
+    // giữ khi sửa index / building / changedDuringRebuild, không giữ trong lúc đọc DB
+    private final Object applyLock = new Object();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        Gauge.builder("donor_eligibility.donors", this, s -> s.index == null ? 0 : s.index.size())
+                .register(meterRegistry);
+        Gauge.builder("donor_eligibility.bytes", this, s -> s.index == null ? 0 : s.index.sizeInBytes())
+                .register(meterRegistry);
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${donor-eligibility.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${donor-eligibility.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM profile", Long.class);
+            DonorEligibilityIndex next = new DonorEligibilityIndex((int) Math.min(Integer.MAX_VALUE - 8,
+                    (count == null ? 0 : count) + 1024));
+            synchronized (applyLock) {
+                changedDuringRebuild.clear();
+                building = true;
+            }
+            Map<Integer, Integer> groups = groupsByBloodCode();
+            next.startLoad();
+
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(SELECT_DONORS,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(1000);
+                return ps;
+            }, (ResultSet rs) -> {
+                apply(next, rs, groups);
+            });
+            next.finishLoad();
+
+            //đọc lại các donor đổi trong lúc build tới khi không còn, rồi đổi index trong cùng lock
+            int replayed = 0;
+            while (true) {
+                List<String> changed;
+                synchronized (applyLock) {
+                    if (changedDuringRebuild.isEmpty()) {
+                        index = next;
+                        building = false;
+                        break;
+                    }
+                    changed = new ArrayList<>(changedDuringRebuild);
+                    changedDuringRebuild.clear();
+                }
+                for (String accountId : changed) {
+                    reload(next, accountId, groups);
+                }
+                replayed += changed.size();
+            }
+            log.info("Donor eligibility index rebuilt in {} ms: {} donors, {} bytes, {} changes replayed",
+                    System.currentTimeMillis() - start, next.size(), next.sizeInBytes(), replayed);
+        } catch (RuntimeException e) {
+            // giữ index cũ
+            log.warn("Could not rebuild donor eligibility index: {}", e.getMessage());
+        } finally {
+            synchronized (applyLock) {
+                building = false;
+                changedDuringRebuild.clear();
+            }
+        }
+    }
+
+    //đọc lại một donor sau khi transaction hiện tại commit (không có transaction thì đọc ngay)
+    public void refresh(String accountId) {
+        if (accountId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reload(accountId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reload(accountId);
+            }
+        });
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    // district null -> mọi quận; groupMask theo DonorEligibilityIndex
+    public int count(String district, int groupMask, LocalDate eligibleOn) {
+        DonorEligibilityIndex current = requireIndex();
+        return current.count(district, groupMask, (int) eligibleOn.toEpochDay());
+    }
+
+    public List<String> find(String district, int groupMask, LocalDate eligibleOn, int limit) {
+        DonorEligibilityIndex current = requireIndex();
+        return current.find(district, groupMask, (int) eligibleOn.toEpochDay(), limit);
+    }
+
+    private DonorEligibilityIndex requireIndex() {
+        DonorEligibilityIndex current = index;
+        if (current == null) {
+            throw new IllegalStateException("Index người hiến đang được xây dựng, thử lại sau");
+        }
+        return current;
+    }
+
+    private void reload(String accountId) {
+        DonorEligibilityIndex current;
+        synchronized (applyLock) {
+            current = index;
+            if (building) {
+                changedDuringRebuild.add(accountId);
+            }
+        }
+        if (current != null) {
+            reload(current, accountId, groupsByBloodCode());
+        }
+    }
+
+    private void reload(DonorEligibilityIndex target, String accountId, Map<Integer, Integer> groups) {
+        try {
+            boolean[] found = new boolean[1];
+            jdbcTemplate.query(SELECT_DONORS + " WHERE a.id = ?", (ResultSet rs) -> {
+                found[0] = true;
+                apply(target, rs, groups);
+            }, (Object) ID_CONVERTER.convertToDatabaseColumn(accountId));
+            if (!found[0]) {
+                target.remove(accountId);
+            }
+        } catch (RuntimeException e) {
+            //lần build định kỳ sau sẽ sửa lại
+            log.warn("Could not refresh donor {} in eligibility index: {}", accountId, e.getMessage());
+        }
+    }
+
+    //account bị khóa -> bỏ khỏi index
+    private static void apply(DonorEligibilityIndex target, ResultSet rs, Map<Integer, Integer> groups)
+            throws SQLException {
+        String accountId = ID_CONVERTER.convertToEntityAttribute(rs.getBytes(1));
+        if (!rs.getBoolean(2)) {
+            target.remove(accountId);
+            return;
+        }
+        int bloodCode = rs.getInt(4);
+        Integer group = rs.wasNull() ? null : groups.get(bloodCode);
+        Date restDate = rs.getDate(5);
+        target.put(accountId, rs.getString(3),
+                group == null ? DonorEligibilityIndex.UNKNOWN_GROUP : group,
+                restDate == null ? DonorEligibilityIndex.ALWAYS_ELIGIBLE : (int) restDate.toLocalDate().toEpochDay());
+    }
+
+    //blood_code -> nhóm 0..7 (mã thiếu nhóm / Rh thì không có trong map)
+    private Map<Integer, Integer> groupsByBloodCode() {
+        Map<Integer, Integer> groups = new HashMap<>();
+        for (Blood blood : referenceDataService.getBloods()) {
+            int group = bloodCompatibilityService.groupOf(blood);
+            if (group >= 0) {
+                groups.put(blood.getBloodCode(), group);
+            }
+        }
+        return groups;
+    }
+}
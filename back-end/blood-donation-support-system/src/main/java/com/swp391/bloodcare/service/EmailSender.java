@@ -1,39 +1,398 @@
 package com.swp391.bloodcare.service;
 
+import com.swp391.bloodcare.infra.SmtpTransportPool;
+import com.swp391.bloodcare.util.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.AddressException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Gửi email theo lô:
+- mỗi lô (email-sender.batch-size thư) gửi trên một kết nối SMTP đã STARTTLS + đăng nhập;
+  kết nối được giữ trong SmtpTransportPool và dùng lại cho các lô sau (tối đa max-sessions kết nối rảnh,
+  rảnh quá smtp-idle-timeout-ms thì đóng), không phải lô nào cũng mở kết nối mới
+- lỗi tạm thời (mất kết nối, timeout, 4xx...) -> gửi lại các thư lỗi, chờ theo exponential backoff có jitter
+- lỗi vĩnh viễn (địa chỉ không hợp lệ, thư sai định dạng) -> không thử lại
+- circuit breaker: SMTP lỗi liên tục -> ngừng gọi, các lô bị chặn được để dành (parked) và gửi lại định kỳ
+- bulkhead: tối đa email-sender.max-sessions phiên SMTP cùng lúc, chờ quá bulkhead-wait-ms -> để dành
+- metric: mail.sent (tốc độ gửi = rate của counter), mail.failed theo loại, mail.retries, mail.batch,
+  mail.rejected theo lý do, mail.parked, mail.circuit.state, mail.circuit.transitions,
+  mail.smtp.connections (số kết nối đã mở), mail.smtp.idle
+ */
 @Service
 public class EmailSender {
 
+    private static final Logger log = LoggerFactory.getLogger(EmailSender.class);
+
+    // deferred = thư chưa gọi SMTP vì breaker mở / hết phiên: đã để dành gửi sau,
+    // hoặc trả lại cho caller nếu gọi sendMailsWithoutParking
+    public record BatchResult(int sent, List<String> permanentFailures, List<String> transientFailures,
+                              List<String> deferred) {
+        public int failed() {
+            return permanentFailures.size() + transientFailures.size();
+        }
+    }
+
+    // một thư đã render xong nội dung
+    public record Mail(String to, String subject, String body) {
+    }
+
+    private record ParkedBatch(List<Mail> mails) {
+    }
+
     @Autowired
     private JavaMailSender mailSender;
 
-    public void sendSimpleEmail(String to, String subject, String body) {
-        int maxRetries = 3;
-        int retryCount = 0;
-        while (retryCount < maxRetries) {
-            try {
-                SimpleMailMessage message = new SimpleMailMessage();
-                message.setFrom("your_email@gmail.com");
-                message.setTo(to);
-                message.setSubject(subject);
-                message.setText(body);
-                mailSender.send(message);
-                System.out.println("✅ Email sent to: " + to);
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${email-sender.from:${spring.mail.username}}")
+    private String from;
+
+    @Value("${email-sender.batch-size:50}")
+    private int batchSize;
+
+    @Value("${email-sender.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${email-sender.backoff-initial-ms:500}")
+    private long backoffInitialMs;
+
+    @Value("${email-sender.backoff-max-ms:30000}")
+    private long backoffMaxMs;
+
+    @Value("${email-sender.max-sessions:4}")
+    private int maxSessions;
+
+    @Value("${email-sender.bulkhead-wait-ms:2000}")
+    private long bulkheadWaitMs;
+
+    @Value("${email-sender.smtp-idle-timeout-ms:30000}")
+    private long smtpIdleTimeoutMs;
+
+    @Value("${email-sender.circuit.window-size:20}")
+    private int circuitWindowSize;
+
+    @Value("${email-sender.circuit.minimum-calls:5}")
+    private int circuitMinimumCalls;
+
+    @Value("${email-sender.circuit.failure-rate:0.5}")
+    private double circuitFailureRate;
+
+    @Value("${email-sender.circuit.open-ms:60000}")
+    private long circuitOpenMs;
+
+    @Value("${email-sender.parked-capacity:10000}")
+    private int parkedCapacity;
+
+    private CircuitBreaker circuitBreaker;
+    private Semaphore sessions;
+    // null khi mailSender không phải JavaMailSenderImpl gốc -> gọi thẳng mailSender.send()
+    private SmtpTransportPool transportPool;
+    private final ConcurrentLinkedQueue<ParkedBatch> parked = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger parkedMessages = new AtomicInteger();
+
+    private Counter sentCounter;
+    private Counter permanentFailureCounter;
+    private Counter transientFailureCounter;
+    private Counter retryCounter;
+    private Counter circuitRejectedCounter;
+    private Counter bulkheadRejectedCounter;
+    private Counter parkOverflowCounter;
+    private Timer batchTimer;
+
+    @PostConstruct
+    void init() {
+        sentCounter = Counter.builder("mail.sent").register(meterRegistry);
+        permanentFailureCounter = Counter.builder("mail.failed").tag("type", "permanent").register(meterRegistry);
+        transientFailureCounter = Counter.builder("mail.failed").tag("type", "transient").register(meterRegistry);
+        retryCounter = Counter.builder("mail.retries").register(meterRegistry);
+        circuitRejectedCounter = Counter.builder("mail.rejected").tag("reason", "circuit_open").register(meterRegistry);
+        bulkheadRejectedCounter = Counter.builder("mail.rejected").tag("reason", "bulkhead_full").register(meterRegistry);
+        parkOverflowCounter = Counter.builder("mail.rejected").tag("reason", "parked_full").register(meterRegistry);
+        batchTimer = Timer.builder("mail.batch").register(meterRegistry);
+
+        sessions = new Semaphore(maxSessions);
+        circuitBreaker = new CircuitBreaker(circuitWindowSize, circuitMinimumCalls, circuitFailureRate,
+                circuitOpenMs, 1, (fromState, toState) -> {
+            log.warn("SMTP circuit breaker {} -> {}", fromState, toState);
+            Counter.builder("mail.circuit.transitions")
+                    .tag("from", fromState.name())
+                    .tag("to", toState.name())
+                    .register(meterRegistry)
+                    .increment();
+        });
+        // 0 = CLOSED, 1 = OPEN, 2 = HALF_OPEN
+        Gauge.builder("mail.circuit.state", circuitBreaker, cb -> cb.getState().ordinal()).register(meterRegistry);
+        Gauge.builder("mail.parked", parkedMessages, AtomicInteger::get).register(meterRegistry);
+
+        //chỉ dùng pool cho JavaMailSenderImpl gốc; lớp con có thể tự xử lý send() (vd: mock trong test)
+        if (mailSender.getClass() == JavaMailSenderImpl.class) {
+            transportPool = new SmtpTransportPool((JavaMailSenderImpl) mailSender, maxSessions, smtpIdleTimeoutMs);
+            FunctionCounter.builder("mail.smtp.connections", transportPool, SmtpTransportPool::getOpenedCount)
+                    .register(meterRegistry);
+            Gauge.builder("mail.smtp.idle", transportPool, SmtpTransportPool::getIdleCount).register(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (transportPool != null) {
+            transportPool.close();
+        }
+    }
+
+    //đóng kết nối SMTP rảnh lâu trước khi server tự cắt
+    @Scheduled(fixedDelayString = "${email-sender.smtp-idle-timeout-ms:30000}")
+    public void evictIdleConnections() {
+        if (transportPool != null) {
+            transportPool.evictIdle();
+        }
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    //true nếu gửi được ngay (có thể sau vài lần thử); thư bị để dành vẫn được gửi sau
+    public boolean sendSimpleEmail(String to, String subject, String body) {
+        return sendBatch(List.of(to), subject, body).sent() == 1;
+    }
+
+    //cùng nội dung cho nhiều người nhận, mỗi người một thư riêng; thư bị chặn được để dành gửi sau
+    public BatchResult sendBatch(List<String> recipients, String subject, String body) {
+        return send(recipients.stream().map(to -> new Mail(to, subject, body)).toList(), true);
+    }
+
+    //mỗi thư một nội dung riêng; thư bị chặn được để dành gửi sau
+    public BatchResult sendMails(List<Mail> mails) {
+        return send(mails, true);
+    }
+
+    //như sendMails nhưng thư bị chặn trả về trong deferred, caller tự gửi lại (vd: outbox)
+    public BatchResult sendMailsWithoutParking(List<Mail> mails) {
+        return send(mails, false);
+    }
+
+    //mỗi địa chỉ chỉ nên xuất hiện một lần trong mails (kết quả trả về theo địa chỉ)
+    private BatchResult send(List<Mail> mails, boolean parkRejected) {
+        int sent = 0;
+        List<String> deferred = new ArrayList<>();
+        List<String> permanent = new ArrayList<>();
+        List<String> transientFailed = new ArrayList<>();
+
+        for (int start = 0; start < mails.size(); start += batchSize) {
+            List<Mail> pending = mails.subList(start, Math.min(start + batchSize, mails.size()));
+
+            for (int attempt = 1; !pending.isEmpty(); attempt++) {
+                Map<String, Exception> failures = trySend(pending);
+                if (failures == null) {
+                    //breaker mở hoặc hết phiên SMTP -> để dành / trả lại cả phần còn lại
+                    List<String> addresses = pending.stream().map(Mail::to).toList();
+                    if (!parkRejected || park(pending)) {
+                        deferred.addAll(addresses);
+                    } else {
+                        transientFailed.addAll(addresses);
+                        transientFailureCounter.increment(addresses.size());
+                    }
+                    break;
+                }
+                sent += pending.size() - failures.size();
+                sentCounter.increment(pending.size() - failures.size());
+
+                List<Mail> retry = new ArrayList<>();
+                for (Mail mail : pending) {
+                    Exception failure = failures.get(mail.to());
+                    if (failure == null) {
+                        continue;
+                    }
+                    if (isPermanent(failure)) {
+                        log.warn("Permanent failure sending to {}: {}", mail.to(), failure.getMessage());
+                        permanent.add(mail.to());
+                        permanentFailureCounter.increment();
+                    } else {
+                        retry.add(mail);
+                    }
+                }
+                if (retry.isEmpty()) {
+                    break;
+                }
+                if (attempt >= maxAttempts || !sleepBeforeRetry(attempt)) {
+                    log.error("Giving up on {} recipients after {} attempts, last error: {}", retry.size(), attempt,
+                            failures.get(retry.get(0).to()).getMessage());
+                    retry.forEach(mail -> transientFailed.add(mail.to()));
+                    transientFailureCounter.increment(retry.size());
+                    break;
+                }
+                retryCounter.increment(retry.size());
+                pending = retry;
+            }
+        }
+        return new BatchResult(sent, permanent, transientFailed, deferred);
+    }
+
+    //gửi lại các lô để dành; breaker còn mở thì lô đầu tiên bị để dành lại và dừng luôn
+    @Scheduled(fixedDelayString = "${email-sender.parked-retry-interval-ms:30000}")
+    public void retryParked() {
+        int batches = parked.size();
+        for (int i = 0; i < batches; i++) {
+            ParkedBatch batch = parked.poll();
+            if (batch == null) {
+                return;
+            }
+            parkedMessages.addAndGet(-batch.mails().size());
+            BatchResult result = send(batch.mails(), true);
+            if (result.deferred().size() == batch.mails().size()) {
                 return;
-            } catch (Exception e) {
-                retryCount++;
-                System.err.println("❌ Attempt " + retryCount + " failed for " + to + ": " + e.getMessage());
-                if (retryCount == maxRetries) {
-                    // Log nặng hơn hoặc gửi cảnh báo nếu cần
-                    System.err.println("🚨 Gửi email thất bại sau nhiều lần thử cho: " + to);
+            }
+        }
+    }
+
+    public int getParkedCount() {
+        return parkedMessages.get();
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    private boolean park(List<Mail> mails) {
+        if (parkedMessages.addAndGet(mails.size()) > parkedCapacity) {
+            parkedMessages.addAndGet(-mails.size());
+            parkOverflowCounter.increment(mails.size());
+            return false;
+        }
+        parked.add(new ParkedBatch(List.copyOf(mails)));
+        return true;
+    }
+
+    //gửi một lô trên một kết nối của pool; trả về các địa chỉ gửi lỗi kèm lỗi, null nếu không được phép gọi SMTP
+    private Map<String, Exception> trySend(List<Mail> mails) {
+        try {
+            if (!sessions.tryAcquire(bulkheadWaitMs, TimeUnit.MILLISECONDS)) {
+                bulkheadRejectedCounter.increment(mails.size());
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            sessions.release();
+            circuitRejectedCounter.increment(mails.size());
+            return null;
+        }
+
+        SimpleMailMessage[] messages = new SimpleMailMessage[mails.size()];
+        for (int i = 0; i < messages.length; i++) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom(from);
+            message.setTo(mails.get(i).to());
+            message.setSubject(mails.get(i).subject());
+            message.setText(mails.get(i).body());
+            messages[i] = message;
+        }
+
+        Map<String, Exception> failures = new LinkedHashMap<>();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            if (transportPool != null) {
+                transportPool.send(messages);
+            } else {
+                mailSender.send(messages);
+            }
+            circuitBreaker.onSuccess();
+        } catch (MailSendException e) {
+            //lỗi từng thư; các thư khác trong lô vẫn được gửi
+            for (Map.Entry<Object, Exception> failed : e.getFailedMessages().entrySet()) {
+                if (failed.getKey() instanceof SimpleMailMessage message && message.getTo() != null) {
+                    failures.put(message.getTo()[0], failed.getValue());
                 }
             }
+            if (failures.isEmpty()) {
+                mails.forEach(mail -> failures.put(mail.to(), e));
+            }
+            //server vẫn nhận thư -> chỉ tính lỗi khi cả lô hỏng vì lỗi tạm thời
+            boolean serverDown = failures.size() == mails.size()
+                    && failures.values().stream().noneMatch(this::isPermanent);
+            if (serverDown) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+        } catch (MailException e) {
+            //không kết nối / đăng nhập được -> cả lô lỗi
+            mails.forEach(mail -> failures.put(mail.to(), e));
+            circuitBreaker.onFailure();
+        } catch (RuntimeException | Error e) {
+            //lỗi ngoài dự kiến vẫn phải báo cho breaker, nếu không lượt thử HALF_OPEN không bao giờ trả lại
+            circuitBreaker.onFailure();
+            throw e;
+        } finally {
+            sessions.release();
+            sample.stop(batchTimer);
         }
+        return failures;
     }
 
-}
+    private boolean isPermanent(Exception e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SendFailedException sendFailed
+                    && sendFailed.getInvalidAddresses() != null
+                    && sendFailed.getInvalidAddresses().length > 0) {
+                return true;
+            }
+            if (cause instanceof AddressException
+                    || cause instanceof MailParseException
+                    || cause instanceof MailPreparationException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
 
+    //backoff = initial * 2^(attempt-1), tối đa backoffMax, ngẫu nhiên trong [backoff/2, backoff]
+    private boolean sleepBeforeRetry(int attempt) {
+        long backoff = Math.min(backoffMaxMs, backoffInitialMs << Math.min(attempt - 1, 20));
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
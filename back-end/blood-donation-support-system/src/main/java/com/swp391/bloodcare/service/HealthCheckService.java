@@ -14,11 +14,15 @@ import java.util.List;
 public class HealthCheckService {
     @Autowired
     private HealthCheckRepository healthCheckRepository;
+    @Autowired
+    private DonorEligibilityService donorEligibilityService;
 
 
     public HealthCheck createHealthCheck(HealthCheck healthCheck, DonationRegistration donationRegistration) {
         healthCheck.setDonationRegistration(donationRegistration);
-        return healthCheckRepository.save(healthCheck);
+        HealthCheck saved = healthCheckRepository.save(healthCheck);
+        refreshDonor(donationRegistration);
+        return saved;
     }
 
     public HealthCheck updateHealthCheckByDonationRegistrationId(int donationRegistrationId, HealthCheck updatedData) {
@@ -35,7 +39,9 @@ public class HealthCheckService {
         existing.setFitToDonate(updatedData.isFitToDonate());
         existing.setNote(updatedData.getNote());
 
-        return healthCheckRepository.save(existing);
+        HealthCheck saved = healthCheckRepository.save(existing);
+        refreshDonor(existing.getDonationRegistration());
+        return saved;
     }
 
 
@@ -52,4 +58,11 @@ public class HealthCheckService {
         return healthCheckRepository.getReferenceById((long)donationRegistration.getRegistrationId());
     }
 
+    // kết quả khám có thể đổi điều kiện hiến của người đăng ký
+    private void refreshDonor(DonationRegistration donationRegistration) {
+        if (donationRegistration != null && donationRegistration.getAccount() != null) {
+            donorEligibilityService.refresh(donationRegistration.getAccount().getAccountId());
+        }
+    }
+
 }
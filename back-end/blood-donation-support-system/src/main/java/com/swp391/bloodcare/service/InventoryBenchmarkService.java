@@ -0,0 +1,104 @@
+package com.swp391.bloodcare.service;
+
+import com.swp391.bloodcare.dto.log.InventoryBenchmarkReport;
+import com.swp391.bloodcare.entity.Blood;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/*
+Đo số lần cập nhật tồn kho / giây khi nhiều thread cùng sửa một mã máu (profile loadtest):
+- ledger: BloodInventoryLedger.apply (nhập: LongAdder + nhật ký delta, chờ xuống đĩa; xuất: một UPDATE có điều kiện)
+- JPA: mỗi lần một transaction, find(PESSIMISTIC_WRITE) -> setQuantity -> commit, tức đọc-sửa-ghi trên cùng một dòng blood
+Mỗi thread luân phiên +1 / -1 nên số tồn sau khi đo không đổi. Dùng chung MySQL với app, chạy lúc không có tải thật.
+ */
+@Service
+@Profile("loadtest")
+public class InventoryBenchmarkService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryBenchmarkService.class);
+
+    @Autowired
+    private BloodInventoryLedger bloodInventoryLedger;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${blood-inventory.wal-sync:true}")
+    private boolean walSync;
+
+    public synchronized InventoryBenchmarkReport run(int bloodCode, int threads, long durationMs) {
+        if (threads <= 0 || threads > 1000 || durationMs <= 0 || durationMs > 600_000) {
+            throw new IllegalArgumentException("Tham số đo tồn kho không hợp lệ");
+        }
+        InventoryBenchmarkReport report = new InventoryBenchmarkReport();
+        report.setBloodCode(bloodCode);
+        report.setThreads(threads);
+        report.setDurationMs(durationMs);
+        report.setWalSync(walSync);
+        report.setQuantityBefore(bloodInventoryLedger.quantity(bloodCode));
+
+        long ledgerUpdates = measure(threads, durationMs,
+                delta -> bloodInventoryLedger.apply(bloodCode, delta, 0));
+        report.setLedgerUpdates(ledgerUpdates);
+        report.setLedgerUpdatesPerSecond(ledgerUpdates * 1000.0 / durationMs);
+        //để phần delta của lượt ledger vào DB trước khi JPA đọc dòng blood
+        bloodInventoryLedger.flush();
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long jpaUpdates = measure(threads, durationMs, delta -> tx.executeWithoutResult(status -> {
+            Blood blood = entityManager.find(Blood.class, bloodCode, LockModeType.PESSIMISTIC_WRITE);
+            blood.setQuantity(blood.getQuantity() + delta);
+        }));
+        report.setJpaUpdates(jpaUpdates);
+        report.setJpaUpdatesPerSecond(jpaUpdates * 1000.0 / durationMs);
+        report.setSpeedup(jpaUpdates == 0 ? 0 : (double) ledgerUpdates / jpaUpdates);
+        report.setQuantityAfter(bloodInventoryLedger.quantity(bloodCode));
+
+        log.info("Inventory benchmark blood {} x{} threads: ledger {} upd/s, JPA {} upd/s",
+                bloodCode, threads, String.format("%.0f", report.getLedgerUpdatesPerSecond()),
+                String.format("%.0f", report.getJpaUpdatesPerSecond()));
+        return report;
+    }
+
+    //mỗi thread gọi update(+1) rồi update(-1) tới hết giờ; trả về tổng số lần cập nhật
+    private static long measure(int threads, long durationMs, IntConsumer update) {
+        LongAdder updates = new LongAdder();
+        long deadline = System.nanoTime() + durationMs * 1_000_000;
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(Thread.ofVirtual().name("inventory-bench-", i).start(() -> {
+                while (System.nanoTime() < deadline) {
+                    update.accept(1);
+                    update.accept(-1);
+                    updates.add(2);
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return updates.sum();
+    }
+}
@@ -0,0 +1,185 @@
+package com.swp391.bloodcare.service;
+
+import com.swp391.bloodcare.dto.log.LoadTestReport;
+import com.swp391.bloodcare.dto.log.NotificationRecipient;
+import com.swp391.bloodcare.entity.NotificationJob;
+import com.swp391.bloodcare.infra.LoadTestSmtpServer;
+import com.swp391.bloodcare.repository.NotificationJobRepository;
+import com.swp391.bloodcare.util.UuidV7;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Đo gửi thông báo đầu-cuối với SMTP server trong process (profile loadtest):
+- tạo job + N người nhận giả (@loadtest.invalid) đi qua đúng đường thật:
+  outbox -> worker -> EmailSender -> SmtpTransportPool -> phiên SMTP qua TCP
+- đo độ trễ từ lúc tạo job tới lúc server nhận từng thư (p50/p99/max), số thư/giây và số phiên SMTP đã mở
+- lỗi tiêm vào: tỉ lệ lỗi tạm thời, số địa chỉ bounce trên 1000, outage trong khoảng đầu lượt đo
+- mỗi lượt chạy một mình (synchronized), xong thì xóa job + outbox của lượt đó
+Cần MySQL local như khi chạy app bình thường, không cần mạng ra ngoài.
+ */
+@Service
+@Profile("loadtest")
+public class LoadTestService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestService.class);
+
+    private static final String DOMAIN = "@loadtest.invalid";
+
+    @Autowired
+    private LoadTestSmtpServer smtpServer;
+
+    @Autowired
+    private NotificationOutboxService notificationOutboxService;
+
+    @Autowired
+    private NotificationJobRepository notificationJobRepository;
+
+    @Autowired
+    private EmailSender emailSender;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${loadtest.seed:42}")
+    private long seed;
+
+    @Value("${loadtest.timeout-ms:600000}")
+    private long timeoutMs;
+
+    @Value("${loadtest.sizes:1000,10000,100000}")
+    private int[] sizes;
+
+    public synchronized List<LoadTestReport> runSuite(double transientFailureRate, int bouncePerThousand, long outageMs) {
+        List<LoadTestReport> reports = new ArrayList<>();
+        for (int size : sizes) {
+            reports.add(run(size, transientFailureRate, bouncePerThousand, outageMs));
+        }
+        return reports;
+    }
+
+    public synchronized LoadTestReport run(int recipients, double transientFailureRate, int bouncePerThousand, long outageMs) {
+        if (recipients <= 0 || transientFailureRate < 0 || transientFailureRate >= 1
+                || bouncePerThousand < 0 || bouncePerThousand > 1000 || outageMs < 0) {
+            throw new IllegalArgumentException("Tham số load test không hợp lệ");
+        }
+        LoadTestReport report = new LoadTestReport();
+        report.setRecipients(recipients);
+        report.setTransientFailureRate(transientFailureRate);
+        report.setBouncePerThousand(bouncePerThousand);
+        report.setOutageMs(outageMs);
+
+        //at-least-once: thư có thể tới hơn một lần, chỉ giữ lần đầu của mỗi slot
+        long[] latencies = new long[recipients];
+        AtomicInteger recorded = new AtomicInteger();
+        long start = System.nanoTime();
+        smtpServer.reset(seed, transientFailureRate, recipient -> {
+            int slot = recorded.getAndIncrement();
+            if (slot < latencies.length) {
+                latencies[slot] = System.nanoTime() - start;
+            }
+        });
+
+        String jobId = UuidV7.nextString();
+        notificationJobRepository.save(new NotificationJob(jobId,
+                "Load test " + recipients,
+                "Xin chào {name}, đây là thư thử tải gửi tới {email} ({district}).",
+                null, null, null, LocalDateTime.now()));
+        try {
+            if (outageMs > 0) {
+                smtpServer.setOutage(true);
+                Thread.ofVirtual().name("loadtest-outage").start(() -> {
+                    try {
+                        Thread.sleep(outageMs);
+                    } catch (InterruptedException ignored) {
+                        Thread.currentThread().interrupt();
+                    }
+                    smtpServer.setOutage(false);
+                });
+            }
+
+            int bounceEvery = bouncePerThousand == 0 ? 0 : Math.max(1, 1000 / bouncePerThousand);
+            //job mới nên afterEmail luôn null, không cần giữ thứ tự email
+            notificationOutboxService.enqueue(jobId, (afterEmail, consumer) -> {
+                for (int i = 0; i < recipients; i++) {
+                    String local = bounceEvery > 0 && i % bounceEvery == 0 ? "bounce-" + i : "donor-" + i;
+                    consumer.accept(new NotificationRecipient(local + DOMAIN, "Donor " + i, "Quận " + (i % 12 + 1), null, null));
+                }
+            });
+            report.setEnqueueMs((System.nanoTime() - start) / 1_000_000);
+
+            Map<String, Integer> counts = waitForDrain(jobId, start);
+            report.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+            report.setTimedOut(pending(counts) > 0);
+            report.setSent(counts.getOrDefault(NotificationOutboxService.SENT, 0));
+            report.setFailed(counts.getOrDefault(NotificationOutboxService.FAILED, 0));
+            report.setPending(pending(counts));
+        } finally {
+            smtpServer.setListener(null);
+            smtpServer.setOutage(false);
+            jdbcTemplate.update("DELETE FROM notification_outbox WHERE job_id = ?", jobId);
+            notificationJobRepository.deleteById(jobId);
+        }
+
+        int samples = Math.min(recorded.get(), latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        report.setDelivered(smtpServer.getDelivered());
+        report.setP50Ms(percentile(sorted, 0.50));
+        report.setP99Ms(percentile(sorted, 0.99));
+        report.setMaxMs(samples == 0 ? 0 : sorted[samples - 1] / 1_000_000);
+        //tính tới thư cuối cùng tới nơi, không tính thời gian chờ dòng FAILED
+        long lastNanos = samples == 0 ? 1 : Math.max(1, sorted[samples - 1]);
+        report.setMessagesPerSecond(samples * 1_000_000_000.0 / lastNanos);
+        report.setInjectedTransient(smtpServer.getInjectedTransient());
+        report.setInjectedPermanent(smtpServer.getInjectedPermanent());
+        report.setOutageRejected(smtpServer.getOutageRejected());
+        report.setSmtpSessions(smtpServer.getSessions());
+        report.setCircuitState(emailSender.getCircuitState().name());
+
+        log.info("Load test {} recipients: {} msg/s, p50 {} ms, p99 {} ms, sent {}, failed {}, pending {}",
+                recipients, String.format("%.0f", report.getMessagesPerSecond()), report.getP50Ms(), report.getP99Ms(),
+                report.getSent(), report.getFailed(), report.getPending());
+        return report;
+    }
+
+    private Map<String, Integer> waitForDrain(String jobId, long start) {
+        long deadline = start + timeoutMs * 1_000_000;
+        Map<String, Integer> counts = notificationOutboxService.countByStatus(jobId);
+        while (pending(counts) > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            counts = notificationOutboxService.countByStatus(jobId);
+        }
+        return counts;
+    }
+
+    private static int pending(Map<String, Integer> counts) {
+        return counts.getOrDefault(NotificationOutboxService.PENDING, 0)
+                + counts.getOrDefault(NotificationOutboxService.SENDING, 0);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000;
+    }
+}
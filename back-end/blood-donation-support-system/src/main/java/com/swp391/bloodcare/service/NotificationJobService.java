@@ -0,0 +1,198 @@
+package com.swp391.bloodcare.service;
+
+import com.swp391.bloodcare.dto.log.BloodNotificationRequest;
+import com.swp391.bloodcare.dto.log.NotificationJobStatus;
+import com.swp391.bloodcare.entity.NotificationJob;
+import com.swp391.bloodcare.entity.NotificationTemplate;
+import com.swp391.bloodcare.repository.NotificationJobRepository;
+import com.swp391.bloodcare.util.BloodCompatibility;
+import com.swp391.bloodcare.util.UuidV7;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+Gửi thông báo kêu gọi hiến máu dưới dạng job chạy nền:
+- submit() lưu job (QUEUED) rồi trả về ngay (controller trả 202 + jobId)
+- một virtual thread ghi danh sách người nhận vào notification_outbox, worker của
+  NotificationOutboxService (trên mọi node) gửi dần
+- app dừng trước khi ghi outbox -> job vẫn QUEUED, lúc khởi động ghi lại;
+  node chết khi đang ghi dở (ENQUEUING) -> hết lease thì node còn chạy ghi tiếp từ lô cuối đã commit
+- số đã gửi / lỗi / còn chờ đếm từ outbox
+- nội dung có thể lấy từ template đã lưu; template + biến được kiểm tra ngay khi submit
+ */
+@Service
+public class NotificationJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationJobService.class);
+
+    public enum JobStatus {
+        QUEUED, ENQUEUING, RUNNING, COMPLETED, FAILED
+    }
+
+    @Autowired
+    private BloodNotificationService bloodNotificationService;
+
+    @Autowired
+    private NotificationOutboxService notificationOutboxService;
+
+    @Autowired
+    private NotificationJobRepository notificationJobRepository;
+
+    @Autowired
+    private NotificationTemplateService notificationTemplateService;
+
+    @Autowired
+    private BloodCompatibilityService bloodCompatibilityService;
+
+    private ExecutorService dispatcher;
+
+    @PostConstruct
+    void init() {
+        dispatcher = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("noti-job-", 0).factory());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    //request sai (vd: nhóm máu, template, biến không hợp lệ) -> IllegalArgumentException, không tạo job
+    public NotificationJobStatus submit(BloodNotificationRequest request) {
+        String recipientGroup = null;
+        if (request.getRecipientGroup() != null && !request.getRecipientGroup().isBlank()) {
+            //đổi thành danh sách nhóm người hiến tương thích, job lưu danh sách này như bloodGroups thường
+            int group = BloodCompatibility.parseGroup(request.getRecipientGroup());
+            BloodCompatibility.ComponentKind kind = bloodCompatibilityService.parseKind(request.getComponent());
+            recipientGroup = BloodCompatibility.groupName(group);
+            request.setBloodGroups(BloodCompatibility.groupNames(BloodCompatibility.donorMask(kind, group)));
+        }
+        BloodNotificationService.RecipientFilter filter = bloodNotificationService.buildFilter(request);
+
+        String subject = request.getSubject();
+        String content = request.getContent();
+        if (request.getTemplateName() != null && !request.getTemplateName().isBlank()) {
+            NotificationTemplate template = notificationTemplateService.find(request.getTemplateName())
+                    .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy template: " + request.getTemplateName()));
+            subject = template.getSubject();
+            content = template.getBody();
+        }
+        if (subject == null || subject.isBlank()) {
+            throw new IllegalArgumentException("Thiếu tiêu đề thông báo");
+        }
+
+        Map<String, String> variables = new HashMap<>();
+        if (request.getBloodGroups() != null && !request.getBloodGroups().isEmpty()) {
+            variables.put("bloodGroups", String.join(", ", request.getBloodGroups()));
+        }
+        if (recipientGroup != null) {
+            variables.put("recipientGroup", recipientGroup);
+        }
+        if (request.getVariables() != null) {
+            variables.putAll(request.getVariables());
+        }
+        notificationTemplateService.prepare(subject, content, variables);
+
+        NotificationJob job = notificationJobRepository.save(new NotificationJob(
+                UuidV7.nextString(),
+                subject,
+                content,
+                notificationTemplateService.writeVariables(variables),
+                request.getDistrict(),
+                request.getBloodGroups() == null ? null : String.join(",", request.getBloodGroups()),
+                LocalDateTime.now()));
+        dispatcher.execute(() -> enqueue(job.getId(), filter));
+        return toStatus(job, Map.of(), 0);
+    }
+
+    public Optional<NotificationJobStatus> getStatus(String jobId) {
+        return notificationJobRepository.findById(jobId)
+                .map(job -> toStatus(job,
+                        notificationOutboxService.countByStatus(jobId),
+                        notificationOutboxService.countRetrying(jobId)));
+    }
+
+    //job QUEUED còn sót từ lần chạy trước (app dừng khi chưa ghi outbox) -> ghi lại
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeQueuedJobs() {
+        resume(notificationJobRepository.findByStatus(JobStatus.QUEUED.name()));
+        resumeStalledJobs();
+    }
+
+    //job đang ghi outbox dở mà node ghi đã hết lease (chết / treo) -> ghi tiếp; enqueue() chỉ để một node nhận
+    @Scheduled(initialDelayString = "${notification.outbox.reaper-interval-ms:60000}",
+            fixedDelayString = "${notification.outbox.reaper-interval-ms:60000}")
+    public void resumeStalledJobs() {
+        resume(notificationJobRepository.findByStatusAndLeaseUntilBefore(JobStatus.ENQUEUING.name(), LocalDateTime.now()));
+    }
+
+    private void resume(List<NotificationJob> jobs) {
+        for (NotificationJob job : jobs) {
+            BloodNotificationRequest request = new BloodNotificationRequest();
+            request.setDistrict(job.getDistrict());
+            request.setBloodGroups(job.getBloodGroups() == null ? null : Arrays.asList(job.getBloodGroups().split(",")));
+            try {
+                BloodNotificationService.RecipientFilter filter = bloodNotificationService.buildFilter(request);
+                log.info("Resuming notification job {}", job.getId());
+                dispatcher.execute(() -> enqueue(job.getId(), filter));
+            } catch (IllegalArgumentException e) {
+                markFailed(job.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void enqueue(String jobId, BloodNotificationService.RecipientFilter filter) {
+        long start = System.currentTimeMillis();
+        try {
+            int total = notificationOutboxService.enqueue(jobId, filter);
+            log.info("Notification job {} queued {} recipients in {} ms", jobId, total, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Notification job {} failed", jobId, e);
+            markFailed(jobId, e.getMessage());
+        }
+    }
+
+    private void markFailed(String jobId, String error) {
+        notificationJobRepository.findById(jobId).ifPresent(job -> {
+            job.setStatus(JobStatus.FAILED.name());
+            job.setError(error);
+            job.setFinishedAt(LocalDateTime.now());
+            notificationJobRepository.save(job);
+        });
+    }
+
+    private NotificationJobStatus toStatus(NotificationJob job, Map<String, Integer> counts, int retrying) {
+        int total = job.getTotal() == null ? -1 : job.getTotal();
+        int sent = counts.getOrDefault(NotificationOutboxService.SENT, 0);
+        int failed = counts.getOrDefault(NotificationOutboxService.FAILED, 0);
+        int pending = counts.getOrDefault(NotificationOutboxService.PENDING, 0)
+                + counts.getOrDefault(NotificationOutboxService.SENDING, 0);
+        return new NotificationJobStatus(
+                job.getId(),
+                job.getStatus(),
+                total,
+                sent,
+                failed,
+                retrying,
+                pending,
+                Timestamp.valueOf(job.getCreatedAt()),
+                job.getFinishedAt() == null ? null : Timestamp.valueOf(job.getFinishedAt()),
+                job.getError());
+    }
+}
@@ -0,0 +1,503 @@
+package com.swp391.bloodcare.service;
+
+import com.swp391.bloodcare.dto.log.NotificationRecipient;
+import com.swp391.bloodcare.entity.NotificationJob;
+import com.swp391.bloodcare.repository.NotificationJobRepository;
+import com.swp391.bloodcare.util.ExpiringCache;
+import com.swp391.bloodcare.util.UuidV7;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+
+/*
+Outbox cho email thông báo (bảng notification_outbox):
+- enqueue(): nhận job (QUEUED -> ENQUEUING, có lease) trong một transaction ngắn, stream người nhận theo email
+  và ghi outbox bằng JDBC batch, mỗi insert-batch-size người nhận một transaction riêng; cùng transaction đó
+  lưu email cuối đã ghi (enqueue_cursor) và gia hạn lease -> job bị ngắt giữa chừng (node chết) được
+  NotificationJobService giao lại khi hết lease và ghi tiếp từ enqueue_cursor, không ghi trùng người nhận
+- mỗi node chạy notification.outbox.workers virtual thread, mỗi thread lặp:
+  nhận một lô bằng SELECT ... FOR UPDATE SKIP LOCKED (các node không tranh nhau dòng, không chờ lock),
+  đánh dấu SENDING + lease_until, commit, gửi, rồi đánh dấu SENT / FAILED / PENDING (chờ backoff)
+- nội dung render riêng cho từng người nhận từ template đã compile của job (cache theo job)
+- cùng transaction ghi luôn thông báo trong app (bảng notification); account đang kết nối SSE được đẩy sau commit
+- kênh và giờ yên lặng theo tùy chọn người nhận: email trong giờ yên lặng có available_at = lúc hết giờ yên lặng
+- node chết khi đang gửi -> hết lease thì dòng quay lại PENDING; giao ít nhất một lần:
+  email gửi xong nhưng chưa kịp đánh dấu SENT có thể bị gửi lại
+ */
+@Service
+public class NotificationOutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationOutboxService.class);
+
+    public static final String PENDING = "PENDING";
+    public static final String SENDING = "SENDING";
+    public static final String SENT = "SENT";
+    public static final String FAILED = "FAILED";
+
+    private static final String INSERT_OUTBOX =
+            "INSERT INTO notification_outbox (job_id, email, name, district, rest_date, status, attempts, available_at, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, 'PENDING', 0, ?, ?)";
+
+    private static final String CLAIM_SELECT =
+            "SELECT id, job_id, email, name, district, rest_date FROM notification_outbox " +
+            "WHERE status = 'PENDING' AND available_at <= ? ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String CLAIM_UPDATE =
+            "UPDATE notification_outbox SET status = 'SENDING', claimed_by = :node, lease_until = :leaseUntil, " +
+            "attempts = attempts + 1 WHERE id IN (:ids)";
+
+    public record OutboxRow(long id, String jobId, String email, String name, String district, LocalDate restDate) {
+    }
+
+    //nguồn người nhận cho enqueue: gọi consumer theo email tăng dần, chỉ các email > afterEmail (null = từ đầu),
+    //để job bị ngắt giữa chừng ghi tiếp đúng từ lô cuối đã commit
+    @FunctionalInterface
+    public interface RecipientSource {
+        void forEach(String afterEmail, Consumer<NotificationRecipient> consumer);
+    }
+
+    // job đã nhận để ghi outbox: email cuối đã ghi (null = chưa ghi gì) và số email đã ghi
+    private record EnqueueClaim(String cursor, int total) {
+    }
+
+    // node khác đã nhận job đang ghi outbox (lease của node này hết hạn)
+    private static class LeaseLostException extends RuntimeException {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private NotificationJobRepository notificationJobRepository;
+
+    @Autowired
+    private BloodNotificationService bloodNotificationService;
+
+    @Autowired
+    private EmailSender emailSender;
+
+    @Autowired
+    private NotificationTemplateService notificationTemplateService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.outbox.workers:4}")
+    private int workers;
+
+    @Value("${notification.outbox.insert-batch-size:1000}")
+    private int insertBatchSize;
+
+    @Value("${notification.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${notification.outbox.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${notification.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${notification.outbox.retry-delay-ms:60000}")
+    private long retryDelayMs;
+
+    @Value("${notification.outbox.retention-ms:604800000}")
+    private long retentionMs;
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private volatile boolean running;
+
+    // template đã chuẩn bị theo job, tránh đọc lại notification_job và compile lại cho mỗi lô
+    private final ExpiringCache<String, NotificationTemplateService.PreparedNotification> prepared = new ExpiringCache<>(1000);
+
+    private TransactionTemplate tx;
+    // mỗi lô người nhận commit riêng, kể cả khi đang nằm trong transaction đọc stream người nhận
+    private TransactionTemplate chunkTx;
+    private Counter claimedCounter;
+    private Counter sentCounter;
+    private Counter failedCounter;
+    private Counter retriedCounter;
+    private Counter leaseExpiredCounter;
+
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(transactionManager);
+        chunkTx = new TransactionTemplate(transactionManager);
+        chunkTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        claimedCounter = Counter.builder("notification.outbox.claimed").register(meterRegistry);
+        sentCounter = Counter.builder("notification.outbox.delivered").tag("result", "sent").register(meterRegistry);
+        failedCounter = Counter.builder("notification.outbox.delivered").tag("result", "failed").register(meterRegistry);
+        retriedCounter = Counter.builder("notification.outbox.delivered").tag("result", "retry").register(meterRegistry);
+        leaseExpiredCounter = Counter.builder("notification.outbox.lease_expired").register(meterRegistry);
+
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            workerThreads.add(Thread.ofVirtual().name("outbox-worker-" + i).start(this::workLoop));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        workerThreads.forEach(Thread::interrupt);
+    }
+
+    //ghi outbox cho job QUEUED (hoặc ENQUEUING bị bỏ dở) rồi chuyển job sang RUNNING; trả về số email của job
+    //(0 nếu job đã / đang được node khác ghi outbox)
+    public int enqueue(String jobId, BloodNotificationService.RecipientFilter filter) {
+        return enqueue(jobId, (afterEmail, consumer) -> bloodNotificationService.forEachRecipient(filter, afterEmail, consumer));
+    }
+
+    //như trên nhưng với nguồn người nhận tùy ý (vd: load test dùng người nhận giả)
+    public int enqueue(String jobId, RecipientSource recipients) {
+        //nhận job trong transaction ngắn, không giữ lock dòng job trong lúc đọc người nhận
+        EnqueueClaim claim = claimEnqueue(jobId);
+        if (claim == null) {
+            return 0;
+        }
+
+        NotificationTemplateService.PreparedNotification notification = prepared(jobId);
+        List<NotificationRecipient> buffer = new ArrayList<>(insertBatchSize);
+        //total của job = số email cần gửi (người tắt email chỉ nhận thông báo trong app)
+        int[] emails = {claim.total()};
+        try {
+            recipients.forEach(claim.cursor(), recipient -> {
+                buffer.add(recipient);
+                if (buffer.size() >= insertBatchSize) {
+                    emails[0] += commitChunk(jobId, buffer, notification);
+                    buffer.clear();
+                }
+            });
+            if (!buffer.isEmpty()) {
+                emails[0] += commitChunk(jobId, buffer, notification);
+            }
+        } catch (LeaseLostException e) {
+            //node khác đã nhận job và ghi tiếp từ lô cuối đã commit
+            log.warn("Lost enqueue lease of notification job {}, another node continues it", jobId);
+            return 0;
+        }
+
+        int count = emails[0];
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int finished = jdbcTemplate.update("UPDATE notification_job SET status = ?, total = ?, finished_at = ?, " +
+                        "claimed_by = NULL, lease_until = NULL WHERE id = ? AND status = ? AND claimed_by = ?",
+                count == 0 ? NotificationJobService.JobStatus.COMPLETED.name() : NotificationJobService.JobStatus.RUNNING.name(),
+                count, count == 0 ? now : null, jobId, NotificationJobService.JobStatus.ENQUEUING.name(), nodeId);
+        if (finished == 0) {
+            log.warn("Lost enqueue lease of notification job {}, another node continues it", jobId);
+            return 0;
+        }
+        return count;
+    }
+
+    //số dòng outbox của job theo trạng thái
+    public Map<String, Integer> countByStatus(String jobId) {
+        Map<String, Integer> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT status, COUNT(*) FROM notification_outbox WHERE job_id = ? GROUP BY status",
+                rs -> {
+                    counts.put(rs.getString(1), rs.getInt(2));
+                }, jobId);
+        return counts;
+    }
+
+    //số dòng đang chờ gửi lại sau lỗi
+    public int countRetrying(String jobId) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM notification_outbox WHERE job_id = ? AND status = 'PENDING' AND attempts > 0",
+                Integer.class, jobId);
+        return count == null ? 0 : count;
+    }
+
+    //nhận một lô dòng PENDING cho node này; các node khác bỏ qua dòng đã bị khóa
+    public List<OutboxRow> claim(int limit) {
+        List<OutboxRow> rows = tx.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxRow> claimed = jdbcTemplate.query(CLAIM_SELECT,
+                    (rs, i) -> new OutboxRow(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                            rs.getString(5), rs.getObject(6, LocalDate.class)),
+                    Timestamp.valueOf(now), limit);
+            if (!claimed.isEmpty()) {
+                namedJdbcTemplate.update(CLAIM_UPDATE, new MapSqlParameterSource()
+                        .addValue("node", nodeId)
+                        .addValue("leaseUntil", Timestamp.valueOf(now.plus(Duration.ofMillis(leaseMs))))
+                        .addValue("ids", claimed.stream().map(OutboxRow::id).toList()));
+            }
+            return claimed;
+        });
+        claimedCounter.increment(rows == null ? 0 : rows.size());
+        return rows == null ? List.of() : rows;
+    }
+
+    //dòng đang SENDING mà hết lease (node gửi đã chết) -> PENDING lại; job không còn dòng chờ -> COMPLETED
+    @Scheduled(fixedDelayString = "${notification.outbox.reaper-interval-ms:60000}")
+    public void reap() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int expired = jdbcTemplate.update(
+                "UPDATE notification_outbox SET status = CASE WHEN attempts >= ? THEN 'FAILED' ELSE 'PENDING' END, " +
+                "claimed_by = NULL, lease_until = NULL, last_error = 'lease expired' " +
+                "WHERE status = 'SENDING' AND lease_until < ?", maxAttempts, now);
+        if (expired > 0) {
+            leaseExpiredCounter.increment(expired);
+            log.warn("Released {} outbox rows with expired lease", expired);
+        }
+
+        jdbcTemplate.update(
+                "UPDATE notification_job j SET j.status = 'COMPLETED', j.finished_at = ? " +
+                "WHERE j.status = 'RUNNING' AND NOT EXISTS (SELECT 1 FROM notification_outbox o " +
+                "WHERE o.job_id = j.id AND o.status IN ('PENDING', 'SENDING'))", now);
+
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(Duration.ofMillis(retentionMs)));
+        jdbcTemplate.update("DELETE FROM notification_outbox WHERE status IN ('SENT', 'FAILED') AND created_at < ?", cutoff);
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                List<OutboxRow> rows = claim(emailSender.getBatchSize());
+                if (rows.isEmpty()) {
+                    Thread.sleep(pollIntervalMs);
+                    continue;
+                }
+                deliver(rows);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Outbox worker error: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deliver(List<OutboxRow> rows) {
+        Map<String, List<OutboxRow>> byJob = new LinkedHashMap<>();
+        for (OutboxRow row : rows) {
+            byJob.computeIfAbsent(row.jobId(), k -> new ArrayList<>()).add(row);
+        }
+
+        for (Map.Entry<String, List<OutboxRow>> entry : byJob.entrySet()) {
+            //cùng một email chỉ gửi một thư
+            Map<String, List<Long>> idsByEmail = new HashMap<>();
+            Map<String, OutboxRow> firstByEmail = new LinkedHashMap<>();
+            for (OutboxRow row : entry.getValue()) {
+                idsByEmail.computeIfAbsent(row.email(), k -> new ArrayList<>()).add(row.id());
+                firstByEmail.putIfAbsent(row.email(), row);
+            }
+
+            NotificationTemplateService.PreparedNotification notification;
+            try {
+                notification = prepared(entry.getKey());
+            } catch (IllegalArgumentException e) {
+                markFailed(ids(idsByEmail, idsByEmail.keySet()), e.getMessage());
+                continue;
+            }
+            if (notification == null) {
+                markFailed(ids(idsByEmail, idsByEmail.keySet()), "job not found");
+                continue;
+            }
+
+            List<EmailSender.Mail> mails = new ArrayList<>(firstByEmail.size());
+            for (OutboxRow row : firstByEmail.values()) {
+                mails.add(notification.render(row.email(), row.name(), row.district(), row.restDate()));
+            }
+            EmailSender.BatchResult result = emailSender.sendMailsWithoutParking(mails);
+
+            Set<String> notSent = new HashSet<>(result.permanentFailures());
+            notSent.addAll(result.transientFailures());
+            notSent.addAll(result.deferred());
+            Set<String> sent = new HashSet<>(idsByEmail.keySet());
+            sent.removeAll(notSent);
+
+            markSent(ids(idsByEmail, sent));
+            markFailed(ids(idsByEmail, result.permanentFailures()), "permanent failure");
+            markRetry(ids(idsByEmail, result.transientFailures()), false);
+            //breaker mở / hết phiên SMTP: chưa gọi SMTP nên không tính là một lần thử
+            markRetry(ids(idsByEmail, result.deferred()), true);
+        }
+    }
+
+    //null nếu job đã bị xóa; template/biến sai -> IllegalArgumentException
+    private NotificationTemplateService.PreparedNotification prepared(String jobId) {
+        NotificationTemplateService.PreparedNotification notification = prepared.get(jobId);
+        if (notification == null) {
+            Optional<NotificationJob> job = notificationJobRepository.findById(jobId);
+            if (job.isEmpty()) {
+                return null;
+            }
+            notification = notificationTemplateService.prepare(job.get().getSubject(), job.get().getContent(),
+                    notificationTemplateService.readVariables(job.get().getVariables()));
+            prepared.put(jobId, notification, System.currentTimeMillis() + 600_000);
+        }
+        return notification;
+    }
+
+    private void markSent(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        //chỉ dòng node này còn giữ: hết lease thì dòng đã về PENDING / sang node khác, không ghi đè
+        int updated = namedJdbcTemplate.update("UPDATE notification_outbox SET status = 'SENT', sent_at = :now, " +
+                        "claimed_by = NULL, lease_until = NULL WHERE id IN (:ids) AND status = 'SENDING' AND claimed_by = :node",
+                new MapSqlParameterSource("ids", ids)
+                        .addValue("now", Timestamp.valueOf(LocalDateTime.now()))
+                        .addValue("node", nodeId));
+        sentCounter.increment(updated);
+    }
+
+    private void markFailed(List<Long> ids, String error) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        int updated = namedJdbcTemplate.update("UPDATE notification_outbox SET status = 'FAILED', last_error = :error, " +
+                        "claimed_by = NULL, lease_until = NULL WHERE id IN (:ids) AND status = 'SENDING' AND claimed_by = :node",
+                new MapSqlParameterSource("ids", ids)
+                        .addValue("error", error)
+                        .addValue("node", nodeId));
+        failedCounter.increment(updated);
+    }
+
+    //trả dòng về PENDING, gửi lại sau retry-delay-ms; quá max-attempts -> FAILED
+    private void markRetry(List<Long> ids, boolean notAttempted) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        int updated = namedJdbcTemplate.update("UPDATE notification_outbox SET " +
+                        "attempts = attempts - :refund, " +
+                        "status = CASE WHEN attempts >= :maxAttempts THEN 'FAILED' ELSE 'PENDING' END, " +
+                        "available_at = :availableAt, last_error = :error, claimed_by = NULL, lease_until = NULL " +
+                        "WHERE id IN (:ids) AND status = 'SENDING' AND claimed_by = :node",
+                new MapSqlParameterSource("ids", ids)
+                        .addValue("refund", notAttempted ? 1 : 0)
+                        .addValue("maxAttempts", maxAttempts)
+                        .addValue("availableAt", Timestamp.valueOf(LocalDateTime.now().plus(Duration.ofMillis(retryDelayMs))))
+                        .addValue("error", notAttempted ? "smtp unavailable" : "transient failure")
+                        .addValue("node", nodeId));
+        retriedCounter.increment(updated);
+    }
+
+    //QUEUED, hoặc ENQUEUING mà node ghi trước đã hết lease -> node này ghi tiếp từ enqueue_cursor; null nếu không nhận được
+    private EnqueueClaim claimEnqueue(String jobId) {
+        return tx.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            int claimed = jdbcTemplate.update("UPDATE notification_job SET status = 'ENQUEUING', claimed_by = ?, lease_until = ? " +
+                            "WHERE id = ? AND (status = 'QUEUED' OR (status = 'ENQUEUING' AND lease_until < ?))",
+                    nodeId, Timestamp.valueOf(now.plus(Duration.ofMillis(leaseMs))), jobId, Timestamp.valueOf(now));
+            if (claimed == 0) {
+                return null;
+            }
+            return jdbcTemplate.queryForObject("SELECT enqueue_cursor, total FROM notification_job WHERE id = ?",
+                    (rs, i) -> new EnqueueClaim(rs.getString(1), rs.getInt(2)), jobId);
+        });
+    }
+
+    //một lô người nhận trong một transaction: outbox + thông báo trong app + con trỏ, lease và total của job;
+    //lease đã sang node khác -> LeaseLostException, lô bị rollback
+    private int commitChunk(String jobId, List<NotificationRecipient> rows,
+                            NotificationTemplateService.PreparedNotification notification) {
+        Integer emails = chunkTx.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            int emailCount = (int) rows.stream().filter(NotificationRecipient::isEmailEnabled).count();
+            //cập nhật dòng job trước: lock dòng job, node khác không thể nhận job giữa chừng lô này
+            int renewed = jdbcTemplate.update("UPDATE notification_job SET enqueue_cursor = ?, total = COALESCE(total, 0) + ?, " +
+                            "lease_until = ? WHERE id = ? AND status = 'ENQUEUING' AND claimed_by = ?",
+                    rows.get(rows.size() - 1).getEmail(), emailCount,
+                    Timestamp.valueOf(now.plus(Duration.ofMillis(leaseMs))), jobId, nodeId);
+            if (renewed == 0) {
+                throw new LeaseLostException();
+            }
+            //chỉ giữ thông báo của account đang online để đẩy SSE sau commit
+            List<NotificationService.Draft> online = new ArrayList<>();
+            int inserted = insertRows(jobId, rows, Timestamp.valueOf(now), notification, online);
+            notificationService.pushAfterCommit(online);
+            return inserted;
+        });
+        return emails == null ? 0 : emails;
+    }
+
+    //ghi thông báo trong app + outbox email theo kênh người nhận bật; trả về số dòng outbox
+    private int insertRows(String jobId, List<NotificationRecipient> rows, Timestamp now,
+                           NotificationTemplateService.PreparedNotification notification,
+                           List<NotificationService.Draft> online) {
+        if (notification != null) {
+            List<NotificationService.Draft> drafts = new ArrayList<>(rows.size());
+            for (NotificationRecipient row : rows) {
+                if (row.getAccountId() == null || !row.isInAppEnabled()) {
+                    continue;
+                }
+                EmailSender.Mail mail = notification.render(row.getEmail(), row.getName(), row.getDistrict(), row.getRestDate());
+                NotificationService.Draft draft = new NotificationService.Draft(UuidV7.nextString(), row.getAccountId(),
+                        mail.subject(), mail.body(), NotificationService.TYPE_BLOOD_CALL, now.toLocalDateTime());
+                drafts.add(draft);
+                if (notificationService.isOnline(row.getAccountId())) {
+                    online.add(draft);
+                }
+            }
+            notificationService.insert(drafts);
+        }
+        List<NotificationRecipient> emails = rows.stream().filter(NotificationRecipient::isEmailEnabled).toList();
+        if (emails.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_OUTBOX, emails, emails.size(), (ps, row) -> {
+            ps.setString(1, jobId);
+            ps.setString(2, row.getEmail());
+            ps.setString(3, row.getName());
+            ps.setString(4, row.getDistrict());
+            ps.setObject(5, row.getRestDate());
+            //giờ yên lặng -> chưa gửi trước khi hết giờ yên lặng
+            ps.setTimestamp(6, row.getNotBefore() == null ? now : Timestamp.valueOf(row.getNotBefore()));
+            ps.setTimestamp(7, now);
+        });
+        return emails.size();
+    }
+
+    private static List<Long> ids(Map<String, List<Long>> idsByEmail, Collection<String> emails) {
+        List<Long> ids = new ArrayList<>();
+        for (String email : emails) {
+            List<Long> forEmail = idsByEmail.get(email);
+            if (forEmail != null) {
+                ids.addAll(forEmail);
+            }
+        }
+        return ids;
+    }
+}
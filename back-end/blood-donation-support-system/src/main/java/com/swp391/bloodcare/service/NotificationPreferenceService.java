@@ -0,0 +1,277 @@
+package com.swp391.bloodcare.service;
+
+import com.swp391.bloodcare.dto.log.NotificationPreferenceDTO;
+import com.swp391.bloodcare.dto.log.NotificationRecipient;
+import com.swp391.bloodcare.entity.NotificationPreference;
+import com.swp391.bloodcare.repository.NotificationPreferenceRepository;
+import com.swp391.bloodcare.util.ConcurrentBitSet;
+import com.swp391.bloodcare.util.UuidBinaryConverter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Time;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+Tùy chọn nhận thông báo, áp dụng lúc chọn người nhận (BloodNotificationService) mà không query thêm:
+- chỉ account có dòng notification_preference mới có ordinal (số thứ tự nhỏ, cấp dần); account khác nhận tất cả
+- mỗi cờ là một bitset theo ordinal: tắt email, tắt trong app, hủy đăng ký, có giờ yên lặng;
+  giờ yên lặng lưu (phút bắt đầu << 16 | phút kết thúc) trong mảng int theo ordinal
+- lọc một người nhận = một lần tra map + vài phép test bit, 500k người nhận chỉ tốn vài ms
+- đổi tùy chọn thì sửa thẳng bit của ordinal đó; build lại định kỳ để nhận thay đổi từ node khác
+- snapshot lúc build có thể đã đọc dòng cũ của account vừa đổi -> thay đổi trong lúc build được ghi lại
+  và áp lên index mới ngay trước khi đổi (cùng lock với update), không bị index mới ghi đè
+ */
+@Service
+public class NotificationPreferenceService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationPreferenceService.class);
+
+    private static final UuidBinaryConverter ID_CONVERTER = new UuidBinaryConverter();
+
+    @Autowired
+    private NotificationPreferenceRepository notificationPreferenceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // index đang dùng; null khi chưa build xong -> không lọc
+    private volatile Index index;
+    // index đang build; khác null thì update() ghi thêm vào changedDuringRebuild
+    private Index building;
+    // account -> tùy chọn mới nhất đã lưu trong lúc build, áp lại trước khi đổi index
+    private final Map<String, NotificationPreference> changedDuringRebuild = new HashMap<>();
+    // giữ khi sửa index / building / changedDuringRebuild, không giữ trong lúc đọc DB
+    private final Object applyLock = new Object();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        Gauge.builder("notification_preference.accounts", this, s -> s.index == null ? 0 : s.index.ordinals.size())
+                .register(meterRegistry);
+        Gauge.builder("notification_preference.bytes", this, s -> s.index == null ? 0 : s.index.sizeInBytes())
+                .register(meterRegistry);
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${notification.preferences.rebuild-interval-ms:600000}",
+            fixedDelayString = "${notification.preferences.rebuild-interval-ms:600000}")
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification_preference", Long.class);
+            Index next = new Index((int) Math.max(1024, (count == null ? 0 : count) * 2));
+            synchronized (applyLock) {
+                changedDuringRebuild.clear();
+                building = next;
+            }
+
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(
+                        "SELECT account_id, email_enabled, in_app_enabled, unsubscribed, quiet_start, quiet_end " +
+                        "FROM notification_preference",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(1000);
+                return ps;
+            }, (ResultSet rs) -> {
+                Time quietStart = rs.getTime(5);
+                Time quietEnd = rs.getTime(6);
+                next.apply(ID_CONVERTER.convertToEntityAttribute(rs.getBytes(1)),
+                        rs.getBoolean(2), rs.getBoolean(3), rs.getBoolean(4),
+                        quietStart == null ? null : quietStart.toLocalTime(),
+                        quietEnd == null ? null : quietEnd.toLocalTime());
+            });
+
+            int replayed;
+            synchronized (applyLock) {
+                replayed = changedDuringRebuild.size();
+                changedDuringRebuild.values().forEach(next::apply);
+                index = next;
+                building = null;
+                changedDuringRebuild.clear();
+            }
+            log.info("Notification preference index rebuilt in {} ms: {} accounts, {} bytes, {} changes replayed",
+                    System.currentTimeMillis() - start, next.ordinals.size(), next.sizeInBytes(), replayed);
+        } catch (RuntimeException e) {
+            // giữ index cũ
+            log.warn("Could not rebuild notification preference index: {}", e.getMessage());
+        } finally {
+            synchronized (applyLock) {
+                building = null;
+                changedDuringRebuild.clear();
+            }
+        }
+    }
+
+    public NotificationPreferenceDTO get(String accountId) {
+        return notificationPreferenceRepository.findById(accountId)
+                .map(NotificationPreferenceService::toDTO)
+                .orElseGet(NotificationPreferenceDTO::new);
+    }
+
+    //giờ yên lặng phải có đủ cả hai đầu và khác nhau -> không thì IllegalArgumentException
+    public NotificationPreferenceDTO update(String accountId, NotificationPreferenceDTO request) {
+        LocalTime quietStart = request.getQuietStart();
+        LocalTime quietEnd = request.getQuietEnd();
+        if ((quietStart == null) != (quietEnd == null)) {
+            throw new IllegalArgumentException("Cần cả giờ bắt đầu và kết thúc của giờ yên lặng");
+        }
+        if (quietStart != null && quietStart.equals(quietEnd)) {
+            throw new IllegalArgumentException("Giờ bắt đầu và kết thúc của giờ yên lặng phải khác nhau");
+        }
+
+        NotificationPreference preference = notificationPreferenceRepository.findById(accountId)
+                .orElseGet(() -> new NotificationPreference(accountId));
+        preference.setEmailEnabled(request.isEmailEnabled());
+        preference.setInAppEnabled(request.isInAppEnabled());
+        preference.setUnsubscribed(request.isUnsubscribed());
+        preference.setQuietStart(quietStart);
+        preference.setQuietEnd(quietEnd);
+        preference.setUpdatedAt(LocalDateTime.now());
+        NotificationPreference saved = notificationPreferenceRepository.save(preference);
+
+        apply(saved);
+        return toDTO(saved);
+    }
+
+    /*
+    Áp dụng tùy chọn cho một người nhận: false -> bỏ qua người này.
+    Có giữ lại thì đặt emailEnabled / inAppEnabled, và notBefore nếu now nằm trong giờ yên lặng.
+     */
+    public boolean applyTo(NotificationRecipient recipient, LocalDateTime now) {
+        Index current = index;
+        if (current == null || recipient.getAccountId() == null) {
+            return true;
+        }
+        Integer ordinal = current.ordinals.get(recipient.getAccountId());
+        if (ordinal == null) {
+            return true;
+        }
+        int i = ordinal;
+        if (current.unsubscribed.get(i)) {
+            return false;
+        }
+        boolean email = !current.emailOff.get(i);
+        boolean inApp = !current.inAppOff.get(i);
+        if (!email && !inApp) {
+            return false;
+        }
+        recipient.setEmailEnabled(email);
+        recipient.setInAppEnabled(inApp);
+        if (email && current.quiet.get(i)) {
+            recipient.setNotBefore(quietUntil(current.quietWindows.get(i), now));
+        }
+        return true;
+    }
+
+    private void apply(NotificationPreference preference) {
+        synchronized (applyLock) {
+            Index current = index;
+            if (current != null) {
+                current.apply(preference);
+            }
+            if (building != null) {
+                changedDuringRebuild.put(preference.getAccountId(), preference);
+            }
+        }
+    }
+
+    //null nếu now không nằm trong giờ yên lặng, không thì thời điểm kết thúc gần nhất
+    static LocalDateTime quietUntil(int window, LocalDateTime now) {
+        int start = window >>> 16;
+        int end = window & 0xFFFF;
+        int minute = now.getHour() * 60 + now.getMinute();
+        boolean inside = start < end
+                ? minute >= start && minute < end
+                : minute >= start || minute < end;
+        if (!inside) {
+            return null;
+        }
+        LocalDateTime until = now.toLocalDate().atTime(end / 60, end % 60);
+        return until.isAfter(now) ? until : until.plusDays(1);
+    }
+
+    private static NotificationPreferenceDTO toDTO(NotificationPreference preference) {
+        return new NotificationPreferenceDTO(
+                preference.isEmailEnabled(),
+                preference.isInAppEnabled(),
+                preference.isUnsubscribed(),
+                preference.getQuietStart(),
+                preference.getQuietEnd());
+    }
+
+    private static final class Index {
+        private final Map<String, Integer> ordinals = new ConcurrentHashMap<>();
+        private int nextOrdinal;
+        private final ConcurrentBitSet emailOff;
+        private final ConcurrentBitSet inAppOff;
+        private final ConcurrentBitSet unsubscribed;
+        private final ConcurrentBitSet quiet;
+        private volatile AtomicIntegerArray quietWindows;
+
+        private Index(int capacity) {
+            emailOff = new ConcurrentBitSet(capacity);
+            inAppOff = new ConcurrentBitSet(capacity);
+            unsubscribed = new ConcurrentBitSet(capacity);
+            quiet = new ConcurrentBitSet(capacity);
+            quietWindows = new AtomicIntegerArray(capacity);
+        }
+
+        void apply(NotificationPreference preference) {
+            apply(preference.getAccountId(), preference.isEmailEnabled(), preference.isInAppEnabled(),
+                    preference.isUnsubscribed(), preference.getQuietStart(), preference.getQuietEnd());
+        }
+
+        //một writer tại một thời điểm: bit giờ yên lặng chỉ bật sau khi đã ghi cửa sổ
+        synchronized void apply(String accountId, boolean emailEnabled, boolean inAppEnabled, boolean unsubscribedFlag,
+                                LocalTime quietStart, LocalTime quietEnd) {
+            int ordinal = ordinals.computeIfAbsent(accountId, k -> nextOrdinal++);
+            emailOff.set(ordinal, !emailEnabled);
+            inAppOff.set(ordinal, !inAppEnabled);
+            unsubscribed.set(ordinal, unsubscribedFlag);
+            if (quietStart != null && quietEnd != null && !quietStart.equals(quietEnd)) {
+                ensureWindowCapacity(ordinal);
+                int start = quietStart.getHour() * 60 + quietStart.getMinute();
+                int end = quietEnd.getHour() * 60 + quietEnd.getMinute();
+                quietWindows.set(ordinal, start << 16 | end);
+                quiet.set(ordinal);
+            } else {
+                quiet.clear(ordinal);
+            }
+        }
+
+        long sizeInBytes() {
+            return emailOff.sizeInBytes() + inAppOff.sizeInBytes() + unsubscribed.sizeInBytes() + quiet.sizeInBytes()
+                    + (long) quietWindows.length() * Integer.BYTES;
+        }
+
+        private void ensureWindowCapacity(int ordinal) {
+            AtomicIntegerArray current = quietWindows;
+            if (ordinal < current.length()) {
+                return;
+            }
+            AtomicIntegerArray grown = new AtomicIntegerArray(Math.max(ordinal + 1, current.length() * 2));
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            quietWindows = grown;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.swp391.bloodcare.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Đẩy thông báo tới client qua Server-Sent Events:
+- kết nối là async servlet (SseEmitter): kết nối rảnh không giữ thread nào, chỉ tốn một socket + vài object
+- mỗi client một buffer giới hạn notification.push.buffer-size sự kiện; client đọc chậm làm đầy buffer thì
+  bỏ sự kiện cũ nhất và gộp thành một sự kiện "overflow" (client tự tải lại qua REST, thông báo đã lưu DB)
+- buffer được xả bởi virtual thread, chỉ tồn tại khi có dữ liệu cần gửi; ghi socket chậm chỉ chặn thread đó
+- heartbeat định kỳ giữ kết nối qua proxy và phát hiện client đã ngắt
+- mỗi kết nối nhớ role của account lúc subscribe: pushToRoles() chỉ gửi cho các role được chỉ định
+  (đổi role thì áp dụng từ lần kết nối sau)
+ */
+@Service
+public class NotificationPushService {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.push.buffer-size:32}")
+    private int bufferSize;
+
+    @Value("${notification.push.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${notification.push.max-clients:20000}")
+    private int maxClients;
+
+    @Value("${notification.push.max-connections-per-account:5}")
+    private int maxConnectionsPerAccount;
+
+    private final Map<String, Set<Client>> clients = new ConcurrentHashMap<>();
+    private final AtomicInteger clientCount = new AtomicInteger();
+
+    private ExecutorService drainers;
+    private Counter pushedCounter;
+    private Counter droppedCounter;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    void init() {
+        drainers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sse-drain-", 0).factory());
+        Gauge.builder("notification.push.clients", clientCount, AtomicInteger::get).register(meterRegistry);
+        pushedCounter = Counter.builder("notification.push.events").tag("result", "sent").register(meterRegistry);
+        droppedCounter = Counter.builder("notification.push.events").tag("result", "dropped").register(meterRegistry);
+        rejectedCounter = Counter.builder("notification.push.rejected").register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        clients.values().forEach(set -> set.forEach(client -> client.emitter.complete()));
+        drainers.shutdownNow();
+    }
+
+    //role không có tiền tố ROLE_, null nếu không rõ; quá số kết nối cho phép -> IllegalStateException (controller trả 503)
+    public SseEmitter subscribe(String accountId, String role) {
+        if (clientCount.incrementAndGet() > maxClients) {
+            clientCount.decrementAndGet();
+            rejectedCounter.increment();
+            throw new IllegalStateException("Quá nhiều kết nối thông báo, thử lại sau");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Client client = new Client(accountId, role == null ? null : role.toUpperCase(Locale.ROOT), emitter);
+        //thêm trong compute để không đua với remove() xóa set rỗng
+        boolean[] added = new boolean[1];
+        clients.compute(accountId, (k, set) -> {
+            Set<Client> forAccount = set == null ? ConcurrentHashMap.newKeySet() : set;
+            if (forAccount.size() < maxConnectionsPerAccount) {
+                forAccount.add(client);
+                added[0] = true;
+            }
+            return forAccount.isEmpty() ? null : forAccount;
+        });
+        if (!added[0]) {
+            clientCount.decrementAndGet();
+            rejectedCounter.increment();
+            throw new IllegalStateException("Account đã mở quá nhiều kết nối thông báo");
+        }
+        emitter.onCompletion(() -> remove(client));
+        emitter.onTimeout(() -> remove(client));
+        emitter.onError(e -> remove(client));
+        return emitter;
+    }
+
+    public boolean isConnected(String accountId) {
+        Set<Client> forAccount = clients.get(accountId);
+        return forAccount != null && !forAccount.isEmpty();
+    }
+
+    public int getClientCount() {
+        return clientCount.get();
+    }
+
+    //không chặn: chỉ đưa vào buffer của từng kết nối của account
+    public void push(String accountId, String event, Object data) {
+        Set<Client> forAccount = clients.get(accountId);
+        if (forAccount == null) {
+            return;
+        }
+        for (Client client : forAccount) {
+            client.offer(SseEmitter.event().name(event).data(data));
+        }
+    }
+
+    //gửi cho mọi kết nối đang mở của account có role thuộc roles (viết hoa, không có tiền tố ROLE_)
+    public void pushToRoles(Set<String> roles, String event, Object data) {
+        for (Set<Client> forAccount : clients.values()) {
+            for (Client client : forAccount) {
+                if (client.role != null && roles.contains(client.role)) {
+                    client.offer(SseEmitter.event().name(event).data(data));
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notification.push.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (Set<Client> forAccount : clients.values()) {
+            for (Client client : forAccount) {
+                client.offerHeartbeat();
+            }
+        }
+    }
+
+    private void remove(Client client) {
+        if (!client.close()) {
+            return;
+        }
+        clientCount.decrementAndGet();
+        clients.computeIfPresent(client.accountId, (k, set) -> {
+            set.remove(client);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private final class Client {
+        private final String accountId;
+        private final String role;
+        private final SseEmitter emitter;
+        // các field dưới đây dùng chung lock là chính Client
+        private final ArrayDeque<SseEmitter.SseEventBuilder> buffer = new ArrayDeque<>();
+        private int dropped;
+        private boolean draining;
+        private boolean closed;
+
+        private Client(String accountId, String role, SseEmitter emitter) {
+            this.accountId = accountId;
+            this.role = role;
+            this.emitter = emitter;
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (buffer.size() >= bufferSize) {
+                    buffer.pollFirst();
+                    dropped++;
+                    droppedCounter.increment();
+                }
+                buffer.addLast(event);
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            drainers.execute(this::drain);
+        }
+
+        //buffer còn dữ liệu thì không cần ping
+        void offerHeartbeat() {
+            synchronized (this) {
+                if (closed || draining || !buffer.isEmpty()) {
+                    return;
+                }
+            }
+            offer(SseEmitter.event().comment("ping"));
+        }
+
+        synchronized boolean close() {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            buffer.clear();
+            return true;
+        }
+
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                synchronized (this) {
+                    if (closed || buffer.isEmpty()) {
+                        draining = false;
+                        return;
+                    }
+                    if (dropped > 0) {
+                        //báo client đã mất sự kiện trước khi gửi tiếp phần còn lại
+                        event = SseEmitter.event().name("overflow").data(Map.of("dropped", dropped));
+                        dropped = 0;
+                    } else {
+                        event = buffer.pollFirst();
+                    }
+                }
+                try {
+                    emitter.send(event);
+                    pushedCounter.increment();
+                } catch (IOException | IllegalStateException e) {
+                    //client đã ngắt / emitter đã đóng
+                    emitter.completeWithError(e);
+                    remove(this);
+                    synchronized (this) {
+                        draining = false;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
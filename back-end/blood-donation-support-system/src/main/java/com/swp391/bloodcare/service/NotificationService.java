@@ -0,0 +1,326 @@
+package com.swp391.bloodcare.service;
+
+import com.swp391.bloodcare.dto.PageResponse;
+import com.swp391.bloodcare.dto.log.NotificationMessage;
+import com.swp391.bloodcare.entity.Account;
+import com.swp391.bloodcare.entity.Notification;
+import com.swp391.bloodcare.repository.AccountRepository;
+import com.swp391.bloodcare.repository.NotificationRepository;
+import com.swp391.bloodcare.util.UuidBinaryConverter;
+import com.swp391.bloodcare.util.UuidV7;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+Thông báo trong app (bảng notification):
+- ghi bằng JDBC batch: publish() đưa vào hàng đợi, một virtual thread gom tối đa write-batch-size dòng mỗi lần ghi;
+  insert() ghi ngay trong transaction hiện tại (vd: cùng transaction ghi outbox của job kêu gọi hiến máu)
+- lô ghi lỗi (DB tạm không dùng được) -> thử lại tối đa write-max-attempts lần, chờ tăng dần từ write-retry-delay-ms;
+  lỗi dữ liệu (vd: account đã bị xóa) -> ghi từng dòng, chỉ bỏ dòng hỏng; dòng bị bỏ được đếm ở notification.write_dropped
+- tắt app: writer ghi xong lô đang dở rồi dừng (không bị interrupt), phần còn trong hàng đợi được ghi nốt
+- sau khi ghi xong (commit) mới đẩy qua SSE cho account đang kết nối, không đẩy thông báo chưa tồn tại
+- đọc / đánh dấu đã đọc qua JPA
+ */
+@Service
+public class NotificationService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationService.class);
+
+    public static final String TYPE_BLOOD_CALL = "BLOOD_CALL";
+    public static final String TYPE_DONATION = "DONATION";
+
+    public static final String EVENT_NOTIFICATION = "notification";
+
+    private static final String INSERT_NOTIFICATION =
+            "INSERT INTO notification (id, account_id, title, message, type, is_read, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, false, ?)";
+
+    private static final UuidBinaryConverter ID_CONVERTER = new UuidBinaryConverter();
+
+    // chờ writer ghi xong lô đang dở khi tắt app, phải lớn hơn tổng thời gian chờ thử lại
+    private static final long WRITER_STOP_TIMEOUT_MS = 30_000;
+    // writer kiểm tra cờ running sau mỗi khoảng này khi hàng đợi rỗng
+    private static final long WRITER_POLL_MS = 200;
+
+    // một thông báo chờ ghi
+    public record Draft(String id, String accountId, String title, String message, String type, LocalDateTime createdAt) {
+
+        public static Draft of(String accountId, String title, String message, String type) {
+            return new Draft(UuidV7.nextString(), accountId, title, message, type, LocalDateTime.now());
+        }
+
+        NotificationMessage toMessage() {
+            return new NotificationMessage(id, title, message, type, false, createdAt);
+        }
+    }
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private NotificationPushService notificationPushService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.write-queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${notification.write-batch-size:500}")
+    private int writeBatchSize;
+
+    @Value("${notification.write-max-attempts:5}")
+    private int writeMaxAttempts;
+
+    @Value("${notification.write-retry-delay-ms:500}")
+    private long writeRetryDelayMs;
+
+    private BlockingQueue<Draft> queue;
+    private Thread writer;
+    private volatile boolean running;
+    private Counter writtenCounter;
+    private Counter retryCounter;
+    private Counter droppedCounter;
+
+    @PostConstruct
+    void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        writtenCounter = Counter.builder("notification.written").register(meterRegistry);
+        retryCounter = Counter.builder("notification.write_retries").register(meterRegistry);
+        droppedCounter = Counter.builder("notification.write_dropped").register(meterRegistry);
+        Gauge.builder("notification.write_queue", queue, BlockingQueue::size).register(meterRegistry);
+        running = true;
+        writer = Thread.ofVirtual().name("notification-writer").start(this::writeLoop);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        //để writer ghi xong lô đang dở; chỉ interrupt khi quá hạn
+        try {
+            if (!writer.join(Duration.ofMillis(WRITER_STOP_TIMEOUT_MS))) {
+                log.warn("Notification writer did not stop in {} ms", WRITER_STOP_TIMEOUT_MS);
+                writer.interrupt();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        //ghi nốt phần còn trong hàng đợi
+        List<Draft> rest = new ArrayList<>();
+        while (queue.drainTo(rest, writeBatchSize) > 0) {
+            write(rest);
+            rest.clear();
+        }
+    }
+
+    //ghi bất đồng bộ theo lô; hàng đợi đầy thì chờ tối đa 1s rồi ghi luôn ở thread gọi
+    public void publish(String accountId, String title, String message, String type) {
+        Draft draft = Draft.of(accountId, title, message, type);
+        try {
+            if (queue.offer(draft, 1, TimeUnit.SECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        insert(List.of(draft));
+        push(List.of(draft));
+    }
+
+    //ghi ngay bằng JDBC batch; trong transaction thì chỉ đẩy SSE sau khi commit
+    public void insert(List<Draft> drafts) {
+        if (drafts.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_NOTIFICATION, drafts, drafts.size(), (ps, draft) -> {
+            ps.setBytes(1, ID_CONVERTER.convertToDatabaseColumn(draft.id()));
+            ps.setBytes(2, ID_CONVERTER.convertToDatabaseColumn(draft.accountId()));
+            ps.setString(3, draft.title());
+            ps.setString(4, draft.message());
+            ps.setString(5, draft.type());
+            ps.setTimestamp(6, Timestamp.valueOf(draft.createdAt()));
+        });
+        writtenCounter.increment(drafts.size());
+    }
+
+    //đẩy SSE cho các thông báo vừa insert(); trong transaction thì chờ commit
+    public void pushAfterCommit(List<Draft> drafts) {
+        if (drafts.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            push(drafts);
+            return;
+        }
+        List<Draft> copy = List.copyOf(drafts);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                push(copy);
+            }
+        });
+    }
+
+    //account có đang mở kết nối SSE không (để chỉ giữ lại thông báo cần đẩy)
+    public boolean isOnline(String accountId) {
+        return notificationPushService.isConnected(accountId);
+    }
+
+    public Optional<String> findAccountId(String username) {
+        return accountRepository.findByUserName(username).map(Account::getAccountId);
+    }
+
+    public PageResponse<NotificationMessage> list(String accountId, int page, int size) {
+        Page<Notification> result = notificationRepository.findByAccount_AccountIdOrderByCreatedAtDesc(
+                accountId, PageRequest.of(Math.max(0, page), Math.min(Math.max(1, size), 100)));
+        return new PageResponse<>(
+                result.getContent().stream().map(NotificationService::toMessage).toList(),
+                result.getNumber(),
+                result.getSize(),
+                result.getTotalElements(),
+                result.getTotalPages(),
+                result.isFirst(),
+                result.isLast());
+    }
+
+    public long countUnread(String accountId) {
+        return notificationRepository.countByAccount_AccountIdAndIsReadFalse(accountId);
+    }
+
+    public boolean markRead(String accountId, String id) {
+        return notificationRepository.markRead(id, accountId) > 0;
+    }
+
+    public int markAllRead(String accountId) {
+        return notificationRepository.markAllRead(accountId);
+    }
+
+    private void writeLoop() {
+        List<Draft> batch = new ArrayList<>(writeBatchSize);
+        while (running) {
+            try {
+                Draft first = queue.poll(WRITER_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, writeBatchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.error("Failed to write {} notifications: {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    //ghi một lô rồi đẩy SSE các dòng đã ghi
+    private void write(List<Draft> batch) {
+        List<Draft> written = insertWithRetry(batch);
+        if (!written.isEmpty()) {
+            push(written);
+        }
+    }
+
+    //lỗi tạm thời -> thử lại cả lô (chờ tăng dần), hết lượt thì bỏ lô; lỗi dữ liệu -> ghi từng dòng;
+    //trả về các dòng đã nằm trong DB
+    private List<Draft> insertWithRetry(List<Draft> batch) {
+        RuntimeException last = null;
+        for (int attempt = 1; attempt <= writeMaxAttempts; attempt++) {
+            try {
+                insert(batch);
+                return batch;
+            } catch (DataIntegrityViolationException e) {
+                //một dòng hỏng làm hỏng cả lô (hoặc lần thử trước đã ghi được một phần)
+                return insertOneByOne(batch);
+            } catch (RuntimeException e) {
+                last = e;
+                if (attempt == writeMaxAttempts || !sleepBeforeRetry(attempt)) {
+                    break;
+                }
+                retryCounter.increment();
+            }
+        }
+        droppedCounter.increment(batch.size());
+        log.error("Dropping {} notifications after {} attempts: {}", batch.size(), writeMaxAttempts,
+                last == null ? "interrupted" : last.getMessage());
+        return List.of();
+    }
+
+    private List<Draft> insertOneByOne(List<Draft> batch) {
+        List<Draft> written = new ArrayList<>(batch.size());
+        for (Draft draft : batch) {
+            try {
+                insert(List.of(draft));
+                written.add(draft);
+            } catch (DuplicateKeyException e) {
+                //đã ghi ở lần thử trước
+                written.add(draft);
+            } catch (RuntimeException e) {
+                droppedCounter.increment();
+                log.error("Dropping notification {} for account {}: {}", draft.id(), draft.accountId(), e.getMessage());
+            }
+        }
+        return written;
+    }
+
+    //chờ writeRetryDelayMs * 2^(attempt-1); false nếu bị interrupt
+    private boolean sleepBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(writeRetryDelayMs << Math.min(attempt - 1, 10));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void push(List<Draft> drafts) {
+        for (Draft draft : drafts) {
+            notificationPushService.push(draft.accountId(), EVENT_NOTIFICATION, draft.toMessage());
+        }
+    }
+
+    private static NotificationMessage toMessage(Notification notification) {
+        return new NotificationMessage(
+                notification.getId(),
+                notification.getTitle(),
+                notification.getMessage(),
+                notification.getType(),
+                notification.isRead(),
+                notification.getCreatedAt());
+    }
+}
@@ -0,0 +1,194 @@
+package com.swp391.bloodcare.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.swp391.bloodcare.dto.log.NotificationTemplateRequest;
+import com.swp391.bloodcare.entity.NotificationTemplate;
+import com.swp391.bloodcare.repository.NotificationTemplateRepository;
+import com.swp391.bloodcare.util.CompiledTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Mẫu thông báo và cá nhân hóa nội dung theo từng người nhận:
+- template được compile một lần (cache theo nội dung nguồn), gửi 100k thư không parse lại
+- prepare() gắn biến của job ({bloodGroups}, biến admin truyền vào) thành hằng số và đánh dấu slot nào lấy
+  từ người nhận ({name}, {email}, {district}, {restDate}); biến lạ -> IllegalArgumentException
+- render mỗi thư chỉ clone mảng giá trị nhỏ + một StringBuilder đúng kích thước cho subject và body
+ */
+@Service
+public class NotificationTemplateService {
+
+    public static final List<String> RECIPIENT_VARIABLES = List.of("name", "email", "district", "restDate");
+
+    private static final int NAME = 0;
+    private static final int EMAIL = 1;
+    private static final int DISTRICT = 2;
+    private static final int REST_DATE = 3;
+    // slot lấy giá trị từ biến của job
+    private static final int CONSTANT = -1;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final int CACHE_LIMIT = 1000;
+
+    @Autowired
+    private NotificationTemplateRepository notificationTemplateRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, CompiledTemplate> compiled = new ConcurrentHashMap<>();
+
+    public List<NotificationTemplate> findAll() {
+        return notificationTemplateRepository.findAll();
+    }
+
+    public Optional<NotificationTemplate> find(String name) {
+        return name == null ? Optional.empty() : notificationTemplateRepository.findById(name);
+    }
+
+    public NotificationTemplate save(NotificationTemplateRequest request) {
+        if (isBlank(request.getName()) || isBlank(request.getSubject()) || isBlank(request.getBody())) {
+            throw new IllegalArgumentException("Template cần name, subject và body");
+        }
+        if (request.getName().length() > 100) {
+            throw new IllegalArgumentException("Tên template tối đa 100 ký tự");
+        }
+        NotificationTemplate template = notificationTemplateRepository.findById(request.getName())
+                .orElseGet(() -> new NotificationTemplate(request.getName(), null, null, null));
+        template.setSubject(request.getSubject());
+        template.setBody(request.getBody());
+        template.setUpdatedAt(LocalDateTime.now());
+        //compile sẵn để lần gửi đầu không phải parse
+        compile(template.getSubject());
+        compile(template.getBody());
+        return notificationTemplateRepository.save(template);
+    }
+
+    public boolean delete(String name) {
+        if (!notificationTemplateRepository.existsById(name)) {
+            return false;
+        }
+        notificationTemplateRepository.deleteById(name);
+        return true;
+    }
+
+    public CompiledTemplate compile(String source) {
+        String key = source == null ? "" : source;
+        CompiledTemplate template = compiled.get(key);
+        if (template == null) {
+            //nội dung tự do (không dùng template đã lưu) có thể nhiều -> giới hạn kích thước cache
+            if (compiled.size() >= CACHE_LIMIT) {
+                compiled.clear();
+            }
+            template = compiled.computeIfAbsent(key, CompiledTemplate::compile);
+        }
+        return template;
+    }
+
+    //kiểm tra biến và chuẩn bị render; dùng chung giữa các thread
+    public PreparedNotification prepare(String subject, String body, Map<String, String> variables) {
+        Map<String, String> jobVariables = variables == null ? Map.of() : variables;
+        return new PreparedNotification(
+                prepare(compile(subject), jobVariables),
+                prepare(compile(body), jobVariables));
+    }
+
+    public String writeVariables(Map<String, String> variables) {
+        try {
+            return variables == null || variables.isEmpty() ? null : objectMapper.writeValueAsString(variables);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Biến không hợp lệ: " + e.getOriginalMessage());
+        }
+    }
+
+    public Map<String, String> readVariables(String json) {
+        if (json == null || json.isBlank()) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(json, new TypeReference<Map<String, String>>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Biến không hợp lệ: " + e.getOriginalMessage());
+        }
+    }
+
+    private Part prepare(CompiledTemplate template, Map<String, String> jobVariables) {
+        List<String> names = template.getVariables();
+        int[] kinds = new int[names.size()];
+        String[] constants = new String[names.size()];
+        for (int slot = 0; slot < kinds.length; slot++) {
+            String name = names.get(slot);
+            //biến của job được ưu tiên, admin có thể ghi đè vd: {district}
+            if (jobVariables.containsKey(name)) {
+                kinds[slot] = CONSTANT;
+                constants[slot] = jobVariables.get(name);
+            } else {
+                kinds[slot] = RECIPIENT_VARIABLES.indexOf(name);
+                if (kinds[slot] < 0) {
+                    throw new IllegalArgumentException("Thiếu giá trị cho biến {" + name + "}");
+                }
+            }
+        }
+        return new Part(template, kinds, constants);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    public static final class PreparedNotification {
+        private final Part subject;
+        private final Part body;
+        private final boolean usesRestDate;
+
+        private PreparedNotification(Part subject, Part body) {
+            this.subject = subject;
+            this.body = body;
+            this.usesRestDate = subject.uses(REST_DATE) || body.uses(REST_DATE);
+        }
+
+        // restDate null -> chuỗi rỗng (chưa từng hiến, có thể hiến ngay)
+        public EmailSender.Mail render(String email, String name, String district, LocalDate restDate) {
+            String[] recipient = new String[RECIPIENT_VARIABLES.size()];
+            recipient[NAME] = name;
+            recipient[EMAIL] = email;
+            recipient[DISTRICT] = district;
+            recipient[REST_DATE] = usesRestDate && restDate != null ? DATE_FORMAT.format(restDate) : null;
+            return new EmailSender.Mail(email, subject.render(recipient), body.render(recipient));
+        }
+    }
+
+    private record Part(CompiledTemplate template, int[] kinds, String[] constants) {
+
+        boolean uses(int kind) {
+            for (int k : kinds) {
+                if (k == kind) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String render(String[] recipient) {
+            if (kinds.length == 0) {
+                return template.render(constants);
+            }
+            String[] values = constants.clone();
+            for (int slot = 0; slot < kinds.length; slot++) {
+                if (kinds[slot] != CONSTANT) {
+                    values[slot] = recipient[kinds[slot]];
+                }
+            }
+            return template.render(values);
+        }
+    }
+}
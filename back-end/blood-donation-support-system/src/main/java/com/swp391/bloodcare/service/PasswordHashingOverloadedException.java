@@ -0,0 +1,16 @@
+package com.swp391.bloodcare.service;
+
+// pool băm mật khẩu đang quá tải -> controller trả 503 + Retry-After
+public class PasswordHashingOverloadedException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public PasswordHashingOverloadedException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
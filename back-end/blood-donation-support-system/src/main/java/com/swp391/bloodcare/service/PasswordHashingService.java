@@ -0,0 +1,110 @@
+package com.swp391.bloodcare.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Băm / kiểm tra mật khẩu (BCrypt) trên pool riêng, giới hạn số thread + hàng đợi:
+- BCrypt không chiếm hết CPU của thread Tomcat khi có login storm
+- hàng đợi đầy hoặc chờ quá lâu -> PasswordHashingOverloadedException (fail fast)
+ */
+@Service
+public class PasswordHashingService {
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 0 = số core
+    @Value("${security.password-hashing.threads:0}")
+    private int threads;
+
+    @Value("${security.password-hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${security.password-hashing.timeout-ms:5000}")
+    private long timeoutMillis;
+
+    @Value("${security.password-hashing.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+
+    private ThreadPoolExecutor executor;
+    private Timer encodeTimer;
+    private Timer matchTimer;
+    private Counter rejected;
+
+    @PostConstruct
+    void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNo = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hashing-" + threadNo.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        encodeTimer = Timer.builder("security.password_hashing.latency").tag("operation", "encode").register(meterRegistry);
+        matchTimer = Timer.builder("security.password_hashing.latency").tag("operation", "matches").register(meterRegistry);
+        rejected = Counter.builder("security.password_hashing.rejected").register(meterRegistry);
+        Gauge.builder("security.password_hashing.queue_depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("security.password_hashing.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    public String encode(String rawPassword) {
+        return execute(() -> passwordEncoder.encode(rawPassword), encodeTimer);
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return execute(() -> passwordEncoder.matches(rawPassword, encodedPassword), matchTimer);
+    }
+
+    private <T> T execute(Callable<T> task, Timer timer) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timer.recordCallable(task));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingOverloadedException("Hệ thống đang quá tải, vui lòng thử lại sau", retryAfterSeconds);
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            //task còn trong hàng đợi thì bị bỏ, không chạy nữa; BCrypt đang chạy không kiểm tra interrupt nên vẫn
+            //chạy hết trên thread của pool. Tổng việc vẫn bị chặn bởi threads + queue-capacity (đầy thì từ chối ngay)
+            future.cancel(true);
+            rejected.increment();
+            throw new PasswordHashingOverloadedException("Hệ thống đang quá tải, vui lòng thử lại sau", retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
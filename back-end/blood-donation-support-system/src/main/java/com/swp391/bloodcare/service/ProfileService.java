@@ -8,6 +8,7 @@ import com.swp391.bloodcare.dto.profile.ProfileResponseDTO;
 import com.swp391.bloodcare.entity.*;
 import com.swp391.bloodcare.repository.AccountRepository;
 import com.swp391.bloodcare.repository.ProfileRepository;
+import com.swp391.bloodcare.util.UuidBinaryConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -38,7 +39,8 @@ public class ProfileService {
     // Lấy account theo AccountId
     public ApiResponse<ProfileResponseDTO> getProfileByAccountId(String accountId){
         try{
-            Optional<Account> accountOpt = accountRepository.findById(accountId);
+            Optional<Account> accountOpt = UuidBinaryConverter.isUuid(accountId)
+                    ? accountRepository.findById(accountId) : Optional.empty();
 
             if(!accountOpt.isPresent()){
                 return new ApiResponse<>(false,"Không tồn tại tài khoản",null);
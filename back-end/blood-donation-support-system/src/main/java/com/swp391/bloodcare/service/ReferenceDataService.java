@@ -0,0 +1,198 @@
+package com.swp391.bloodcare.service;
+
+import com.swp391.bloodcare.entity.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnitUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/*
+Dữ liệu tham chiếu (Role, Component, Achievement, Hospital, Blood):
+- load một lần lúc khởi động vào các Map bất biến, service tra cứu không cần query
+- refresh() theo timer hoặc khi admin thay đổi dữ liệu (thay cả snapshot một lần):
+  ReferenceDataListener gọi refreshAfterCommit() khi entity tham chiếu được thêm / sửa / xóa qua JPA
+- entity trả về là detached, chỉ dùng để đọc hoặc gán vào quan hệ ManyToOne
+ */
+@Service
+public class ReferenceDataService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReferenceDataService.class);
+
+    private record Snapshot(Map<String, Role> rolesByName,
+                            Map<Object, Component> components,
+                            Map<Object, Achievement> achievements,
+                            Map<Object, Hospital> hospitals,
+                            Map<Integer, Blood> bloods,
+                            long loadedAt) {
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile Snapshot snapshot;
+    // đã có một lần refresh đang chờ chạy -> các thay đổi sau gộp vào lần đó
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+    private final Map<String, Counter> hitCounters = new HashMap<>();
+    private final Map<String, Counter> missCounters = new HashMap<>();
+
+    @PostConstruct
+    void init() {
+        for (String table : List.of("role", "component", "achievement", "hospital", "blood")) {
+            hitCounters.put(table, Counter.builder("reference_data.lookups").tag("table", table).tag("result", "hit").register(meterRegistry));
+            missCounters.put(table, Counter.builder("reference_data.lookups").tag("table", table).tag("result", "miss").register(meterRegistry));
+        }
+        refresh();
+    }
+
+    @Scheduled(initialDelayString = "${reference-data.refresh-interval-ms:600000}",
+            fixedDelayString = "${reference-data.refresh-interval-ms:600000}")
+    public synchronized void refresh() {
+        long start = System.currentTimeMillis();
+        PersistenceUnitUtil util = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+
+        Map<String, Role> roles = new HashMap<>();
+        for (Role role : loadAll(Role.class)) {
+            roles.put(role.getRole().toUpperCase(Locale.ROOT), role);
+        }
+        Map<Integer, Blood> bloods = new HashMap<>();
+        for (Blood blood : loadAll(Blood.class)) {
+            bloods.put(blood.getBloodCode(), blood);
+        }
+
+        snapshot = new Snapshot(
+                Map.copyOf(roles),
+                index(loadAll(Component.class), util::getIdentifier),
+                index(loadAll(Achievement.class), util::getIdentifier),
+                index(loadAll(Hospital.class), util::getIdentifier),
+                Map.copyOf(bloods),
+                System.currentTimeMillis());
+
+        log.info("Reference data loaded in {} ms: {} roles, {} components, {} achievements, {} hospitals, {} blood codes",
+                System.currentTimeMillis() - start, roles.size(), snapshot.components().size(),
+                snapshot.achievements().size(), snapshot.hospitals().size(), bloods.size());
+    }
+
+    /*
+    Tải lại sau khi transaction hiện tại commit (không có transaction thì tải lại ngay), chạy trên thread riêng
+    để không kéo dài request; nhiều thay đổi liên tiếp chỉ gây một lần refresh.
+     */
+    public void refreshAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            requestRefresh();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                requestRefresh();
+            }
+        });
+    }
+
+    private void requestRefresh() {
+        if (!refreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("reference-data-refresh").start(() -> {
+            //đặt lại trước khi đọc: thay đổi commit trong lúc đang đọc sẽ gây thêm một lần refresh
+            refreshPending.set(false);
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                log.warn("Could not refresh reference data: {}", e.getMessage());
+            }
+        });
+    }
+
+    public Optional<Role> findRole(String roleName) {
+        return lookup("role", roleName == null ? null : snapshot.rolesByName().get(roleName.toUpperCase(Locale.ROOT)));
+    }
+
+    public Optional<Component> findComponent(Object id) {
+        return lookup("component", id == null ? null : snapshot.components().get(id));
+    }
+
+    public Optional<Achievement> findAchievement(Object id) {
+        return lookup("achievement", id == null ? null : snapshot.achievements().get(id));
+    }
+
+    public Optional<Hospital> findHospital(Object id) {
+        return lookup("hospital", id == null ? null : snapshot.hospitals().get(id));
+    }
+
+    public Optional<Blood> findBlood(int bloodCode) {
+        return lookup("blood", snapshot.bloods().get(bloodCode));
+    }
+
+    public Collection<Blood> getBloods() {
+        return snapshot.bloods().values();
+    }
+
+    public Collection<Component> getComponents() {
+        return snapshot.components().values();
+    }
+
+    //id của Component gắn với mã máu (dạng chuỗi), null nếu không có
+    public String componentKey(Blood blood) {
+        if (blood.getComponent() == null) {
+            return null;
+        }
+        Object id = entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(blood.getComponent());
+        return id == null ? null : String.valueOf(id);
+    }
+
+    public Collection<Hospital> getHospitals() {
+        return snapshot.hospitals().values();
+    }
+
+    public Map<String, Object> getStats() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loadedAt", new Date(current.loadedAt()));
+        stats.put("roles", current.rolesByName().size());
+        stats.put("components", current.components().size());
+        stats.put("achievements", current.achievements().size());
+        stats.put("hospitals", current.hospitals().size());
+        stats.put("bloods", current.bloods().size());
+        for (String table : hitCounters.keySet()) {
+            double hits = hitCounters.get(table).count();
+            double total = hits + missCounters.get(table).count();
+            stats.put(table + "HitRate", total == 0 ? 1.0 : hits / total);
+        }
+        return stats;
+    }
+
+    private <T> Optional<T> lookup(String table, T value) {
+        (value != null ? hitCounters : missCounters).get(table).increment();
+        return Optional.ofNullable(value);
+    }
+
+    private <T> List<T> loadAll(Class<T> type) {
+        return entityManager.createQuery("SELECT e FROM " + type.getSimpleName() + " e", type).getResultList();
+    }
+
+    private static <T> Map<Object, T> index(List<T> entities, Function<T, Object> idOf) {
+        Map<Object, T> map = new HashMap<>();
+        for (T entity : entities) {
+            map.put(idOf.apply(entity), entity);
+        }
+        return Map.copyOf(map);
+    }
+}
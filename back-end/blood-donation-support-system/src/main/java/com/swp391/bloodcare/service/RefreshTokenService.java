@@ -0,0 +1,113 @@
+package com.swp391.bloodcare.service;
+
+import com.swp391.bloodcare.entity.Account;
+import com.swp391.bloodcare.entity.RefreshToken;
+import com.swp391.bloodcare.repository.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/*
+Refresh token xoay vòng (rotation):
+- issue(): sinh token ngẫu nhiên 256 bit, DB chỉ lưu hash
+- rotate(): token hợp lệ -> đánh dấu used + sinh token mới cùng family
+- token đã used / revoked bị dùng lại -> thu hồi cả family (nghi bị lộ token)
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Value("${jwt.refresh-expiration:2592000000}")
+    private long refreshExpiration;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public record Rotation(Account account, String refreshToken) {
+    }
+
+    public String issue(Account account) {
+        return issue(account, UUID.randomUUID().toString());
+    }
+
+    // trả về empty nếu token không hợp lệ / hết hạn / đã bị dùng lại;
+    // markUsed + lưu token mới cùng một transaction: lưu lỗi thì token cũ vẫn dùng được
+    @Transactional
+    public Optional<Rotation> rotate(String rawToken) {
+        if (rawToken == null || rawToken.isBlank()) {
+            return Optional.empty();
+        }
+
+        Optional<RefreshToken> tokenOpt = refreshTokenRepository.findByTokenHash(hash(rawToken));
+        if (tokenOpt.isEmpty()) {
+            return Optional.empty();
+        }
+
+        RefreshToken token = tokenOpt.get();
+        if (token.isUsed() || token.isRevoked() || refreshTokenRepository.markUsed(token.getId()) == 0) {
+            // token đã được dùng -> có thể bị đánh cắp, thu hồi cả family
+            refreshTokenRepository.revokeFamily(token.getFamilyId());
+            log.warn("Refresh token reuse detected, revoked family {}", token.getFamilyId());
+            return Optional.empty();
+        }
+
+        if (token.getExpiresAt().isBefore(LocalDateTime.now())) {
+            return Optional.empty();
+        }
+
+        Account account = token.getAccount();
+        return Optional.of(new Rotation(account, issue(account, token.getFamilyId())));
+    }
+
+    // logout: thu hồi family của token
+    public void revoke(String rawToken) {
+        if (rawToken == null || rawToken.isBlank()) {
+            return;
+        }
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId()));
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh-cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        refreshTokenRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private String issue(Account account, String familyId) {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        LocalDateTime now = LocalDateTime.now();
+        refreshTokenRepository.save(new RefreshToken(hash(rawToken), familyId, account, now,
+                now.plus(Duration.ofMillis(refreshExpiration))));
+        return rawToken;
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
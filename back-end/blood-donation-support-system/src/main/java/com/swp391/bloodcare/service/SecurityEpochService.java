@@ -0,0 +1,34 @@
+package com.swp391.bloodcare.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+"Security epoch" theo từng account, giữ trong bộ nhớ:
+- khi account bị khóa / đổi role -> bump(accountId)
+- token phát hành trước thời điểm bump sẽ bị từ chối trong JwtAuthenticationFilter
+Lưu theo giây vì claim iat của JWT tính bằng giây (đã làm tròn xuống): token có iat trùng giây với lần bump
+không biết phát hành trước hay sau -> từ chối luôn (so sánh >), đăng nhập lại sau đó một giây là được.
+ */
+@Service
+public class SecurityEpochService {
+
+    private final ConcurrentHashMap<String, Long> epochs = new ConcurrentHashMap<>();
+
+    public void bump(String accountId) {
+        epochs.put(accountId, System.currentTimeMillis() / 1000);
+    }
+
+    public boolean isCurrent(String accountId, Date issuedAt) {
+        if (accountId == null) {
+            return true;
+        }
+        Long epoch = epochs.get(accountId);
+        if (epoch == null) {
+            return true;
+        }
+        return issuedAt != null && issuedAt.getTime() / 1000 > epoch;
+    }
+}
@@ -0,0 +1,101 @@
+package com.swp391.bloodcare.service;
+
+import com.swp391.bloodcare.entity.RevokedToken;
+import com.swp391.bloodcare.repository.RevokedTokenRepository;
+import com.swp391.bloodcare.util.HashedTimingWheel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Danh sách token đã logout (theo jti):
+- isRevoked(): chỉ là contains() trên ConcurrentHashMap, không lock, không query DB
+- mỗi jti tự bị xóa khỏi bộ nhớ khi token hết hạn (hashed timing wheel)
+- nếu jwt.revocation.persist=true: lưu vào bảng revoked_token để restart không mất
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${jwt.revocation.persist:true}")
+    private boolean persist;
+
+    @Value("${jwt.revocation.tick-ms:1000}")
+    private long tickMillis;
+
+    private final Set<String> revoked = ConcurrentHashMap.newKeySet();
+
+    private HashedTimingWheel<String> expiryWheel;
+
+    @PostConstruct
+    void init() {
+        expiryWheel = new HashedTimingWheel<>("token-revocation-wheel", tickMillis, 512, revoked::remove);
+
+        if (persist) {
+            for (RevokedToken token : revokedTokenRepository.findByExpiresAtAfter(LocalDateTime.now())) {
+                long expiresAt = token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                revoked.add(token.getJti());
+                expiryWheel.schedule(token.getJti(), expiresAt);
+            }
+            log.info("Loaded {} revoked tokens", revoked.size());
+        }
+
+        Gauge.builder("security.revoked_tokens", revoked, Set::size).register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        expiryWheel.close();
+    }
+
+    public boolean isRevoked(String jti) {
+        return jti != null && revoked.contains(jti);
+    }
+
+    public void revoke(String jti, Date expiresAt) {
+        if (jti == null || expiresAt == null || expiresAt.getTime() <= System.currentTimeMillis()) {
+            return;
+        }
+        if (!revoked.add(jti)) {
+            return;
+        }
+        expiryWheel.schedule(jti, expiresAt.getTime());
+
+        if (persist) {
+            LocalDateTime expiry = LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAt.getTime()), ZoneId.systemDefault());
+            revokedTokenRepository.save(new RevokedToken(jti, expiry));
+        }
+    }
+
+    // dọn bảng revoked_token, bộ nhớ đã được timing wheel dọn
+    @Scheduled(fixedDelayString = "${jwt.revocation.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        if (persist) {
+            int removed = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+            if (removed > 0) {
+                log.debug("Purged {} expired revoked tokens", removed);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.swp391.bloodcare.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/*
+Bảng tương thích ABO/Rh người cho -> người nhận, tính sẵn thành bitmask 8 bit.
+Nhóm máu đánh số 0..7: A+, A-, B+, B-, AB+, AB-, O+, O- (index = ABO * 2 + Rh, Rh: 0 = +, 1 = -).
+- donorMask(kind, nhận): bit i bật nếu nhóm i cho được người nhận này
+- recipientMask(kind, cho): bit i bật nếu nhóm i nhận được từ người cho này
+Kiểm tra một cặp / lọc một danh sách chỉ là một phép shift + and.
+
+Quy tắc theo từng loại chế phẩm:
+- WHOLE_BLOOD: cùng ABO (máu toàn phần có cả hồng cầu lẫn huyết tương); Rh- cho được Rh+, không ngược lại
+- RED_CELLS: hồng cầu O cho mọi nhóm, A -> A/AB, B -> B/AB, AB -> AB; Rh như trên
+- PLASMA: ngược với hồng cầu: AB cho mọi nhóm, A -> A/O, B -> B/O, O -> O; Rh không ảnh hưởng
+- PLATELETS: ABO theo huyết tương (tiểu cầu lơ lửng trong huyết tương), Rh như hồng cầu (tránh mẫn cảm RhD)
+ */
+public final class BloodCompatibility {
+
+    public enum ComponentKind {
+        WHOLE_BLOOD, RED_CELLS, PLASMA, PLATELETS;
+
+        /*
+        Đoán loại chế phẩm từ tên/mã của Component (bảng component do admin nhập tự do):
+        không khớp từ khóa nào -> null, caller tự chọn mặc định.
+         */
+        public static ComponentKind fromKeyword(String value) {
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            String text = value.toLowerCase(Locale.ROOT);
+            if (text.contains("tiểu cầu") || text.contains("tieu cau") || text.contains("platelet") || text.contains("plt")) {
+                return PLATELETS;
+            }
+            if (text.contains("huyết tương") || text.contains("huyet tuong") || text.contains("plasma")
+                    || text.contains("ffp") || text.contains("tủa") || text.contains("cryo")) {
+                return PLASMA;
+            }
+            if (text.contains("hồng cầu") || text.contains("hong cau") || text.contains("red cell") || text.contains("rbc")) {
+                return RED_CELLS;
+            }
+            if (text.contains("toàn phần") || text.contains("toan phan") || text.contains("whole")) {
+                return WHOLE_BLOOD;
+            }
+            return null;
+        }
+    }
+
+    public static final int GROUPS = 8;
+    public static final int ALL = (1 << GROUPS) - 1;
+
+    private static final String[] NAMES = {"A+", "A-", "B+", "B-", "AB+", "AB-", "O+", "O-"};
+
+    // chỉ số ABO trong index nhóm máu (thứ tự như Blood.BloodType)
+    private static final int AB = 2;
+    private static final int O = 3;
+
+    // [kind][nhóm người nhận] -> mask nhóm người cho
+    private static final int[][] DONORS = new int[ComponentKind.values().length][GROUPS];
+    // [kind][nhóm người cho] -> mask nhóm người nhận
+    private static final int[][] RECIPIENTS = new int[ComponentKind.values().length][GROUPS];
+
+    static {
+        for (ComponentKind kind : ComponentKind.values()) {
+            for (int donor = 0; donor < GROUPS; donor++) {
+                for (int recipient = 0; recipient < GROUPS; recipient++) {
+                    if (compatibleByRule(kind, donor, recipient)) {
+                        DONORS[kind.ordinal()][recipient] |= 1 << donor;
+                        RECIPIENTS[kind.ordinal()][donor] |= 1 << recipient;
+                    }
+                }
+            }
+        }
+    }
+
+    private BloodCompatibility() {
+    }
+
+    // abo: thứ tự Blood.BloodType (A, B, AB, O); rhNegative: Blood.RhFactor.NEGATIVE
+    public static int groupIndex(int abo, boolean rhNegative) {
+        return abo * 2 + (rhNegative ? 1 : 0);
+    }
+
+    public static String groupName(int group) {
+        return NAMES[group];
+    }
+
+    // "A+", "ab-", "O +" ... -> index; sai -> IllegalArgumentException
+    public static int parseGroup(String value) {
+        String text = value == null ? "" : value.replace(" ", "").toUpperCase(Locale.ROOT);
+        for (int i = 0; i < GROUPS; i++) {
+            if (NAMES[i].equals(text)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Nhóm máu không hợp lệ: " + value);
+    }
+
+    public static int donorMask(ComponentKind kind, int recipientGroup) {
+        return DONORS[kind.ordinal()][recipientGroup];
+    }
+
+    public static int recipientMask(ComponentKind kind, int donorGroup) {
+        return RECIPIENTS[kind.ordinal()][donorGroup];
+    }
+
+    public static boolean canDonate(ComponentKind kind, int donorGroup, int recipientGroup) {
+        return (DONORS[kind.ordinal()][recipientGroup] >>> donorGroup & 1) != 0;
+    }
+
+    public static boolean contains(int mask, int group) {
+        return (mask >>> group & 1) != 0;
+    }
+
+    public static List<String> groupNames(int mask) {
+        List<String> names = new ArrayList<>(Integer.bitCount(mask));
+        for (int i = 0; i < GROUPS; i++) {
+            if (contains(mask, i)) {
+                names.add(NAMES[i]);
+            }
+        }
+        return names;
+    }
+
+    //quy tắc gốc, chỉ dùng để dựng bảng
+    private static boolean compatibleByRule(ComponentKind kind, int donor, int recipient) {
+        int donorAbo = donor >>> 1;
+        int recipientAbo = recipient >>> 1;
+        boolean donorNegative = (donor & 1) == 1;
+        boolean recipientNegative = (recipient & 1) == 1;
+        // Rh+ không cho người Rh-
+        boolean rhOk = !(recipientNegative && !donorNegative);
+
+        return switch (kind) {
+            case WHOLE_BLOOD -> donorAbo == recipientAbo && rhOk;
+            case RED_CELLS -> redCellsAbo(donorAbo, recipientAbo) && rhOk;
+            case PLASMA -> redCellsAbo(recipientAbo, donorAbo);
+            case PLATELETS -> redCellsAbo(recipientAbo, donorAbo) && rhOk;
+        };
+    }
+
+    //kháng nguyên hồng cầu người cho phải có ở người nhận
+    private static boolean redCellsAbo(int donorAbo, int recipientAbo) {
+        return donorAbo == O
+                || recipientAbo == AB
+                || donorAbo == recipientAbo;
+    }
+}
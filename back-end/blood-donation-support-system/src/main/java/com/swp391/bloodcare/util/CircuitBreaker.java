@@ -0,0 +1,130 @@
+package com.swp391.bloodcare.util;
+
+import java.util.function.BiConsumer;
+
+/*
+Circuit breaker đếm theo số lần gọi gần nhất:
+- CLOSED: ghi kết quả vào cửa sổ windowSize lần gọi, tỉ lệ lỗi >= ngưỡng (khi đã đủ minimumCalls) -> OPEN
+- OPEN: từ chối mọi lần gọi trong openDurationMillis, hết thời gian -> HALF_OPEN
+- HALF_OPEN: cho halfOpenPermits lần gọi thử; tất cả thành công -> CLOSED, có lỗi -> OPEN lại
+Mọi method đều synchronized: chỉ dùng cho thao tác chậm (gọi mạng), không phải hot path.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationMillis;
+    private final int halfOpenPermits;
+    private final BiConsumer<State, State> onTransition;
+
+    private State state = State.CLOSED;
+    private int position;
+    private int recorded;
+    private int failures;
+    private long openedAt;
+    private int halfOpenIssued;
+    private int halfOpenSucceeded;
+
+    // onTransition(from, to) được gọi trong lock, phải nhanh
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openDurationMillis, int halfOpenPermits, BiConsumer<State, State> onTransition) {
+        if (windowSize <= 0 || halfOpenPermits <= 0) {
+            throw new IllegalArgumentException("windowSize and halfOpenPermits must be positive");
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("failureRateThreshold must be in (0, 1]");
+        }
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(Math.max(1, minimumCalls), windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.halfOpenPermits = halfOpenPermits;
+        this.onTransition = onTransition;
+    }
+
+    // false -> không được gọi, caller tự xử lý (bỏ qua / để dành gửi sau)
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openDurationMillis) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenIssued >= halfOpenPermits) {
+                return false;
+            }
+            halfOpenIssued++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSucceeded >= halfOpenPermits) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized double getFailureRate() {
+        return recorded == 0 ? 0 : (double) failures / recorded;
+    }
+
+    private void record(boolean failed) {
+        if (recorded == window.length) {
+            if (window[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[position] = failed;
+        if (failed) {
+            failures++;
+        }
+        position = (position + 1) % window.length;
+    }
+
+    private void transitionTo(State next) {
+        State previous = state;
+        state = next;
+        switch (next) {
+            case OPEN -> openedAt = System.currentTimeMillis();
+            case HALF_OPEN -> {
+                halfOpenIssued = 0;
+                halfOpenSucceeded = 0;
+            }
+            case CLOSED -> {
+                position = 0;
+                recorded = 0;
+                failures = 0;
+            }
+        }
+        if (onTransition != null) {
+            onTransition.accept(previous, next);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.swp391.bloodcare.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Template dạng "Cần gấp nhóm máu O- tại {district}, {name} ...", parse một lần thành các đoạn:
+literal[0] {biến} literal[1] {biến} ... literal[n].
+- render(values) chỉ nối chuỗi vào một StringBuilder đã biết trước kích thước, không parse lại
+- values đánh theo slot: mỗi tên biến khác nhau một slot, thứ tự như getVariables()
+- "{{" và "}}" là ký tự { } thường; "{" không đóng hoặc tên biến sai được giữ nguyên như chữ
+Đối tượng bất biến, dùng chung giữa các thread.
+ */
+public final class CompiledTemplate {
+
+    private final String source;
+    private final String[] literals;
+    // slot của biến thứ i trong template
+    private final int[] slots;
+    private final List<String> variables;
+    private final int literalLength;
+
+    private CompiledTemplate(String source, String[] literals, int[] slots, List<String> variables) {
+        this.source = source;
+        this.literals = literals;
+        this.slots = slots;
+        this.variables = variables;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static CompiledTemplate compile(String source) {
+        String text = source == null ? "" : source;
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        Map<String, Integer> slotByName = new LinkedHashMap<>();
+        StringBuilder current = new StringBuilder();
+
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if ((c == '{' || c == '}') && i + 1 < text.length() && text.charAt(i + 1) == c) {
+                current.append(c);
+                i += 2;
+                continue;
+            }
+            if (c == '{') {
+                int end = text.indexOf('}', i + 1);
+                String name = end < 0 ? null : text.substring(i + 1, end).trim();
+                if (name != null && isValidName(name)) {
+                    literals.add(current.toString());
+                    current.setLength(0);
+                    slots.add(slotByName.computeIfAbsent(name, k -> slotByName.size()));
+                    i = end + 1;
+                    continue;
+                }
+            }
+            current.append(c);
+            i++;
+        }
+        literals.add(current.toString());
+
+        return new CompiledTemplate(text,
+                literals.toArray(new String[0]),
+                slots.stream().mapToInt(Integer::intValue).toArray(),
+                List.copyOf(slotByName.keySet()));
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    // tên biến theo thứ tự slot
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    // values[slot]; null -> chuỗi rỗng
+    public String render(String[] values) {
+        if (slots.length == 0) {
+            return literals[0];
+        }
+        int length = literalLength;
+        for (int slot : slots) {
+            String value = values[slot];
+            length += value == null ? 0 : value.length();
+        }
+        StringBuilder out = new StringBuilder(length);
+        out.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            String value = values[slots[i]];
+            if (value != null) {
+                out.append(value);
+            }
+            out.append(literals[i + 1]);
+        }
+        return out.toString();
+    }
+
+    private static boolean isValidName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
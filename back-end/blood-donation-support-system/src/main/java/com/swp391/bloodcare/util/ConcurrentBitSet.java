@@ -0,0 +1,73 @@
+package com.swp391.bloodcare.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+Bitset đọc không khóa, ghi ít (vd: cờ theo ordinal của account):
+- get() đọc volatile, không khóa, dùng được từ nhiều thread trong lúc đang ghi
+- set()/clear() synchronized, tự mở rộng khi index vượt kích thước (copy sang mảng mới rồi publish)
+Ghi qua một lock nên không mất cập nhật khi đang mở rộng.
+ */
+public class ConcurrentBitSet {
+
+    private volatile AtomicLongArray words;
+
+    public ConcurrentBitSet(int initialBits) {
+        this.words = new AtomicLongArray(Math.max(1, (initialBits + 63) >>> 6));
+    }
+
+    public boolean get(int index) {
+        AtomicLongArray current = words;
+        int word = index >>> 6;
+        return word < current.length() && (current.get(word) & (1L << index)) != 0;
+    }
+
+    public synchronized void set(int index) {
+        ensureCapacity(index);
+        int word = index >>> 6;
+        words.set(word, words.get(word) | (1L << index));
+    }
+
+    public synchronized void clear(int index) {
+        AtomicLongArray current = words;
+        int word = index >>> 6;
+        if (word < current.length()) {
+            current.set(word, current.get(word) & ~(1L << index));
+        }
+    }
+
+    public void set(int index, boolean value) {
+        if (value) {
+            set(index);
+        } else {
+            clear(index);
+        }
+    }
+
+    public int cardinality() {
+        AtomicLongArray current = words;
+        int count = 0;
+        for (int i = 0; i < current.length(); i++) {
+            count += Long.bitCount(current.get(i));
+        }
+        return count;
+    }
+
+    // số byte của mảng bit
+    public long sizeInBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    private void ensureCapacity(int index) {
+        int word = index >>> 6;
+        AtomicLongArray current = words;
+        if (word < current.length()) {
+            return;
+        }
+        AtomicLongArray grown = new AtomicLongArray(Math.max(word + 1, current.length() * 2));
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        words = grown;
+    }
+}
@@ -0,0 +1,341 @@
+package com.swp391.bloodcare.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/*
+Nhật ký delta ghi trước (write-ahead) dạng file, chia segment:
+- mỗi bản ghi 32 byte: seq (long), key (int), 2 delta (long), crc32; seq tăng dần theo đúng thứ tự trong file
+- append() chỉ chép vào buffer trong bộ nhớ (giữ lock rất ngắn) và trả về seq;
+  một thread ghi gom cả buffer, write + force một lần cho cả nhóm (group commit), awaitDurable(seq) chờ tới lượt đó
+- ghi / force lỗi: cắt bỏ phần của nhóm đó khỏi segment, awaitDurable của nhóm và mọi append sau đó ném lỗi
+- segment đầy (segmentBytes) thì mở file mới tên theo seq đầu tiên: delta-<seq>.log
+- truncate(seq): xóa các segment đã đóng mà mọi bản ghi đều <= seq (đã nằm trong DB)
+- replay(): đọc lại các segment, dừng ở bản ghi hỏng / ghi dở cuối file (crash giữa chừng)
+ */
+public class DeltaLog implements Closeable {
+
+    public record Entry(long seq, int key, long first, long second) {
+    }
+
+    private static final int RECORD_BYTES = 32;
+    private static final String PREFIX = "delta-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean sync;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // thread ghi chờ dữ liệu
+    private final Condition notEmpty = lock.newCondition();
+    // append chờ buffer còn chỗ
+    private final Condition notFull = lock.newCondition();
+    // awaitDurable chờ một nhóm xuống đĩa
+    private final Condition flushed = lock.newCondition();
+
+    // các field dưới đây giữ lock khi đọc / ghi
+    private ByteBuffer buffer;
+    private ByteBuffer spare;
+    private long lastSeq;
+    private long durableSeq;
+    private IOException failure;
+    private boolean closed;
+    private boolean writerDone;
+
+    // chỉ thread ghi dùng
+    private FileChannel channel;
+    private long channelBytes;
+    private Thread writer;
+
+    public DeltaLog(Path directory, long segmentBytes, int bufferRecords, boolean sync) {
+        this.directory = directory;
+        this.segmentBytes = Math.max(RECORD_BYTES, segmentBytes);
+        this.sync = sync;
+        this.buffer = ByteBuffer.allocate(Math.max(1, bufferRecords) * RECORD_BYTES);
+        this.spare = ByteBuffer.allocate(buffer.capacity());
+    }
+
+    //đọc các bản ghi có seq > afterSeq; trả về seq lớn nhất thấy được (kể cả các bản ghi <= afterSeq)
+    public long replay(long afterSeq, Consumer<Entry> consumer) throws IOException {
+        long maxSeq = afterSeq;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        for (Path segment : segments()) {
+            try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ)) {
+                while (true) {
+                    record.clear();
+                    while (record.hasRemaining() && in.read(record) >= 0) {
+                        // đọc tới khi đủ một bản ghi hoặc hết file
+                    }
+                    if (record.hasRemaining()) {
+                        break;
+                    }
+                    record.flip();
+                    long seq = record.getLong();
+                    int key = record.getInt();
+                    long first = record.getLong();
+                    long second = record.getLong();
+                    if (record.getInt() != checksum(record.array(), 0)) {
+                        break;
+                    }
+                    maxSeq = Math.max(maxSeq, seq);
+                    if (seq > afterSeq) {
+                        consumer.accept(new Entry(seq, key, first, second));
+                    }
+                }
+            }
+        }
+        return maxSeq;
+    }
+
+    //mở segment mới, seq tiếp theo = lastSeq + 1; gọi sau replay()
+    public void start(long lastSeq) throws IOException {
+        Files.createDirectories(directory);
+        lock.lock();
+        try {
+            this.lastSeq = lastSeq;
+            this.durableSeq = lastSeq;
+        } finally {
+            lock.unlock();
+        }
+        openSegment(lastSeq + 1);
+        writer = Thread.ofVirtual().name("delta-log-writer").start(this::writeLoop);
+    }
+
+    //buffer đầy thì chờ thread ghi xả bớt
+    public long append(int key, long first, long second) {
+        lock.lock();
+        try {
+            while (buffer.remaining() < RECORD_BYTES) {
+                checkOpen();
+                notFull.awaitUninterruptibly();
+            }
+            checkOpen();
+            long seq = ++lastSeq;
+            int start = buffer.position();
+            buffer.putLong(seq).putInt(key).putLong(first).putLong(second);
+            buffer.putInt(checksum(buffer.array(), start));
+            if (start == 0) {
+                notEmpty.signal();
+            }
+            return seq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long lastSeq() {
+        lock.lock();
+        try {
+            return lastSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //chờ bản ghi seq đã xuống đĩa; lỗi ghi -> UncheckedIOException
+    public void awaitDurable(long seq) {
+        lock.lock();
+        try {
+            while (durableSeq < seq) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Không ghi được nhật ký delta", failure);
+                }
+                if (writerDone) {
+                    throw new IllegalStateException("Nhật ký delta đã đóng");
+                }
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //xóa segment đã đóng có mọi seq <= seq (segment sau bắt đầu từ <= seq + 1); segment cuối đang ghi thì giữ
+    public void truncate(long seq) throws IOException {
+        List<Path> segments = segments();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstSeq(segments.get(i + 1)) > seq + 1) {
+                break;
+            }
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    public long sizeInBytes() throws IOException {
+        long bytes = 0;
+        for (Path segment : segments()) {
+            bytes += Files.size(segment);
+        }
+        return bytes;
+    }
+
+    //xả nốt buffer rồi đóng file
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            //writer lỗi cũng đặt closed, vẫn phải đóng file
+            closed = true;
+            notEmpty.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                ByteBuffer batch;
+                long batchSeq;
+                lock.lock();
+                try {
+                    while (buffer.position() == 0 && !closed) {
+                        notEmpty.awaitUninterruptibly();
+                    }
+                    if (buffer.position() == 0) {
+                        return;
+                    }
+                    batch = buffer;
+                    buffer = spare;
+                    spare = batch;
+                    batchSeq = lastSeq;
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+
+                try {
+                    batch.flip();
+                    while (batch.hasRemaining()) {
+                        channel.write(batch);
+                    }
+                    if (sync) {
+                        channel.force(false);
+                    }
+                } catch (IOException e) {
+                    //caller của cả nhóm sẽ nhận lỗi -> cắt phần ghi dở để lần khởi động sau không phát lại
+                    discardFrom(channelBytes);
+                    fail(e);
+                    return;
+                }
+                channelBytes += batch.limit();
+
+                lock.lock();
+                try {
+                    //buffer vừa ghi có thể được append dùng lại ngay sau khi clear
+                    batch.clear();
+                    durableSeq = batchSeq;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+
+                if (channelBytes >= segmentBytes) {
+                    try {
+                        channel.close();
+                        openSegment(batchSeq + 1);
+                    } catch (IOException e) {
+                        fail(e);
+                        return;
+                    }
+                }
+            }
+        } finally {
+            lock.lock();
+            try {
+                writerDone = true;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void fail(IOException e) {
+        lock.lock();
+        try {
+            failure = e;
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //cố gắng đưa segment về kích thước trước nhóm lỗi; truncate cũng lỗi thì nhóm đó vẫn có thể được phát lại
+    private void discardFrom(long size) {
+        try {
+            channel.truncate(size);
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (IOException ignored) {
+            //đã báo lỗi gốc cho caller
+        }
+    }
+
+    private void openSegment(long firstSeq) throws IOException {
+        channel = FileChannel.open(directory.resolve(PREFIX + String.format("%020d", firstSeq) + SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        channelBytes = channel.size();
+    }
+
+    //theo seq đầu tiên tăng dần (tên file có độ dài cố định)
+    private List<Path> segments() throws IOException {
+        List<Path> result = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return result;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(result::add);
+        }
+        result.sort(null);
+        return result;
+    }
+
+    private static long firstSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new UncheckedIOException("Không ghi được nhật ký delta", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Nhật ký delta đã đóng");
+        }
+    }
+
+    //crc32 của 28 byte đầu bản ghi bắt đầu tại offset
+    private static int checksum(byte[] bytes, int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, RECORD_BYTES - Integer.BYTES);
+        return (int) crc.getValue();
+    }
+}
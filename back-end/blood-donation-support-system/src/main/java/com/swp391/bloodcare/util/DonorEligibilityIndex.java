@@ -0,0 +1,428 @@
+package com.swp391.bloodcare.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+Index người hiến trong bộ nhớ: "người hiến nhóm X ở quận Y đã hết thời gian nghỉ tính tới ngày D".
+- mỗi donor một ordinal (int, cấp dần); account id lưu thành 2 long, tra ngược bằng bảng băm int[] (open addressing)
+- chia partition theo (quận, nhóm máu 0..7 như BloodCompatibility, 8 = chưa có nhóm);
+  mỗi partition là 2 mảng int song song (ngày hết nghỉ dạng epoch day, ordinal), sắp tăng theo ngày
+  -> "đã hết nghỉ tới ngày D" là một tiền tố của mảng: đếm = một lần binary search, lấy danh sách = copy tiền tố
+- rest_date null (chưa hiến lần nào) = hết nghỉ từ đầu
+- ghi một writer tại một thời điểm (synchronized), chỉ khóa ghi partition bị đổi; đọc chỉ khóa đọc từng partition
+- build từ đầu: startLoad() -> put / remove chỉ ghi thêm vào cuối partition, finishLoad() sắp mỗi partition một lần
+  (chèn giữ thứ tự là O(n) mỗi lần, build cả triệu donor bằng chèn là O(n^2)); chưa finishLoad thì chưa được đọc
+
+Bộ nhớ mỗi donor (không tính chuỗi tên quận, dùng chung):
+- partition: 2 int = 8 byte, mảng nới 1.5 lần -> 8..12 byte
+- theo ordinal: id 2 long + partition int + ngày int = 24 byte, mảng nới 1.5 lần -> 24..36 byte
+- bảng băm: 1 int mỗi ô, load factor 0.35..0.7 -> 6..12 byte
+=> khoảng 40..60 byte/donor, 1M donor ~ 40..60 MB (HashMap<String, ...> theo account id đã tốn ~150 byte/donor).
+ */
+public class DonorEligibilityIndex {
+
+    public static final int UNKNOWN_GROUP = BloodCompatibility.GROUPS;
+    public static final int GROUP_SLOTS = BloodCompatibility.GROUPS + 1;
+    public static final int ALL_GROUPS = (1 << GROUP_SLOTS) - 1;
+
+    // rest_date null
+    public static final int ALWAYS_ELIGIBLE = Integer.MIN_VALUE;
+
+    private static final int NOT_INDEXED = -1;
+    private static final float MAX_LOAD = 0.7f;
+
+    // tên quận đã chuẩn hóa -> id; partition = districtId * GROUP_SLOTS + nhóm
+    private final Map<String, Integer> districtIds = new ConcurrentHashMap<>();
+    private volatile Partition[] partitions = new Partition[0];
+
+    // theo ordinal, chỉ writer sửa; mảng mới được publish trước khi ordinal xuất hiện trong partition
+    private volatile long[] idHigh;
+    private volatile long[] idLow;
+    private int[] slotOf;
+    private int[] dayOf;
+    private int ordinals;
+    private volatile int indexed;
+    // giữa startLoad() và finishLoad()
+    private boolean loading;
+
+    // ordinal + 1, 0 = ô trống; chỉ writer dùng
+    private int[] table;
+
+    public DonorEligibilityIndex(int expectedDonors) {
+        int capacity = Math.max(16, expectedDonors);
+        idHigh = new long[capacity];
+        idLow = new long[capacity];
+        slotOf = new int[capacity];
+        dayOf = new int[capacity];
+        table = new int[tableSizeFor(capacity)];
+    }
+
+    // quận so sánh không phân biệt hoa thường / khoảng trắng hai đầu, giống collation của cột district
+    public static String districtKey(String district) {
+        return district == null ? "" : district.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /*
+    Thêm / cập nhật donor. group: 0..7 hoặc UNKNOWN_GROUP, restDay: epoch day hoặc ALWAYS_ELIGIBLE.
+    Không đổi partition và ngày thì không làm gì.
+     */
+    public synchronized void put(String accountId, String district, int group, int restDay) {
+        if (group < 0 || group >= GROUP_SLOTS) {
+            group = UNKNOWN_GROUP;
+        }
+        UUID id = UUID.fromString(accountId);
+        int ordinal = ordinalOf(id.getMostSignificantBits(), id.getLeastSignificantBits(), true);
+        int slot = slotFor(districtKey(district), group);
+
+        int oldSlot = slotOf[ordinal];
+        if (oldSlot == slot && dayOf[ordinal] == restDay) {
+            return;
+        }
+        if (oldSlot != NOT_INDEXED) {
+            //lúc load cặp cũ để lại, finishLoad() bỏ đi
+            if (!loading) {
+                partitions[oldSlot].remove(dayOf[ordinal], ordinal);
+            }
+            indexed--;
+        }
+        if (loading) {
+            partitions[slot].append(restDay, ordinal);
+        } else {
+            partitions[slot].insert(restDay, ordinal);
+        }
+        slotOf[ordinal] = slot;
+        dayOf[ordinal] = restDay;
+        indexed++;
+    }
+
+    //chỉ gọi trên index mới chưa được đọc
+    public synchronized void startLoad() {
+        loading = true;
+    }
+
+    //sắp mỗi partition một lần, bỏ các cặp donor đã đổi / bị xóa trong lúc load
+    public synchronized void finishLoad() {
+        if (!loading) {
+            return;
+        }
+        for (int slot = 0; slot < partitions.length; slot++) {
+            partitions[slot].sort(slot, slotOf, dayOf);
+        }
+        loading = false;
+    }
+
+    // bỏ donor khỏi index (account bị khóa / xóa profile); ordinal giữ lại để dùng lại khi thêm lại
+    public synchronized boolean remove(String accountId) {
+        UUID id = UUID.fromString(accountId);
+        int ordinal = ordinalOf(id.getMostSignificantBits(), id.getLeastSignificantBits(), false);
+        if (ordinal < 0 || slotOf[ordinal] == NOT_INDEXED) {
+            return false;
+        }
+        if (!loading) {
+            partitions[slotOf[ordinal]].remove(dayOf[ordinal], ordinal);
+        }
+        slotOf[ordinal] = NOT_INDEXED;
+        indexed--;
+        return true;
+    }
+
+    // district null -> mọi quận; groupMask: bit theo nhóm (ALL_GROUPS = mọi nhóm kể cả chưa có nhóm)
+    public int count(String district, int groupMask, int day) {
+        int total = 0;
+        for (Partition partition : matching(district, groupMask)) {
+            total += partition.countUpTo(day);
+        }
+        return total;
+    }
+
+    //tối đa limit account id; trong mỗi partition ai hết nghỉ sớm hơn lên trước
+    public List<String> find(String district, int groupMask, int day, int limit) {
+        List<String> result = new ArrayList<>(Math.min(Math.max(0, limit), 1024));
+        long[] high = idHigh;
+        long[] low = idLow;
+        for (Partition partition : matching(district, groupMask)) {
+            if (result.size() >= limit) {
+                break;
+            }
+            for (int ordinal : partition.prefix(day, limit - result.size())) {
+                //ordinal mới hơn mảng đã đọc -> đọc lại mảng (đã publish trước khi vào partition)
+                if (ordinal >= high.length) {
+                    high = idHigh;
+                    low = idLow;
+                }
+                result.add(new UUID(high[ordinal], low[ordinal]).toString());
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return indexed;
+    }
+
+    public synchronized long sizeInBytes() {
+        long bytes = (long) idHigh.length * Long.BYTES * 2
+                + (long) slotOf.length * Integer.BYTES * 2
+                + (long) table.length * Integer.BYTES;
+        for (Partition partition : partitions) {
+            bytes += partition.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private List<Partition> matching(String district, int groupMask) {
+        Partition[] current = partitions;
+        List<Partition> result = new ArrayList<>();
+        if (district != null) {
+            Integer districtId = districtIds.get(districtKey(district));
+            if (districtId == null) {
+                return result;
+            }
+            int base = districtId * GROUP_SLOTS;
+            for (int group = 0; group < GROUP_SLOTS; group++) {
+                if ((groupMask >>> group & 1) != 0 && base + group < current.length) {
+                    result.add(current[base + group]);
+                }
+            }
+            return result;
+        }
+        for (int slot = 0; slot < current.length; slot++) {
+            if ((groupMask >>> (slot % GROUP_SLOTS) & 1) != 0) {
+                result.add(current[slot]);
+            }
+        }
+        return result;
+    }
+
+    //quận mới -> thêm GROUP_SLOTS partition rỗng, publish mảng mới
+    private int slotFor(String districtKey, int group) {
+        Integer districtId = districtIds.get(districtKey);
+        if (districtId == null) {
+            districtId = districtIds.size();
+            Partition[] grown = Arrays.copyOf(partitions, (districtId + 1) * GROUP_SLOTS);
+            for (int slot = districtId * GROUP_SLOTS; slot < grown.length; slot++) {
+                grown[slot] = new Partition();
+            }
+            partitions = grown;
+            districtIds.put(districtKey, districtId);
+        }
+        return districtId * GROUP_SLOTS + group;
+    }
+
+    //-1 nếu chưa có và create = false
+    private int ordinalOf(long high, long low, boolean create) {
+        int mask = table.length - 1;
+        int i = hash(high, low) & mask;
+        while (table[i] != 0) {
+            int ordinal = table[i] - 1;
+            if (idHigh[ordinal] == high && idLow[ordinal] == low) {
+                return ordinal;
+            }
+            i = (i + 1) & mask;
+        }
+        if (!create) {
+            return -1;
+        }
+
+        int ordinal = ordinals;
+        ensureOrdinalCapacity(ordinal + 1);
+        idHigh[ordinal] = high;
+        idLow[ordinal] = low;
+        slotOf[ordinal] = NOT_INDEXED;
+        ordinals++;
+        if (ordinals > table.length * MAX_LOAD) {
+            rehash(table.length * 2);
+        } else {
+            table[i] = ordinal + 1;
+        }
+        return ordinal;
+    }
+
+    private void ensureOrdinalCapacity(int needed) {
+        if (needed <= slotOf.length) {
+            return;
+        }
+        int capacity = Math.max(needed, slotOf.length + (slotOf.length >> 1));
+        slotOf = Arrays.copyOf(slotOf, capacity);
+        dayOf = Arrays.copyOf(dayOf, capacity);
+        long[] low = Arrays.copyOf(idLow, capacity);
+        long[] high = Arrays.copyOf(idHigh, capacity);
+        idLow = low;
+        idHigh = high;
+    }
+
+    private void rehash(int size) {
+        int[] next = new int[size];
+        int mask = size - 1;
+        for (int ordinal = 0; ordinal < ordinals; ordinal++) {
+            int i = hash(idHigh[ordinal], idLow[ordinal]) & mask;
+            while (next[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            next[i] = ordinal + 1;
+        }
+        table = next;
+    }
+
+    private static int tableSizeFor(int entries) {
+        int size = Integer.highestOneBit((int) Math.ceil(entries / MAX_LOAD));
+        return size < entries / MAX_LOAD ? size << 1 : size;
+    }
+
+    //UUIDv7: phần đầu là thời gian, trộn cả hai nửa cho đều
+    private static int hash(long high, long low) {
+        long h = high * 0x9E3779B97F4A7C15L ^ low;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    //một (quận, nhóm): cặp (ngày, ordinal) sắp tăng; ngày bằng nhau thì theo ordinal để xóa tìm được đúng vị trí
+    private static final class Partition {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private int[] days = new int[0];
+        private int[] members = new int[0];
+        private int size;
+
+        void insert(int day, int ordinal) {
+            lock.writeLock().lock();
+            try {
+                ensureCapacity();
+                int at = search(day, ordinal);
+                at = at < 0 ? -at - 1 : at;
+                System.arraycopy(days, at, days, at + 1, size - at);
+                System.arraycopy(members, at, members, at + 1, size - at);
+                days[at] = day;
+                members[at] = ordinal;
+                size++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        //chỉ lúc load: thêm vào cuối, chưa giữ thứ tự
+        void append(int day, int ordinal) {
+            lock.writeLock().lock();
+            try {
+                ensureCapacity();
+                days[size] = day;
+                members[size] = ordinal;
+                size++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        //sắp theo (ngày, ordinal) bằng một lần sort; chỉ giữ cặp còn khớp slotOf / dayOf của donor
+        void sort(int slot, int[] slotOf, int[] dayOf) {
+            lock.writeLock().lock();
+            try {
+                long[] pairs = new long[size];
+                for (int i = 0; i < size; i++) {
+                    pairs[i] = (long) days[i] << 32 | members[i];
+                }
+                Arrays.sort(pairs);
+                int kept = 0;
+                for (int i = 0; i < pairs.length; i++) {
+                    int day = (int) (pairs[i] >> 32);
+                    int ordinal = (int) pairs[i];
+                    if (slotOf[ordinal] != slot || dayOf[ordinal] != day || (i > 0 && pairs[i] == pairs[i - 1])) {
+                        continue;
+                    }
+                    days[kept] = day;
+                    members[kept] = ordinal;
+                    kept++;
+                }
+                size = kept;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(int day, int ordinal) {
+            lock.writeLock().lock();
+            try {
+                int at = search(day, ordinal);
+                if (at < 0) {
+                    return;
+                }
+                System.arraycopy(days, at + 1, days, at, size - at - 1);
+                System.arraycopy(members, at + 1, members, at, size - at - 1);
+                size--;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int countUpTo(int day) {
+            lock.readLock().lock();
+            try {
+                return upperBound(day);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int[] prefix(int day, int limit) {
+            lock.readLock().lock();
+            try {
+                return Arrays.copyOf(members, Math.min(upperBound(day), Math.max(0, limit)));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        long sizeInBytes() {
+            return (long) days.length * Integer.BYTES * 2;
+        }
+
+        private void ensureCapacity() {
+            if (size == days.length) {
+                int capacity = Math.max(8, size + (size >> 1));
+                days = Arrays.copyOf(days, capacity);
+                members = Arrays.copyOf(members, capacity);
+            }
+        }
+
+        //số phần tử có ngày <= day
+        private int upperBound(int day) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (days[mid] <= day) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        //vị trí của (day, ordinal), không có thì -(vị trí chèn) - 1
+        private int search(int day, int ordinal) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = days[mid] != day ? Integer.compare(days[mid], day) : Integer.compare(members[mid], ordinal);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
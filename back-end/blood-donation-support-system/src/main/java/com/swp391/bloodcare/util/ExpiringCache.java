@@ -0,0 +1,98 @@
+package com.swp391.bloodcare.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Cache giới hạn kích thước, mỗi entry có thời điểm hết hạn riêng.
+- get() không trả về entry đã hết hạn
+- khi đầy: dọn entry hết hạn trước, nếu vẫn đầy thì bỏ bớt ~10% entry bất kỳ
+ */
+public class ExpiringCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    // số entry bị bỏ do cache đầy
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value();
+    }
+
+    // expiresAt tính bằng epoch millis
+    public void put(K key, V value, long expiresAt) {
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        if (entries.size() >= maxSize && !entries.containsKey(key)) {
+            makeRoom();
+        }
+        entries.put(key, new Entry<>(value, expiresAt));
+    }
+
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int purgeExpired() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue().expiresAt() <= now) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private void makeRoom() {
+        purgeExpired();
+        int toRemove = entries.size() - maxSize + Math.max(1, maxSize / 10);
+        Iterator<K> it = entries.keySet().iterator();
+        while (toRemove > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+            toRemove--;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.swp391.bloodcare.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/*
+Hashed timing wheel (kiểu Netty HashedWheelTimer):
+- schedule() chỉ đẩy vào hàng đợi lock-free, O(1)
+- một thread worker mỗi tick chuyển item vào bucket và gọi onExpire cho item đến hạn
+- item có deadline xa hơn một vòng wheel được giữ lại bằng remainingRounds
+Độ chính xác = tickMillis, callback chạy trên thread worker nên phải nhanh.
+ */
+public class HashedTimingWheel<T> implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    private static final class Timeout<T> {
+        final T item;
+        final long deadline;
+        long remainingRounds;
+
+        Timeout(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+    }
+
+    private final long tickMillis;
+    private final ArrayDeque<Timeout<T>>[] wheel;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout<T>> pending = new ConcurrentLinkedQueue<>();
+    private final Consumer<T> onExpire;
+    private final AtomicLong size = new AtomicLong();
+    private final long startTime;
+    private final Thread worker;
+
+    private volatile boolean running = true;
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(String name, long tickMillis, int ticksPerWheel, Consumer<T> onExpire) {
+        if (tickMillis <= 0 || ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("tickMillis and ticksPerWheel must be positive");
+        }
+        int normalized = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        if (normalized <= 0) {
+            normalized = 1;
+        }
+        this.tickMillis = tickMillis;
+        this.wheel = new ArrayDeque[normalized];
+        for (int i = 0; i < normalized; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        this.mask = normalized - 1;
+        this.onExpire = onExpire;
+        this.startTime = System.currentTimeMillis();
+
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    // deadline tính bằng epoch millis
+    public void schedule(T item, long deadline) {
+        if (!running) {
+            throw new IllegalStateException("Timing wheel is stopped");
+        }
+        pending.add(new Timeout<>(item, deadline));
+        size.incrementAndGet();
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long tickDeadline = startTime + (tick + 1) * tickMillis;
+            long sleep = tickDeadline - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                }
+            }
+            transferPending();
+            expire(wheel[(int) (tick & mask)], tickDeadline);
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        Timeout<T> timeout;
+        while ((timeout = pending.poll()) != null) {
+            long calculated = (timeout.deadline - startTime) / tickMillis;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void expire(ArrayDeque<Timeout<T>> bucket, long tickDeadline) {
+        Iterator<Timeout<T>> it = bucket.iterator();
+        while (it.hasNext()) {
+            Timeout<T> timeout = it.next();
+            if (timeout.remainingRounds <= 0 && timeout.deadline <= tickDeadline) {
+                it.remove();
+                size.decrementAndGet();
+                try {
+                    onExpire.accept(timeout.item);
+                } catch (RuntimeException e) {
+                    log.warn("Timing wheel callback failed", e);
+                }
+            } else if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+}
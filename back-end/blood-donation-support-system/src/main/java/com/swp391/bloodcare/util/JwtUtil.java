@@ -1,54 +1,104 @@
 package com.swp391.bloodcare.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_ACCOUNT_ID = "accountId";
+
     @Value("${jwt.secret:supersecuresecretkeyforjwt1234567890!}")
     private String secret;
 
     @Value("${jwt.expiration:86400000}")
     private Long expiration;
 
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private int verifiedCacheMaxSize;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    // key và parser chỉ tạo một lần
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    // token đã xác thực, key = SHA-256 của token, hết hạn cùng token
+    private ExpiringCache<String, VerifiedToken> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        jwtParser = Jwts.parser().setSigningKey(signingKey).build();
+        verifiedTokens = new ExpiringCache<>(verifiedCacheMaxSize);
+    }
+
     private SecretKey getSigningKey(){
-        return Keys.hmacShaKeyFor(secret.getBytes());
+        return signingKey;
     }
 
-    // tạo jwt token từ username
-    public String generateToken(String username){
+    // tạo jwt token từ username, kèm role + accountId để filter không cần query DB
+    public String generateToken(String username, String accountId, String role){
         Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_ACCOUNT_ID, accountId);
+        claims.put(CLAIM_ROLE, role);
 
         return createToken(claims, username);
     }
 
     public String createToken(Map<String, Object> claims, String subject){
         return Jwts.builder().setClaims(claims).setSubject(subject)
+                .setId(UUID.randomUUID().toString()) // jti dùng cho logout
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public Claims extractAllClaims(String token){
-        return Jwts.parser()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    // parse + kiểm tra chữ ký + hạn một lần, các lần sau với cùng token lấy từ cache
+    // ném JwtException nếu token sai chữ ký hoặc đã hết hạn
+    public VerifiedToken verifyToken(String token){
+        String cacheKey = digest(token);
+        VerifiedToken cached = verifiedTokens.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        VerifiedToken verified = new VerifiedToken(claims.getId(), claims.getSubject(), claims.getExpiration(), claims);
+        if (verified.expiration() != null) {
+            verifiedTokens.put(cacheKey, verified, verified.expiration().getTime());
+        }
+        return verified;
+    }
 
+    public Claims extractAllClaims(String token){
+        return verifyToken(token).claims();
     }
 
     public <T> T extractClaim(String token, Function<Claims,T> claimsResolver){
@@ -58,26 +108,24 @@ public class JwtUtil {
 
     //lấy username từ token
     public String extractUsername(String token){
-        return extractClaim(token, Claims::getSubject);
+        return verifyToken(token).subject();
     }
 
 
     // lấy expiration date từ token
     public Date extractExpiration(String token){
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    // kiểm tra token có hết hạn không?
-    private Boolean isTokenExpired(String token){
-        return extractExpiration(token).before(new Date());
+        return verifyToken(token).expiration();
     }
 
     //validate token
     public Boolean validateToken(String token, String username){
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
+        final VerifiedToken verified = verifyToken(token);
+        return verified.subject().equals(username) && verified.expiration().after(new Date());
     }
 
-
+    private static String digest(String token){
+        byte[] hash = SHA256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(hash);
+    }
 
 }
@@ -0,0 +1,120 @@
+package com.swp391.bloodcare.util;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Token bucket theo key (IP, username...):
+- ConcurrentHashMap đã chia stripe sẵn, mỗi bucket chỉ lock chính nó
+- bucket không dùng quá idleMillis sẽ bị evictIdle() dọn
+- map đầy (maxKeys): bỏ các bucket đã nạp đầy lại (quên chúng không đổi kết quả, key quay lại cũng nhận bucket đầy);
+  vẫn đầy thì chỉ từ chối key mới, các key đang có không bị ảnh hưởng -> flood IP giả không làm chậm client thật đã có bucket
+  và không dồn mọi client mới vào chung một bucket
+ */
+public class TokenBucketRateLimiter {
+
+    // map đầy thì dọn tối đa một lần trong khoảng này, flood không biến mỗi request thành một lần quét
+    private static final long FULL_SWEEP_INTERVAL_MS = 100;
+
+    private static final class Bucket {
+        private final int capacity;
+        private final double refillPerMillis;
+        private double tokens;
+        private long lastRefill;
+        private volatile long lastAccess;
+
+        Bucket(int capacity, double refillPerMillis, long now) {
+            this.capacity = capacity;
+            this.refillPerMillis = refillPerMillis;
+            this.tokens = capacity;
+            this.lastRefill = now;
+            this.lastAccess = now;
+        }
+
+        // trả về 0 nếu được phép, ngược lại số ms cần chờ
+        synchronized long tryConsume(long now) {
+            lastAccess = now;
+            if (now > lastRefill) {
+                tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerMillis);
+                lastRefill = now;
+            }
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / refillPerMillis);
+        }
+
+        // như tryConsume nhưng không trừ token
+        synchronized long waitMillis(long now) {
+            double available = Math.min(capacity, tokens + Math.max(0, now - lastRefill) * refillPerMillis);
+            return available >= 1 ? 0 : (long) Math.ceil((1 - available) / refillPerMillis);
+        }
+
+        synchronized boolean isFull(long now) {
+            return tokens + Math.max(0, now - lastRefill) * refillPerMillis >= capacity;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final int maxKeys;
+    private final AtomicLong lastFullSweep = new AtomicLong();
+
+    public TokenBucketRateLimiter(int maxKeys) {
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("maxKeys must be positive");
+        }
+        this.maxKeys = maxKeys;
+    }
+
+    // capacity / refillPerMinute phải > 0 và cố định cho mỗi key
+    public long tryAcquire(String key, int capacity, double refillPerMinute) {
+        if (capacity <= 0 || !(refillPerMinute > 0)) {
+            throw new IllegalArgumentException("capacity and refillPerMinute must be positive");
+        }
+        long now = System.currentTimeMillis();
+
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys && !makeRoom(now)) {
+                //chỉ key mới bị từ chối, thử lại sau khoảng một token được nạp
+                return Math.max(1, (long) Math.ceil(60_000d / refillPerMinute));
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket(capacity, refillPerMinute / 60_000d, now));
+        }
+        return bucket.tryConsume(now);
+    }
+
+    //số ms phải chờ tới khi key có token, không trừ token; key chưa có bucket -> 0
+    public long peek(String key) {
+        Bucket bucket = buckets.get(key);
+        return bucket == null ? 0 : bucket.waitMillis(System.currentTimeMillis());
+    }
+
+    public int evictIdle(long idleMillis) {
+        long threshold = System.currentTimeMillis() - idleMillis;
+        int removed = 0;
+        Iterator<Bucket> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().lastAccess < threshold) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    //bỏ các bucket đã đầy lại; true nếu còn chỗ cho key mới
+    private boolean makeRoom(long now) {
+        long last = lastFullSweep.get();
+        if (now - last >= FULL_SWEEP_INTERVAL_MS && lastFullSweep.compareAndSet(last, now)) {
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+        return buckets.size() < maxKeys;
+    }
+}
@@ -0,0 +1,53 @@
+package com.swp391.bloodcare.util;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/*
+Lưu id dạng chuỗi UUID ("xxxxxxxx-xxxx-...") thành BINARY(16) trong DB.
+Code và API vẫn dùng String, chỉ cột trong DB đổi kiểu: 16 byte thay vì 36 ký tự,
+index và các khóa ngoại trỏ tới nó nhỏ đi hơn một nửa.
+Chuỗi không phải UUID -> IllegalArgumentException; id lấy từ URL / request phải kiểm tra isUuid() trước.
+ */
+@Converter
+public class UuidBinaryConverter implements AttributeConverter<String, byte[]> {
+
+    // đúng dạng 8-4-4-4-12; UUID.fromString nhận cả "1-2-3-4-5"
+    private static final Pattern UUID_PATTERN =
+            Pattern.compile("^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$");
+
+    public static boolean isUuid(String value) {
+        return value != null && UUID_PATTERN.matcher(value).matches();
+    }
+
+    @Override
+    public byte[] convertToDatabaseColumn(String attribute) {
+        if (attribute == null) {
+            return null;
+        }
+        if (!isUuid(attribute)) {
+            throw new IllegalArgumentException("Not a UUID: " + attribute);
+        }
+        UUID uuid = UUID.fromString(attribute);
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] dbData) {
+        if (dbData == null) {
+            return null;
+        }
+        if (dbData.length != 16) {
+            throw new IllegalArgumentException("Expected 16 bytes, got " + dbData.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(dbData);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+}
@@ -0,0 +1,41 @@
+package com.swp391.bloodcare.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Sinh UUID version 7 (RFC 9562): 48 bit thời gian (ms) + 12 bit bộ đếm + 62 bit ngẫu nhiên.
+- id tăng dần theo thời gian -> insert luôn ở cuối index B-tree, không làm phân mảnh trang
+- cùng một ms thì bộ đếm tăng, nên id sinh ra trong một JVM luôn tăng chặt
+- phần ngẫu nhiên chỉ để tránh trùng giữa các instance, không dùng làm bí mật
+ */
+public final class UuidV7 {
+
+    // (unix ms << 12) | bộ đếm của id sinh gần nhất
+    private static final AtomicLong lastTimestampAndCounter = new AtomicLong();
+
+    private UuidV7() {
+    }
+
+    public static UUID next() {
+        long now = System.currentTimeMillis() << 12;
+        long current;
+        long next;
+        do {
+            current = lastTimestampAndCounter.get();
+            // bộ đếm tràn thì mượn sang ms kế tiếp, vẫn giữ thứ tự tăng
+            next = Math.max(now, current + 1);
+        } while (!lastTimestampAndCounter.compareAndSet(current, next));
+
+        long millis = next >>> 12;
+        long counter = next & 0xfff;
+        long msb = (millis << 16) | 0x7000L | counter;
+        long lsb = (ThreadLocalRandom.current().nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    public static String nextString() {
+        return next().toString();
+    }
+}
@@ -0,0 +1,9 @@
+package com.swp391.bloodcare.util;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+// kết quả của một lần parse + kiểm tra chữ ký token
+public record VerifiedToken(String tokenId, String subject, Date expiration, Claims claims) {
+}
@@ -0,0 +1,128 @@
+-- Chuyển account.id (VARCHAR UUID 36 ký tự) và mọi khóa ngoại trỏ tới nó sang BINARY(16).
+-- Chạy tay một lần trên MySQL 8 TRƯỚC khi deploy bản dùng UuidBinaryConverter, khi app đang dừng.
+-- Sao lưu DB trước khi chạy. Id cũ (UUIDv4) giữ nguyên giá trị, chỉ đổi cách lưu;
+-- id mới sinh ra là UUIDv7 nên tăng dần theo thời gian.
+-- DDL của MySQL không rollback được nên mọi kiểm tra chạy TRƯỚC lệnh ALTER đầu tiên, sai thì SIGNAL và dừng.
+-- Cột đổi kiểu tại chỗ (VARCHAR -> VARBINARY -> UNHEX -> BINARY(16)) bằng MODIFY nên giữ nguyên
+-- index / UNIQUE (vd profile.account_id one-to-one) và PRIMARY KEY; NOT NULL được ghi lại rồi đặt lại;
+-- khóa ngoại bị xóa để đổi kiểu và được tạo lại y như cũ (tên, ON DELETE / ON UPDATE) ở bước cuối.
+
+DROP PROCEDURE IF EXISTS migrate_account_id_binary;
+
+DELIMITER //
+CREATE PROCEDURE migrate_account_id_binary()
+BEGIN
+    DECLARE done INT DEFAULT 0;
+    DECLARE t_name VARCHAR(64);
+    DECLARE c_name VARCHAR(64);
+    DECLARE fk_name VARCHAR(64);
+    DECLARE c_nullable VARCHAR(3);
+    DECLARE on_delete VARCHAR(32);
+    DECLARE on_update VARCHAR(32);
+    DECLARE ref_cursor CURSOR FOR
+        SELECT ref_table, ref_column, constraint_name, is_nullable, delete_rule, update_rule FROM account_id_refs;
+    DECLARE CONTINUE HANDLER FOR NOT FOUND SET done = 1;
+
+    -- 0. đã migrate rồi thì dừng
+    IF (SELECT DATA_TYPE FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'account' AND COLUMN_NAME = 'id') NOT IN ('varchar', 'char') THEN
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'account.id is not VARCHAR, migration already applied?';
+    END IF;
+
+    -- 1. ghi lại các khóa ngoại trỏ tới account.id (cột, NOT NULL, luật ON DELETE / ON UPDATE)
+    DROP TEMPORARY TABLE IF EXISTS account_id_refs;
+    CREATE TEMPORARY TABLE account_id_refs AS
+        SELECT k.TABLE_NAME AS ref_table, k.COLUMN_NAME AS ref_column, k.CONSTRAINT_NAME AS constraint_name,
+               c.IS_NULLABLE AS is_nullable, r.DELETE_RULE AS delete_rule, r.UPDATE_RULE AS update_rule
+        FROM information_schema.KEY_COLUMN_USAGE k
+        JOIN information_schema.REFERENTIAL_CONSTRAINTS r
+          ON r.CONSTRAINT_SCHEMA = k.TABLE_SCHEMA AND r.CONSTRAINT_NAME = k.CONSTRAINT_NAME
+         AND r.TABLE_NAME = k.TABLE_NAME
+        JOIN information_schema.COLUMNS c
+          ON c.TABLE_SCHEMA = k.TABLE_SCHEMA AND c.TABLE_NAME = k.TABLE_NAME AND c.COLUMN_NAME = k.COLUMN_NAME
+        WHERE k.TABLE_SCHEMA = DATABASE()
+          AND k.REFERENCED_TABLE_NAME = 'account'
+          AND k.REFERENCED_COLUMN_NAME = 'id';
+
+    -- 2. kiểm tra dữ liệu: mọi id (và mọi giá trị khóa ngoại khác NULL) phải là UUID đúng dạng,
+    --    nếu không UNHEX trả NULL và làm hỏng dữ liệu giữa chừng
+    SET @bad = 0;
+    SELECT COUNT(*) INTO @bad FROM account
+    WHERE id IS NULL
+       OR id NOT REGEXP '^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$';
+    IF @bad > 0 THEN
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'account.id has values that are not UUIDs, fix them before migrating';
+    END IF;
+
+    OPEN ref_cursor;
+    check_loop: LOOP
+        FETCH ref_cursor INTO t_name, c_name, fk_name, c_nullable, on_delete, on_update;
+        IF done THEN
+            LEAVE check_loop;
+        END IF;
+        SET @sql = CONCAT('SELECT COUNT(*) INTO @bad FROM `', t_name, '` WHERE `', c_name, '` IS NOT NULL AND `', c_name,
+                          '` NOT REGEXP ''^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$''');
+        PREPARE stmt FROM @sql; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+        IF @bad > 0 THEN
+            SET @msg = CONCAT(t_name, '.', c_name, ' has values that are not UUIDs, fix them before migrating');
+            SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = @msg;
+        END IF;
+    END LOOP;
+    CLOSE ref_cursor;
+
+    -- 3. xóa khóa ngoại (MySQL không cho đổi kiểu cột đang có khóa ngoại)
+    SET done = 0;
+    OPEN ref_cursor;
+    drop_loop: LOOP
+        FETCH ref_cursor INTO t_name, c_name, fk_name, c_nullable, on_delete, on_update;
+        IF done THEN
+            LEAVE drop_loop;
+        END IF;
+        SET @sql = CONCAT('ALTER TABLE `', t_name, '` DROP FOREIGN KEY `', fk_name, '`');
+        PREPARE stmt FROM @sql; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+    END LOOP;
+    CLOSE ref_cursor;
+
+    -- 4. đổi kiểu tại chỗ, giữ index / UNIQUE / PRIMARY KEY; đặt lại NOT NULL như cũ
+    ALTER TABLE account MODIFY id VARBINARY(36) NOT NULL;
+    UPDATE account SET id = UNHEX(REPLACE(id, '-', ''));
+    ALTER TABLE account MODIFY id BINARY(16) NOT NULL;
+
+    SET done = 0;
+    OPEN ref_cursor;
+    convert_loop: LOOP
+        FETCH ref_cursor INTO t_name, c_name, fk_name, c_nullable, on_delete, on_update;
+        IF done THEN
+            LEAVE convert_loop;
+        END IF;
+        SET @null_clause = IF(c_nullable = 'NO', ' NOT NULL', ' NULL');
+        SET @sql = CONCAT('ALTER TABLE `', t_name, '` MODIFY `', c_name, '` VARBINARY(36)', @null_clause);
+        PREPARE stmt FROM @sql; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+        SET @sql = CONCAT('UPDATE `', t_name, '` SET `', c_name, '` = UNHEX(REPLACE(`', c_name, '`, ''-'', '''')) ',
+                          'WHERE `', c_name, '` IS NOT NULL');
+        PREPARE stmt FROM @sql; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+        SET @sql = CONCAT('ALTER TABLE `', t_name, '` MODIFY `', c_name, '` BINARY(16)', @null_clause);
+        PREPARE stmt FROM @sql; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+    END LOOP;
+    CLOSE ref_cursor;
+
+    -- 5. tạo lại khóa ngoại đúng tên và luật cũ
+    SET done = 0;
+    OPEN ref_cursor;
+    fk_loop: LOOP
+        FETCH ref_cursor INTO t_name, c_name, fk_name, c_nullable, on_delete, on_update;
+        IF done THEN
+            LEAVE fk_loop;
+        END IF;
+        SET @sql = CONCAT('ALTER TABLE `', t_name, '` ADD CONSTRAINT `', fk_name, '` FOREIGN KEY (`', c_name,
+                          '`) REFERENCES account (id) ON DELETE ', on_delete, ' ON UPDATE ', on_update);
+        PREPARE stmt FROM @sql; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+    END LOOP;
+    CLOSE ref_cursor;
+
+    DROP TEMPORARY TABLE account_id_refs;
+END //
+DELIMITER ;
+
+CALL migrate_account_id_binary();
+DROP PROCEDURE migrate_account_id_binary;
@@ -0,0 +1,121 @@
+package com.swp391.bloodcare.benchmark;
+
+import com.swp391.bloodcare.util.UuidBinaryConverter;
+import com.swp391.bloodcare.util.UuidV7;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.UUID;
+
+/*
+So sánh cách lưu account.id trên MySQL thật (không phải JMH: chi phí nằm ở B-tree của InnoDB):
+- VARCHAR(36) + UUIDv4 (cách cũ), BINARY(16) + UUIDv4 (chỉ đổi độ rộng), BINARY(16) + UUIDv7 (cách mới)
+- mỗi kiểu một bảng account giả + một bảng con có cột khóa ngoại đánh index, insert theo batch như AccountImportService
+- in thời gian insert và DATA_LENGTH / INDEX_LENGTH sau ANALYZE TABLE
+Tạo / xóa bảng bench_account_id_* trong schema được chỉ định, KHÔNG chạy trên DB thật đang dùng.
+Chạy: mvn test-compile rồi
+  java -cp target/test-classes:target/classes:<classpath test> com.swp391.bloodcare.benchmark.AccountIdStorageBenchmark \
+       "jdbc:mysql://localhost:3306/bench?rewriteBatchedStatements=true" root secret 500000
+ */
+public class AccountIdStorageBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final UuidBinaryConverter CONVERTER = new UuidBinaryConverter();
+
+    private enum Variant {
+        VARCHAR_V4("VARCHAR(36)"),
+        BINARY_V4("BINARY(16)"),
+        BINARY_V7("BINARY(16)");
+
+        private final String columnType;
+
+        Variant(String columnType) {
+            this.columnType = columnType;
+        }
+
+        String table() {
+            return "bench_account_id_" + name().toLowerCase(Locale.ROOT);
+        }
+
+        Object nextId() {
+            return switch (this) {
+                case VARCHAR_V4 -> UUID.randomUUID().toString();
+                case BINARY_V4 -> CONVERTER.convertToDatabaseColumn(UUID.randomUUID().toString());
+                case BINARY_V7 -> CONVERTER.convertToDatabaseColumn(UuidV7.nextString());
+            };
+        }
+    }
+
+    public static void main(String[] args) throws SQLException {
+        if (args.length < 3) {
+            System.err.println("usage: AccountIdStorageBenchmark <jdbc-url> <user> <password> [rows]");
+            return;
+        }
+        int rows = args.length > 3 ? Integer.parseInt(args[3]) : 200_000;
+        try (Connection con = DriverManager.getConnection(args[0], args[1], args[2])) {
+            System.out.printf("%-11s %12s %14s %14s %14s%n", "variant", "insert ms", "rows/s", "data bytes", "index bytes");
+            for (Variant variant : Variant.values()) {
+                run(con, variant, rows);
+            }
+        }
+    }
+
+    private static void run(Connection con, Variant variant, int rows) throws SQLException {
+        String parent = variant.table();
+        String child = parent + "_ref";
+        try (Statement st = con.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + child);
+            st.execute("DROP TABLE IF EXISTS " + parent);
+            st.execute("CREATE TABLE " + parent + " (id " + variant.columnType + " NOT NULL PRIMARY KEY, "
+                    + "user_name VARCHAR(50) NOT NULL) ENGINE=InnoDB");
+            st.execute("CREATE TABLE " + child + " (id BIGINT AUTO_INCREMENT PRIMARY KEY, account_id "
+                    + variant.columnType + " NOT NULL, INDEX (account_id)) ENGINE=InnoDB");
+        }
+
+        con.setAutoCommit(false);
+        long start = System.nanoTime();
+        try (PreparedStatement insertParent = con.prepareStatement(
+                "INSERT INTO " + parent + " (id, user_name) VALUES (?, ?)");
+             PreparedStatement insertChild = con.prepareStatement(
+                     "INSERT INTO " + child + " (account_id) VALUES (?)")) {
+            for (int i = 0; i < rows; i++) {
+                Object id = variant.nextId();
+                insertParent.setObject(1, id);
+                insertParent.setString(2, "donor" + i);
+                insertParent.addBatch();
+                insertChild.setObject(1, id);
+                insertChild.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0 || i + 1 == rows) {
+                    insertParent.executeBatch();
+                    insertChild.executeBatch();
+                    con.commit();
+                }
+            }
+        } finally {
+            con.setAutoCommit(true);
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        long dataBytes = 0;
+        long indexBytes = 0;
+        try (Statement st = con.createStatement()) {
+            st.execute("ANALYZE TABLE " + parent + ", " + child);
+            try (ResultSet rs = st.executeQuery("SELECT SUM(DATA_LENGTH), SUM(INDEX_LENGTH) FROM information_schema.TABLES "
+                    + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME IN ('" + parent + "', '" + child + "')")) {
+                if (rs.next()) {
+                    dataBytes = rs.getLong(1);
+                    indexBytes = rs.getLong(2);
+                }
+            }
+            st.execute("DROP TABLE " + child);
+            st.execute("DROP TABLE " + parent);
+        }
+        System.out.printf("%-11s %12d %14d %14d %14d%n", variant, elapsedMs,
+                elapsedMs == 0 ? rows : rows * 1000L / elapsedMs, dataBytes, indexBytes);
+    }
+}
@@ -0,0 +1,73 @@
+package com.swp391.bloodcare.benchmark;
+
+import com.swp391.bloodcare.util.BloodCompatibility;
+import com.swp391.bloodcare.util.BloodCompatibility.ComponentKind;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+Lọc một danh sách mã máu (tồn kho / hồ sơ người hiến) theo nhóm bệnh nhân:
+- maskFilter: donorMask tra sẵn, mỗi phần tử một shift + and
+- bloodMatchFilter: cách cũ, tách cột chữ blood_match ("A+,A-,O+,O-") rồi so từng tên nhóm
+Chạy: mvn test-compile rồi
+  java -cp target/test-classes:<classpath test> org.openjdk.jmh.Main BloodCompatibilityBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BloodCompatibilityBenchmark {
+
+    // số phần tử được lọc mỗi lần
+    @Param({"64", "4096"})
+    public int size;
+
+    private int[] groups;
+    private String[] groupNames;
+    private int recipient;
+    private String bloodMatch;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        groups = new int[size];
+        groupNames = new String[size];
+        for (int i = 0; i < size; i++) {
+            groups[i] = random.nextInt(BloodCompatibility.GROUPS);
+            groupNames[i] = BloodCompatibility.groupName(groups[i]);
+        }
+        recipient = BloodCompatibility.parseGroup("A+");
+        bloodMatch = String.join(",", BloodCompatibility.groupNames(
+                BloodCompatibility.donorMask(ComponentKind.RED_CELLS, recipient)));
+    }
+
+    @Benchmark
+    public int maskFilter() {
+        int mask = BloodCompatibility.donorMask(ComponentKind.RED_CELLS, recipient);
+        int count = 0;
+        for (int group : groups) {
+            if (BloodCompatibility.contains(mask, group)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int bloodMatchFilter() {
+        List<String> accepted = Arrays.asList(bloodMatch.split(","));
+        int count = 0;
+        for (String name : groupNames) {
+            if (accepted.contains(name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
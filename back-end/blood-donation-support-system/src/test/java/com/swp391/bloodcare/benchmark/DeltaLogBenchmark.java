@@ -0,0 +1,59 @@
+package com.swp391.bloodcare.benchmark;
+
+import com.swp391.bloodcare.util.DeltaLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*
+Đường nhập kho của BloodInventoryLedger: append một delta rồi chờ nó xuống đĩa.
+Nhiều thread cùng ghi -> một lần force cho cả nhóm (group commit), thời gian mỗi lần nhập giảm khi tăng thread.
+- sync=true: force như cấu hình mặc định (blood-inventory.wal-sync), sync=false: chỉ write vào page cache
+Xuất kho là một UPDATE có điều kiện trên MySQL, đo bằng InventoryBenchmarkService (profile loadtest).
+Chạy: mvn test-compile rồi
+  java -cp target/test-classes:<classpath test> org.openjdk.jmh.Main DeltaLogBenchmark -t 1,8,32
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeltaLogBenchmark {
+
+    @Param({"true", "false"})
+    public boolean sync;
+
+    private Path directory;
+    private DeltaLog log;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("delta-log-bench");
+        log = new DeltaLog(directory, 8L << 20, 4096, sync);
+        log.start(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        log.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public long appendDurable() {
+        long seq = log.append(ThreadLocalRandom.current().nextInt(32), 1, 350);
+        log.awaitDurable(seq);
+        return seq;
+    }
+}
@@ -0,0 +1,74 @@
+package com.swp391.bloodcare.benchmark;
+
+import com.swp391.bloodcare.util.HashedTimingWheel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+Chi phí kiểm tra token bị thu hồi trên mỗi request (TokenRevocationService.isRevoked) và chi phí logout (revoke):
+set jti + HashedTimingWheel giống service, revokedTokens jti đang bị thu hồi.
+Chạy: mvn test-compile rồi
+  java -cp target/test-classes:<classpath test> org.openjdk.jmh.Main TokenRevocationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenRevocationBenchmark {
+
+    @Param({"1000", "100000"})
+    public int revokedTokens;
+
+    private final Set<String> revoked = ConcurrentHashMap.newKeySet();
+    private HashedTimingWheel<String> wheel;
+    private String[] revokedIds;
+    private String[] liveIds;
+
+    @Setup
+    public void setUp() {
+        wheel = new HashedTimingWheel<>("benchmark-wheel", 1000, 512, revoked::remove);
+        long expiresAt = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        revokedIds = new String[revokedTokens];
+        for (int i = 0; i < revokedTokens; i++) {
+            revokedIds[i] = UUID.randomUUID().toString();
+            revoked.add(revokedIds[i]);
+            wheel.schedule(revokedIds[i], expiresAt);
+        }
+        liveIds = new String[1024];
+        for (int i = 0; i < liveIds.length; i++) {
+            liveIds[i] = UUID.randomUUID().toString();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        wheel.close();
+    }
+
+    //đường thường gặp: token chưa bị thu hồi
+    @Benchmark
+    public boolean checkLiveToken() {
+        return revoked.contains(liveIds[ThreadLocalRandom.current().nextInt(liveIds.length)]);
+    }
+
+    @Benchmark
+    public boolean checkRevokedToken() {
+        return revoked.contains(revokedIds[ThreadLocalRandom.current().nextInt(revokedIds.length)]);
+    }
+
+    //logout: thêm vào set + đặt lịch xóa khi token hết hạn
+    @Benchmark
+    @Threads(4)
+    public boolean revoke() {
+        String jti = UUID.randomUUID().toString();
+        wheel.schedule(jti, System.currentTimeMillis() + 1000);
+        return revoked.add(jti);
+    }
+}
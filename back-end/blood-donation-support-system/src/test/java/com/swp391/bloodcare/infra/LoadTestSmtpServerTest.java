@@ -0,0 +1,138 @@
+package com.swp391.bloodcare.infra;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadTestSmtpServerTest {
+
+    private LoadTestSmtpServer server;
+    private final List<String> received = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new LoadTestSmtpServer(0, 0, 0, 42);
+        server.start();
+        server.reset(42, 0, received::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void acceptsMessagesOnOneSession() throws IOException {
+        try (Client client = new Client(server.getPort())) {
+            assertTrue(client.read().startsWith("220"));
+            assertTrue(client.send("EHLO test").startsWith("250"));
+            for (int i = 0; i < 3; i++) {
+                assertTrue(client.send("MAIL FROM:<noreply@loadtest.invalid>").startsWith("250"));
+                assertTrue(client.send("RCPT TO:<donor-" + i + "@loadtest.invalid>").startsWith("250"));
+                assertTrue(client.send("DATA").startsWith("354"));
+                client.write("Subject: test");
+                client.write("");
+                client.write("body");
+                assertTrue(client.send(".").startsWith("250"));
+            }
+            assertTrue(client.send("NOOP").startsWith("250"));
+            assertTrue(client.send("QUIT").startsWith("221"));
+        }
+        assertEquals(1, server.getSessions());
+        assertEquals(3, server.getDelivered());
+        assertEquals(List.of("donor-0@loadtest.invalid", "donor-1@loadtest.invalid", "donor-2@loadtest.invalid"), received);
+    }
+
+    @Test
+    void bouncesArePermanentAndInjectedFailuresTransient() throws IOException {
+        server.reset(42, 0.999999, received::add);
+        try (Client client = new Client(server.getPort())) {
+            client.read();
+            client.send("EHLO test");
+            client.send("MAIL FROM:<noreply@loadtest.invalid>");
+            assertTrue(client.send("RCPT TO:<bounce-1@loadtest.invalid>").startsWith("550"));
+            assertTrue(client.send("RCPT TO:<donor-1@loadtest.invalid>").startsWith("451"));
+            assertTrue(client.send("DATA").startsWith("503"));
+            assertTrue(client.send("RSET").startsWith("250"));
+        }
+        assertEquals(1, server.getInjectedPermanent());
+        assertEquals(1, server.getInjectedTransient());
+        assertEquals(0, server.getDelivered());
+    }
+
+    @Test
+    void outageRejectsNewSessionsAndDropsOpenOnes() throws IOException {
+        try (Client open = new Client(server.getPort())) {
+            open.read();
+            open.send("EHLO test");
+            server.setOutage(true);
+            assertNull(open.read());
+        }
+        try (Client rejected = new Client(server.getPort())) {
+            assertTrue(rejected.read().startsWith("421"));
+        }
+        assertEquals(1, server.getOutageRejected());
+
+        server.setOutage(false);
+        try (Client client = new Client(server.getPort())) {
+            assertTrue(client.read().startsWith("220"));
+        }
+    }
+
+    private static final class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final OutputStream out;
+
+        Client(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setSoTimeout(5000);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            out = socket.getOutputStream();
+        }
+
+        void write(String line) throws IOException {
+            out.write((line + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+        }
+
+        //dòng cuối của phản hồi nhiều dòng ("250-...", "250 ..."); null nếu server đã đóng kết nối
+        String read() throws IOException {
+            String line;
+            while ((line = readLine()) != null && line.length() > 3 && line.charAt(3) == '-') {
+                //đọc tiếp
+            }
+            return line;
+        }
+
+        String send(String line) throws IOException {
+            write(line);
+            return read();
+        }
+
+        private String readLine() throws IOException {
+            try {
+                return in.readLine();
+            } catch (java.net.SocketException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.swp391.bloodcare.infra;
+
+import jakarta.mail.SendFailedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//SmtpTransportPool nói SMTP thật với LoadTestSmtpServer trên 127.0.0.1
+class SmtpTransportPoolTest {
+
+    private LoadTestSmtpServer server;
+    private JavaMailSenderImpl sender;
+    private SmtpTransportPool pool;
+    private final List<String> received = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new LoadTestSmtpServer(0, 0, 0, 42);
+        server.start();
+        server.reset(42, 0, received::add);
+
+        sender = new JavaMailSenderImpl();
+        sender.setHost("127.0.0.1");
+        sender.setPort(server.getPort());
+        sender.setDefaultEncoding("UTF-8");
+        sender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "5000");
+        sender.getJavaMailProperties().put("mail.smtp.timeout", "5000");
+        pool = new SmtpTransportPool(sender, 2, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+        server.close();
+    }
+
+    @Test
+    void reusesConnectionAcrossBatches() {
+        pool.send(message("donor-1@loadtest.invalid"), message("donor-2@loadtest.invalid"));
+        pool.send(message("donor-3@loadtest.invalid"));
+
+        assertEquals(List.of("donor-1@loadtest.invalid", "donor-2@loadtest.invalid", "donor-3@loadtest.invalid"), received);
+        assertEquals(1, server.getSessions());
+        assertEquals(1, pool.getOpenedCount());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    void reportsRejectedRecipientAndKeepsConnection() {
+        SimpleMailMessage bounce = message("bounce-1@loadtest.invalid");
+        MailSendException e = assertThrows(MailSendException.class, () -> pool.send(
+                message("donor-1@loadtest.invalid"), bounce, message("donor-2@loadtest.invalid")));
+
+        assertEquals(1, e.getFailedMessages().size());
+        Exception failure = e.getFailedMessages().get(bounce);
+        SendFailedException sendFailed = assertInstanceOf(SendFailedException.class, failure);
+        assertEquals(1, sendFailed.getInvalidAddresses().length);
+        assertEquals(List.of("donor-1@loadtest.invalid", "donor-2@loadtest.invalid"), received);
+        assertEquals(1, server.getSessions());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    void replacesConnectionDroppedByServer() {
+        pool.send(message("donor-1@loadtest.invalid"));
+        //server cắt mọi phiên đang mở rồi chạy lại
+        server.setOutage(true);
+        server.setOutage(false);
+        pool.send(message("donor-2@loadtest.invalid"));
+
+        assertEquals(2, received.size());
+        assertEquals(2, server.getSessions());
+        assertEquals(2, pool.getOpenedCount());
+    }
+
+    @Test
+    void connectionFailureFailsEveryMessage() {
+        server.setOutage(true);
+        MailSendException e = assertThrows(MailSendException.class, () -> pool.send(
+                message("donor-1@loadtest.invalid"), message("donor-2@loadtest.invalid")));
+
+        assertEquals(2, e.getFailedMessages().size());
+        //server đã trả 421 cho phiên, không phải lỗi trước khi kết nối
+        assertEquals(1, server.getOutageRejected());
+        assertEquals(0, pool.getOpenedCount());
+        assertTrue(received.isEmpty());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    void evictsIdleConnections() throws InterruptedException {
+        try (SmtpTransportPool shortLived = new SmtpTransportPool(sender, 2, 10)) {
+            shortLived.send(message("donor-1@loadtest.invalid"));
+            assertEquals(1, shortLived.getIdleCount());
+            Thread.sleep(50);
+            assertEquals(1, shortLived.evictIdle());
+            assertEquals(0, shortLived.getIdleCount());
+        }
+    }
+
+    private static SimpleMailMessage message(String to) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@loadtest.invalid");
+        message.setTo(to);
+        message.setSubject("Kêu gọi hiến máu");
+        message.setText("Xin chào, đây là thư thử.");
+        return message;
+    }
+}
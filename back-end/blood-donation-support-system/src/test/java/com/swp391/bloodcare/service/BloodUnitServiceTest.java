@@ -0,0 +1,265 @@
+package com.swp391.bloodcare.service;
+
+import com.swp391.bloodcare.dto.log.BloodUnitDTO;
+import com.swp391.bloodcare.dto.log.BloodUnitIntakeRequest;
+import com.swp391.bloodcare.entity.Blood;
+import com.swp391.bloodcare.entity.BloodUnit;
+import com.swp391.bloodcare.repository.BloodUnitRepository;
+import com.swp391.bloodcare.util.BloodCompatibility.ComponentKind;
+import com.swp391.bloodcare.util.UuidBinaryConverter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+//BloodUnitService với heap thật, repository / jdbc giả: trạng thái túi trong "DB" là một set các unit đã xuất
+class BloodUnitServiceTest {
+
+    private static final UuidBinaryConverter ID_CONVERTER = new UuidBinaryConverter();
+
+    private BloodUnitService service;
+    private BloodUnitRepository repository;
+    private BloodCompatibilityService compatibility;
+    private JdbcTemplate jdbcTemplate;
+    private final Set<String> used = ConcurrentHashMap.newKeySet();
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(BloodUnitRepository.class);
+        compatibility = mock(BloodCompatibilityService.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        ReferenceDataService referenceData = mock(ReferenceDataService.class);
+        BloodInventoryLedger ledger = mock(BloodInventoryLedger.class);
+
+        when(referenceData.findBlood(anyInt())).thenAnswer(call -> Optional.of(blood(call.getArgument(0))));
+        when(compatibility.groupOf(any())).thenReturn(-1);
+        when(ledger.apply(anyInt(), anyLong(), anyLong())).thenReturn(true);
+        //UPDATE có điều kiện status = AVAILABLE
+        when(repository.changeStatusIfAvailable(anyString(), eq(Blood.BloodStatus.USED), any()))
+                .thenAnswer(call -> used.add(call.getArgument(0)) ? 1 : 0);
+
+        service = new BloodUnitService();
+        ReflectionTestUtils.setField(service, "bloodUnitRepository", repository);
+        ReflectionTestUtils.setField(service, "referenceDataService", referenceData);
+        ReflectionTestUtils.setField(service, "bloodCompatibilityService", compatibility);
+        ReflectionTestUtils.setField(service, "bloodInventoryLedger", ledger);
+        ReflectionTestUtils.setField(service, "bloodUnitExpiryService", mock(BloodUnitExpiryService.class));
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @Test
+    void issuesSoonestExpiryAcrossCompatibleCodes() {
+        compatibleCodes(1, 2);
+        BloodUnitDTO late = receive("B-1", 1, 10);
+        BloodUnitDTO soon = receive("B-2", 2, 3);
+        BloodUnitDTO tie = receive("B-3", 1, 3);
+        receive("B-4", 3, 1);
+
+        //hạn bằng nhau -> mã đứng trước trong danh sách tương thích
+        assertEquals(tie.getBarcode(), issue().getBarcode());
+        assertEquals(soon.getBarcode(), issue().getBarcode());
+        assertEquals(late.getBarcode(), issue().getBarcode());
+        //mã 3 không tương thích
+        assertTrue(service.issue(0, ComponentKind.RED_CELLS).isEmpty());
+        assertEquals(1, service.countAvailable(3));
+    }
+
+    @Test
+    void skipsUnitAlreadyIssuedElsewhere() {
+        compatibleCodes(1);
+        BloodUnitDTO first = receive("B-1", 1, 2);
+        BloodUnitDTO second = receive("B-2", 1, 5);
+        //node khác đã xuất túi này, heap ở node này chưa biết
+        used.add(first.getUnitId());
+
+        assertEquals(second.getBarcode(), issue().getBarcode());
+        assertEquals(0, service.countAvailable(1));
+    }
+
+    @Test
+    void barcodeIssueRacingSoonestIssueGetsDifferentUnits() throws Exception {
+        compatibleCodes(1);
+        BloodUnitDTO soonest = receive("B-1", 1, 2);
+        BloodUnitDTO next = receive("B-2", 1, 5);
+
+        //xuất theo barcode dừng giữa chừng: túi đã ra khỏi heap, DB chưa đổi
+        CountDownLatch updating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.changeStatusIfAvailable(eq(soonest.getUnitId()), eq(Blood.BloodStatus.USED), any()))
+                .thenAnswer(call -> {
+                    updating.countDown();
+                    assertTrue(release.await(5, TimeUnit.SECONDS));
+                    return used.add(call.getArgument(0)) ? 1 : 0;
+                });
+        CompletableFuture<Optional<BloodUnitDTO>> byBarcode =
+                CompletableFuture.supplyAsync(() -> service.issueByBarcode(soonest.getBarcode()));
+        assertTrue(updating.await(5, TimeUnit.SECONDS));
+
+        assertEquals(next.getBarcode(), issue().getBarcode());
+        //lần xuất theo barcode thứ hai thấy dòng DB vẫn AVAILABLE nhưng túi không còn trong kho bộ nhớ
+        when(repository.findByBarcode(soonest.getBarcode())).thenReturn(Optional.of(new BloodUnit(
+                soonest.getUnitId(), soonest.getBarcode(), blood(1), null, soonest.getVolume(),
+                soonest.getCollectedAt(), soonest.getExpiresAt(), Blood.BloodStatus.AVAILABLE)));
+        assertThrows(IllegalStateException.class, () -> service.issueByBarcode(soonest.getBarcode()));
+        release.countDown();
+        assertEquals(soonest.getBarcode(), byBarcode.get(5, TimeUnit.SECONDS).orElseThrow().getBarcode());
+        assertTrue(service.issue(0, ComponentKind.RED_CELLS).isEmpty());
+    }
+
+    @Test
+    void concurrentIssuesNeverShareAUnit() throws Exception {
+        compatibleCodes(1, 2);
+        List<BloodUnitDTO> units = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            units.add(receive("B-" + i, 1 + i % 2, 1 + i % 17));
+        }
+
+        Set<String> issued = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int worker = t;
+            workers.add(CompletableFuture.runAsync(() -> {
+                for (int i = worker; i < units.size(); i += 8) {
+                    Optional<BloodUnitDTO> unit;
+                    if (i % 2 == 0) {
+                        unit = service.issue(0, ComponentKind.RED_CELLS);
+                    } else {
+                        try {
+                            unit = service.issueByBarcode(units.get(i).getBarcode());
+                        } catch (IllegalStateException e) {
+                            //túi đã bị lấy theo hạn dùng
+                            continue;
+                        }
+                    }
+                    unit.ifPresent(dto -> assertTrue(issued.add(dto.getUnitId()), "issued twice: " + dto.getBarcode()));
+                }
+            }));
+        }
+        CompletableFuture.allOf(workers.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+
+        assertEquals(used, issued);
+        assertEquals(units.size(), issued.size() + service.countAvailable(1) + service.countAvailable(2));
+    }
+
+    @Test
+    void restoresUnitWhenMarkUsedFails() {
+        compatibleCodes(1);
+        BloodUnitDTO unit = receive("B-1", 1, 2);
+        when(repository.changeStatusIfAvailable(eq(unit.getUnitId()), eq(Blood.BloodStatus.USED), any()))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenAnswer(call -> used.add(call.getArgument(0)) ? 1 : 0);
+
+        assertThrows(QueryTimeoutException.class, () -> service.issue(0, ComponentKind.RED_CELLS));
+        assertEquals(1, service.countAvailable(1));
+        assertTrue(service.findByBarcode(unit.getBarcode()).isPresent());
+
+        //xuất theo barcode: túi chỉ bị đánh dấu trong heap, lỗi thì bỏ đánh dấu
+        assertThrows(QueryTimeoutException.class, () -> service.issueByBarcode(unit.getBarcode()));
+        assertEquals(1, service.countAvailable(1));
+
+        assertEquals(unit.getBarcode(), issue().getBarcode());
+        assertEquals(0, service.countAvailable(1));
+    }
+
+    @Test
+    void rebuildKeepsUnitsReceivedAndDropsUnitsIssuedWhileReading() throws SQLException {
+        compatibleCodes(1);
+        BloodUnitDTO issuedDuringRead = receive("B-1", 1, 2);
+        BloodUnitDTO kept = receive("B-2", 1, 5);
+        List<ResultSet> snapshot = List.of(row(issuedDuringRead), row(kept));
+
+        List<BloodUnitDTO> receivedDuringRead = new ArrayList<>();
+        doAnswer(call -> {
+            //snapshot đã đọc xong B-1, B-2 (còn AVAILABLE) trước khi các thao tác dưới commit
+            assertEquals(issuedDuringRead.getBarcode(), issue().getBarcode());
+            receivedDuringRead.add(receive("B-3", 1, 7));
+            RowCallbackHandler handler = call.getArgument(1);
+            for (ResultSet rs : snapshot) {
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        service.scheduledRebuild();
+
+        assertEquals(2, service.countAvailable(1));
+        assertEquals(kept.getBarcode(), issue().getBarcode());
+        assertEquals(receivedDuringRead.get(0).getBarcode(), issue().getBarcode());
+        assertTrue(service.issue(0, ComponentKind.RED_CELLS).isEmpty());
+    }
+
+    @Test
+    void failedRebuildKeepsCurrentHeaps() {
+        compatibleCodes(1);
+        receive("B-1", 1, 2);
+        doThrow(new QueryTimeoutException("timeout"))
+                .when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        service.scheduledRebuild();
+
+        assertEquals(1, service.countAvailable(1));
+        assertEquals("B-1", issue().getBarcode());
+    }
+
+    private void compatibleCodes(int... codes) {
+        List<Blood> bloods = new ArrayList<>();
+        for (int code : codes) {
+            bloods.add(blood(code));
+        }
+        when(compatibility.compatibleBloods(anyInt(), any())).thenReturn(bloods);
+    }
+
+    private BloodUnitDTO receive(String barcode, int bloodCode, int daysLeft) {
+        BloodUnitIntakeRequest request = new BloodUnitIntakeRequest();
+        request.setBarcode(barcode);
+        request.setBloodCode(bloodCode);
+        request.setVolume(350);
+        request.setCollectedAt(now.minusDays(1));
+        request.setExpiresAt(now.plusDays(daysLeft));
+        return service.receive(request);
+    }
+
+    private BloodUnitDTO issue() {
+        return service.issue(0, ComponentKind.RED_CELLS).orElseThrow();
+    }
+
+    //một dòng SELECT unit_id, barcode, blood_code, volume, collected_at, expires_at
+    private static ResultSet row(BloodUnitDTO unit) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getBytes(1)).thenReturn(ID_CONVERTER.convertToDatabaseColumn(unit.getUnitId()));
+        when(rs.getString(2)).thenReturn(unit.getBarcode());
+        when(rs.getInt(3)).thenReturn(unit.getBloodCode());
+        when(rs.getInt(4)).thenReturn(unit.getVolume());
+        when(rs.getTimestamp(5)).thenReturn(Timestamp.valueOf(unit.getCollectedAt()));
+        when(rs.getTimestamp(6)).thenReturn(Timestamp.valueOf(unit.getExpiresAt()));
+        return rs;
+    }
+
+    private static Blood blood(int code) {
+        Blood blood = new Blood();
+        blood.setBloodCode(code);
+        return blood;
+    }
+}
@@ -0,0 +1,117 @@
+package com.swp391.bloodcare.util;
+
+import com.swp391.bloodcare.util.BloodCompatibility.ComponentKind;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloodCompatibilityTest {
+
+    // thứ tự cột = index nhóm máu
+    private static final List<String> GROUPS = List.of("A+", "A-", "B+", "B-", "AB+", "AB-", "O+", "O-");
+
+    /*
+    Bảng tham chiếu viết tay, không sinh từ quy tắc trong BloodCompatibility:
+    mỗi dòng là một nhóm người nhận, ký tự thứ i = 'x' nếu nhóm GROUPS[i] cho được.
+    Cột:             A+ A- B+ B- AB+ AB- O+ O-
+     */
+    private static final Map<ComponentKind, String[]> CHART = Map.of(
+            ComponentKind.WHOLE_BLOOD, new String[]{
+                    "xx......", // A+
+                    ".x......", // A-
+                    "..xx....", // B+
+                    "...x....", // B-
+                    "....xx..", // AB+
+                    ".....x..", // AB-
+                    "......xx", // O+
+                    ".......x", // O-
+            },
+            ComponentKind.RED_CELLS, new String[]{
+                    "xx....xx", // A+
+                    ".x.....x", // A-
+                    "..xx..xx", // B+
+                    "...x...x", // B-
+                    "xxxxxxxx", // AB+
+                    ".x.x.x.x", // AB-
+                    "......xx", // O+
+                    ".......x", // O-
+            },
+            ComponentKind.PLASMA, new String[]{
+                    "xx..xx..", // A+
+                    "xx..xx..", // A-
+                    "..xxxx..", // B+
+                    "..xxxx..", // B-
+                    "....xx..", // AB+
+                    "....xx..", // AB-
+                    "xxxxxxxx", // O+
+                    "xxxxxxxx", // O-
+            },
+            ComponentKind.PLATELETS, new String[]{
+                    "xx..xx..", // A+
+                    ".x...x..", // A-
+                    "..xxxx..", // B+
+                    "...x.x..", // B-
+                    "....xx..", // AB+
+                    ".....x..", // AB-
+                    "xxxxxxxx", // O+
+                    ".x.x.x.x", // O-
+            });
+
+    @Test
+    void everyPairMatchesChart() {
+        for (ComponentKind kind : ComponentKind.values()) {
+            String[] rows = CHART.get(kind);
+            for (int recipient = 0; recipient < GROUPS.size(); recipient++) {
+                for (int donor = 0; donor < GROUPS.size(); donor++) {
+                    boolean expected = rows[recipient].charAt(donor) == 'x';
+                    String pair = kind + " " + GROUPS.get(donor) + " -> " + GROUPS.get(recipient);
+                    assertEquals(expected, BloodCompatibility.canDonate(kind, donor, recipient), pair);
+                    assertEquals(expected, BloodCompatibility.contains(BloodCompatibility.donorMask(kind, recipient), donor), pair);
+                    assertEquals(expected, BloodCompatibility.contains(BloodCompatibility.recipientMask(kind, donor), recipient), pair);
+                }
+            }
+        }
+    }
+
+    @Test
+    void groupIndexFollowsBloodTypeOrder() {
+        // Blood.BloodType: A, B, AB, O
+        assertEquals(GROUPS.indexOf("A+"), BloodCompatibility.groupIndex(0, false));
+        assertEquals(GROUPS.indexOf("B-"), BloodCompatibility.groupIndex(1, true));
+        assertEquals(GROUPS.indexOf("AB+"), BloodCompatibility.groupIndex(2, false));
+        assertEquals(GROUPS.indexOf("O-"), BloodCompatibility.groupIndex(3, true));
+    }
+
+    @Test
+    void parsesAndNamesGroups() {
+        for (int group = 0; group < GROUPS.size(); group++) {
+            assertEquals(GROUPS.get(group), BloodCompatibility.groupName(group));
+            assertEquals(group, BloodCompatibility.parseGroup(GROUPS.get(group)));
+        }
+        assertEquals(GROUPS.indexOf("AB-"), BloodCompatibility.parseGroup(" ab - "));
+        assertThrows(IllegalArgumentException.class, () -> BloodCompatibility.parseGroup("AB"));
+        assertThrows(IllegalArgumentException.class, () -> BloodCompatibility.parseGroup("C+"));
+        assertThrows(IllegalArgumentException.class, () -> BloodCompatibility.parseGroup(null));
+    }
+
+    @Test
+    void groupNamesListsMaskInIndexOrder() {
+        assertEquals(List.of("A-", "B-", "AB-", "O-"),
+                BloodCompatibility.groupNames(BloodCompatibility.donorMask(ComponentKind.RED_CELLS, GROUPS.indexOf("AB-"))));
+        assertEquals(GROUPS, BloodCompatibility.groupNames(BloodCompatibility.ALL));
+        assertEquals(List.of(), BloodCompatibility.groupNames(0));
+    }
+
+    @Test
+    void guessesKindFromComponentName() {
+        assertEquals(ComponentKind.PLATELETS, ComponentKind.fromKeyword("Khối tiểu cầu"));
+        assertEquals(ComponentKind.PLASMA, ComponentKind.fromKeyword("FFP"));
+        assertEquals(ComponentKind.RED_CELLS, ComponentKind.fromKeyword("Hồng cầu lắng"));
+        assertEquals(ComponentKind.WHOLE_BLOOD, ComponentKind.fromKeyword("Máu toàn phần"));
+        assertNull(ComponentKind.fromKeyword("khác"));
+        assertNull(ComponentKind.fromKeyword(" "));
+    }
+}
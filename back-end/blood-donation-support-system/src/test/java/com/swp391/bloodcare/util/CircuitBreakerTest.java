@@ -0,0 +1,77 @@
+package com.swp391.bloodcare.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final List<String> transitions = new ArrayList<>();
+
+    private CircuitBreaker breaker(long openMillis) {
+        return new CircuitBreaker(10, 4, 0.5, openMillis, 1, (from, to) -> transitions.add(from + "->" + to));
+    }
+
+    @Test
+    void staysClosedUntilMinimumCalls() {
+        CircuitBreaker cb = breaker(60_000);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(cb.tryAcquirePermission());
+            cb.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, cb.getState());
+        cb.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, cb.getState());
+        assertFalse(cb.tryAcquirePermission());
+    }
+
+    @Test
+    void halfOpenSuccessCloses() throws InterruptedException {
+        CircuitBreaker cb = open(breaker(20));
+        Thread.sleep(40);
+        assertTrue(cb.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, cb.getState());
+        // chỉ một lượt thử trong HALF_OPEN
+        assertFalse(cb.tryAcquirePermission());
+        cb.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, cb.getState());
+        assertEquals(0.0, cb.getFailureRate());
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+    }
+
+    @Test
+    void halfOpenFailureReopens() throws InterruptedException {
+        CircuitBreaker cb = open(breaker(20));
+        Thread.sleep(40);
+        assertTrue(cb.tryAcquirePermission());
+        cb.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, cb.getState());
+        assertFalse(cb.tryAcquirePermission());
+        // hết thời gian mở lần nữa thì lại được thử
+        Thread.sleep(40);
+        assertTrue(cb.tryAcquirePermission());
+    }
+
+    @Test
+    void successesKeepFailureRateBelowThreshold() {
+        CircuitBreaker cb = breaker(60_000);
+        for (int i = 0; i < 20; i++) {
+            cb.onSuccess();
+            if (i % 3 == 0) {
+                cb.onFailure();
+            }
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, cb.getState());
+    }
+
+    private static CircuitBreaker open(CircuitBreaker cb) {
+        for (int i = 0; i < 4; i++) {
+            cb.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, cb.getState());
+        return cb;
+    }
+}
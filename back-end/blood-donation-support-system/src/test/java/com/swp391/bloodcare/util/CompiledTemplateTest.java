@@ -0,0 +1,65 @@
+package com.swp391.bloodcare.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledTemplateTest {
+
+    @Test
+    void rendersVariablesBySlot() {
+        CompiledTemplate template = CompiledTemplate.compile("Cần gấp nhóm máu {blood} tại {district}, {name} ơi!");
+        assertEquals(List.of("blood", "district", "name"), template.getVariables());
+        assertEquals("Cần gấp nhóm máu O- tại Quận 1, An ơi!",
+                template.render(new String[]{"O-", "Quận 1", "An"}));
+    }
+
+    @Test
+    void repeatedVariableSharesOneSlot() {
+        CompiledTemplate template = CompiledTemplate.compile("{name} - {email} - {name}");
+        assertEquals(List.of("name", "email"), template.getVariables());
+        assertEquals("An - an@x.vn - An", template.render(new String[]{"An", "an@x.vn"}));
+    }
+
+    @Test
+    void doubledBracesAreLiteral() {
+        CompiledTemplate template = CompiledTemplate.compile("{{name}} = {name}, }} {{");
+        assertEquals(List.of("name"), template.getVariables());
+        assertEquals("{name} = An, } {", template.render(new String[]{"An"}));
+    }
+
+    @Test
+    void missingValueRendersEmpty() {
+        CompiledTemplate template = CompiledTemplate.compile("Xin chào {name}, hết nghỉ từ {restDate}.");
+        assertEquals("Xin chào , hết nghỉ từ 2025-07-01.", template.render(new String[]{null, "2025-07-01"}));
+    }
+
+    @Test
+    void invalidPlaceholdersStayLiteral() {
+        CompiledTemplate template = CompiledTemplate.compile("{} {ho ten} {a-b} {name");
+        assertTrue(template.getVariables().isEmpty());
+        assertEquals("{} {ho ten} {a-b} {name", template.render(new String[0]));
+    }
+
+    @Test
+    void trimsNamesAndAcceptsDots() {
+        CompiledTemplate template = CompiledTemplate.compile("{ user.name }|{user_id}");
+        assertEquals(List.of("user.name", "user_id"), template.getVariables());
+        assertEquals("An|42", template.render(new String[]{"An", "42"}));
+    }
+
+    @Test
+    void emptyAndNullSources() {
+        assertEquals("", CompiledTemplate.compile(null).render(new String[0]));
+        assertEquals("", CompiledTemplate.compile("").render(new String[0]));
+        assertEquals("chỉ có chữ", CompiledTemplate.compile("chỉ có chữ").render(new String[0]));
+    }
+
+    @Test
+    void valuesAreNotReparsed() {
+        CompiledTemplate template = CompiledTemplate.compile("{a}{b}");
+        assertEquals("{b}{{x}}", template.render(new String[]{"{b}", "{{x}}"}));
+    }
+}
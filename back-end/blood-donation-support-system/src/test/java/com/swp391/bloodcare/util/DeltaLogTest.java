@@ -0,0 +1,136 @@
+package com.swp391.bloodcare.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeltaLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysEntriesAfterRestart() throws IOException {
+        try (DeltaLog log = new DeltaLog(dir, 1 << 20, 16, true)) {
+            log.start(0);
+            log.append(3, 5, 2250);
+            log.append(7, -1, -450);
+            log.awaitDurable(log.append(3, 2, 900));
+        }
+
+        List<DeltaLog.Entry> all = new ArrayList<>();
+        DeltaLog reopened = new DeltaLog(dir, 1 << 20, 16, true);
+        assertEquals(3, reopened.replay(0, all::add));
+        assertEquals(List.of(
+                new DeltaLog.Entry(1, 3, 5, 2250),
+                new DeltaLog.Entry(2, 7, -1, -450),
+                new DeltaLog.Entry(3, 3, 2, 900)), all);
+
+        //chỉ phần sau checkpoint, nhưng seq trả về vẫn là seq lớn nhất
+        List<DeltaLog.Entry> tail = new ArrayList<>();
+        assertEquals(3, reopened.replay(2, tail::add));
+        assertEquals(List.of(new DeltaLog.Entry(3, 3, 2, 900)), tail);
+
+        //tiếp tục đánh số sau lần chạy trước
+        reopened.start(3);
+        try (reopened) {
+            assertEquals(4, reopened.append(7, 1, 450));
+        }
+    }
+
+    @Test
+    void stopsAtTornTail() throws IOException {
+        try (DeltaLog log = new DeltaLog(dir, 1 << 20, 16, true)) {
+            log.start(0);
+            log.append(1, 1, 350);
+            log.awaitDurable(log.append(2, 1, 250));
+        }
+        //crash giữa lúc ghi bản ghi thứ ba: mới được 10 byte
+        Path segment = segments().get(0);
+        Files.write(segment, new byte[10], StandardOpenOption.APPEND);
+
+        List<DeltaLog.Entry> entries = new ArrayList<>();
+        assertEquals(2, new DeltaLog(dir, 1 << 20, 16, true).replay(0, entries::add));
+        assertEquals(2, entries.size());
+    }
+
+    @Test
+    void stopsAtCorruptRecord() throws IOException {
+        try (DeltaLog log = new DeltaLog(dir, 1 << 20, 16, true)) {
+            log.start(0);
+            log.append(1, 1, 350);
+            log.append(2, 1, 250);
+            log.awaitDurable(log.append(3, 1, 450));
+        }
+        //đổi một byte delta của bản ghi thứ hai -> sai crc
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            file.seek(32 + 20);
+            file.write(0x7f);
+        }
+
+        List<DeltaLog.Entry> entries = new ArrayList<>();
+        assertEquals(1, new DeltaLog(dir, 1 << 20, 16, true).replay(0, entries::add));
+        assertEquals(List.of(new DeltaLog.Entry(1, 1, 1, 350)), entries);
+    }
+
+    @Test
+    void truncateDeletesOnlyClosedSegmentsCoveredBySeq() throws IOException {
+        //2 bản ghi mỗi segment, mỗi lần ghi một bản ghi -> segment bắt đầu ở seq 1, 3, 5
+        try (DeltaLog log = new DeltaLog(dir, 64, 1, false)) {
+            log.start(0);
+            for (int i = 0; i < 5; i++) {
+                log.awaitDurable(log.append(1, 1, 0));
+            }
+            assertEquals(List.of("delta-00000000000000000001.log", "delta-00000000000000000003.log",
+                    "delta-00000000000000000005.log"), names());
+
+            //segment đầu còn seq 2 chưa vào DB
+            log.truncate(1);
+            assertEquals(3, names().size());
+
+            log.truncate(3);
+            assertEquals(List.of("delta-00000000000000000003.log", "delta-00000000000000000005.log"), names());
+
+            //segment cuối đang ghi thì giữ dù mọi seq đã vào DB
+            log.truncate(5);
+            assertEquals(List.of("delta-00000000000000000005.log"), names());
+
+            List<Long> seqs = new ArrayList<>();
+            assertEquals(5, log.replay(0, entry -> seqs.add(entry.seq())));
+            assertEquals(List.of(5L), seqs);
+        }
+    }
+
+    @Test
+    void rejectsAppendAfterClose() throws IOException {
+        DeltaLog log = new DeltaLog(dir, 1 << 20, 16, true);
+        log.start(0);
+        long seq = log.append(1, 1, 350);
+        log.close();
+
+        //đóng thì xả nốt buffer
+        log.awaitDurable(seq);
+        assertThrows(IllegalStateException.class, () -> log.append(1, 1, 350));
+        assertThrows(IllegalStateException.class, () -> log.awaitDurable(seq + 1));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("delta-")).sorted().toList();
+        }
+    }
+
+    private List<String> names() throws IOException {
+        return segments().stream().map(path -> path.getFileName().toString()).toList();
+    }
+}
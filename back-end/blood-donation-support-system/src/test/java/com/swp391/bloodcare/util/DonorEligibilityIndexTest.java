@@ -0,0 +1,84 @@
+package com.swp391.bloodcare.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DonorEligibilityIndexTest {
+
+    private static final String[] DISTRICTS = {"Quận 1", "Quận 3", "Thủ Đức"};
+
+    @Test
+    void bulkLoadMatchesIncrementalInserts() {
+        Random random = new Random(7);
+        DonorEligibilityIndex incremental = new DonorEligibilityIndex(16);
+        DonorEligibilityIndex loaded = new DonorEligibilityIndex(16);
+        loaded.startLoad();
+        for (int i = 0; i < 2000; i++) {
+            String id = new UUID(random.nextLong(), random.nextLong()).toString();
+            String district = DISTRICTS[random.nextInt(DISTRICTS.length)];
+            int group = random.nextInt(DonorEligibilityIndex.GROUP_SLOTS);
+            int day = random.nextInt(10) == 0 ? DonorEligibilityIndex.ALWAYS_ELIGIBLE : 20000 + random.nextInt(100);
+            incremental.put(id, district, group, day);
+            loaded.put(id, district, group, day);
+        }
+        loaded.finishLoad();
+
+        assertEquals(incremental.size(), loaded.size());
+        for (int day = 19990; day <= 20110; day += 7) {
+            assertEquals(incremental.count(null, DonorEligibilityIndex.ALL_GROUPS, day),
+                    loaded.count(null, DonorEligibilityIndex.ALL_GROUPS, day));
+            assertEquals(incremental.find("quận 1", 0b11, day, 50), loaded.find("quận 1", 0b11, day, 50));
+        }
+    }
+
+    @Test
+    void changesDuringLoadKeepOnlyLatestState() {
+        String moved = UUID.randomUUID().toString();
+        String removed = UUID.randomUUID().toString();
+        String readded = UUID.randomUUID().toString();
+
+        DonorEligibilityIndex index = new DonorEligibilityIndex(16);
+        index.startLoad();
+        index.put(moved, "Quận 1", 0, 100);
+        index.put(removed, "Quận 1", 0, 50);
+        index.put(readded, "Quận 1", 0, 60);
+        index.put(moved, "Quận 3", 0, 10);
+        assertTrue(index.remove(removed));
+        assertTrue(index.remove(readded));
+        index.put(readded, "Quận 1", 0, 60);
+        index.finishLoad();
+
+        assertEquals(2, index.size());
+        assertEquals(List.of(readded), index.find("Quận 1", DonorEligibilityIndex.ALL_GROUPS, 200, 10));
+        assertEquals(List.of(moved), index.find("Quận 3", DonorEligibilityIndex.ALL_GROUPS, 10, 10));
+
+        //sau finishLoad thì put / remove giữ thứ tự như thường
+        index.put(removed, "Quận 1", 0, 20);
+        index.remove(readded);
+        assertEquals(List.of(removed), index.find("Quận 1", DonorEligibilityIndex.ALL_GROUPS, 200, 10));
+    }
+
+    @Test
+    void findReturnsSoonestEligibleFirst() {
+        DonorEligibilityIndex index = new DonorEligibilityIndex(16);
+        List<String> ids = new ArrayList<>();
+        int[] days = {30, 10, DonorEligibilityIndex.ALWAYS_ELIGIBLE, 20};
+        index.startLoad();
+        for (int day : days) {
+            String id = UUID.randomUUID().toString();
+            ids.add(id);
+            index.put(id, "Quận 1", 2, day);
+        }
+        index.finishLoad();
+
+        assertEquals(List.of(ids.get(2), ids.get(1), ids.get(3)), index.find("Quận 1", 1 << 2, 25, 10));
+        assertEquals(3, index.count("Quận 1", 1 << 2, 25));
+        assertEquals(0, index.count("Quận 1", 1 << 3, 25));
+    }
+}
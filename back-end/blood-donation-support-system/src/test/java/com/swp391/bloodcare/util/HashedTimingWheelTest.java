@@ -0,0 +1,114 @@
+package com.swp391.bloodcare.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimingWheelTest {
+
+    private static final long TICK = 10;
+
+    private final Map<String, Long> firedAt = new ConcurrentHashMap<>();
+    private final List<String> order = new CopyOnWriteArrayList<>();
+    private HashedTimingWheel<String> wheel;
+
+    @AfterEach
+    void close() {
+        if (wheel != null) {
+            wheel.close();
+        }
+    }
+
+    private HashedTimingWheel<String> newWheel(int ticksPerWheel, CountDownLatch latch) {
+        return new HashedTimingWheel<>("test-wheel", TICK, ticksPerWheel, item -> {
+            firedAt.put(item, System.currentTimeMillis());
+            order.add(item);
+            latch.countDown();
+        });
+    }
+
+    @Test
+    void deadlineInThePastFiresOnNextTick() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(2);
+        wheel = newWheel(8, latch);
+        long now = System.currentTimeMillis();
+        wheel.schedule("past", now - 60_000);
+        wheel.schedule("now", now);
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS), "items with past deadlines must fire");
+        assertTrue(firedAt.get("past") - now < 200);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void deadlineSeveralRoundsAwayWaitsForItsRound() throws InterruptedException {
+        // 4 bucket * 10ms = 40ms một vòng, deadline 250ms -> phải qua 6 vòng
+        CountDownLatch latch = new CountDownLatch(2);
+        wheel = newWheel(4, latch);
+        long now = System.currentTimeMillis();
+        wheel.schedule("far", now + 250);
+        wheel.schedule("near", now + 20);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("near", "far"), order);
+        assertTrue(firedAt.get("far") >= now + 250, "fired before its deadline");
+        assertTrue(firedAt.get("far") < now + 250 + 200, "fired far too late");
+    }
+
+    @Test
+    void sameBucketDifferentRoundsFireSeparately() throws InterruptedException {
+        // cùng bucket (cách nhau đúng một vòng 40ms * 3), chỉ item của vòng hiện tại được gọi
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch both = new CountDownLatch(2);
+        wheel = new HashedTimingWheel<>("test-wheel", TICK, 4, item -> {
+            firedAt.put(item, System.currentTimeMillis());
+            first.countDown();
+            both.countDown();
+        });
+        long now = System.currentTimeMillis();
+        wheel.schedule("round0", now + 30);
+        wheel.schedule("round3", now + 30 + 120);
+
+        assertTrue(first.await(1, TimeUnit.SECONDS));
+        assertFalse(firedAt.containsKey("round3"), "later round fired together with the first one");
+        assertTrue(both.await(1, TimeUnit.SECONDS));
+        assertTrue(firedAt.get("round3") >= now + 150);
+    }
+
+    @Test
+    void failingCallbackDoesNotStopTheWheel() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel = new HashedTimingWheel<>("test-wheel", TICK, 8, item -> {
+            if (item.equals("bad")) {
+                throw new IllegalStateException("boom");
+            }
+            latch.countDown();
+        });
+        long now = System.currentTimeMillis();
+        wheel.schedule("bad", now);
+        wheel.schedule("good", now + 30);
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void scheduleAfterCloseIsRejected() {
+        wheel = newWheel(8, new CountDownLatch(1));
+        wheel.close();
+        assertThrows(IllegalStateException.class, () -> wheel.schedule("late", System.currentTimeMillis()));
+    }
+
+    @Test
+    void rejectsNonPositiveSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new HashedTimingWheel<String>("w", 0, 8, item -> { }));
+        assertThrows(IllegalArgumentException.class, () -> new HashedTimingWheel<String>("w", 10, 0, item -> { }));
+    }
+}
@@ -0,0 +1,74 @@
+package com.swp391.bloodcare.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    @Test
+    void allowsCapacityThenAsksToWait() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("ip:1", 3, 60));
+        }
+        long wait = limiter.tryAcquire("ip:1", 3, 60);
+        assertTrue(wait > 0 && wait <= 1000, "one token per second -> wait at most 1s, was " + wait);
+    }
+
+    @Test
+    void peekDoesNotConsume() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10);
+        assertEquals(0, limiter.peek("user:a"));
+        assertEquals(0, limiter.size(), "peek must not create a bucket");
+
+        assertEquals(0, limiter.tryAcquire("user:a", 2, 60));
+        assertEquals(0, limiter.peek("user:a"));
+        assertEquals(0, limiter.peek("user:a"));
+        assertEquals(0, limiter.tryAcquire("user:a", 2, 60));
+        assertTrue(limiter.peek("user:a") > 0);
+    }
+
+    @Test
+    void fullMapRejectsOnlyNewKeysAndKeepsExistingOnes() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2);
+        // refill rất chậm -> bucket đã dùng không đầy lại, không dọn được
+        assertEquals(0, limiter.tryAcquire("known", 5, 0.001));
+        assertEquals(0, limiter.tryAcquire("flood:1", 5, 0.001));
+
+        assertTrue(limiter.tryAcquire("flood:2", 5, 0.001) > 0);
+        assertTrue(limiter.tryAcquire("flood:3", 5, 0.001) > 0);
+        assertEquals(0, limiter.tryAcquire("known", 5, 0.001), "existing key must keep its own bucket");
+        assertEquals(2, limiter.size());
+    }
+
+    @Test
+    void fullMapDropsRefilledBucketsToMakeRoom() throws InterruptedException {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2);
+        // 1 token / 10ms -> dùng một token rồi chờ là đầy lại
+        assertEquals(0, limiter.tryAcquire("a", 1, 6000));
+        assertEquals(0, limiter.tryAcquire("b", 1, 6000));
+        Thread.sleep(150);
+
+        assertEquals(0, limiter.tryAcquire("c", 1, 6000));
+        assertTrue(limiter.size() <= 2);
+    }
+
+    @Test
+    void evictIdleRemovesUnusedBuckets() throws InterruptedException {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10);
+        limiter.tryAcquire("a", 1, 60);
+        Thread.sleep(20);
+        assertEquals(1, limiter.evictIdle(10));
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    void rejectsNonPositiveSettings() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10);
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire("a", 0, 60));
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire("a", 5, 0));
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire("a", 5, -1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(0));
+    }
+}
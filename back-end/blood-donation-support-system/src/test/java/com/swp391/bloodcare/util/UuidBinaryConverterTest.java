@@ -0,0 +1,48 @@
+package com.swp391.bloodcare.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidBinaryConverterTest {
+
+    private final UuidBinaryConverter converter = new UuidBinaryConverter();
+
+    @Test
+    void roundTripsV4AndV7() {
+        for (String id : new String[]{UUID.randomUUID().toString(), UuidV7.nextString()}) {
+            byte[] bytes = converter.convertToDatabaseColumn(id);
+            assertEquals(16, bytes.length);
+            assertEquals(id, converter.convertToEntityAttribute(bytes));
+        }
+    }
+
+    @Test
+    void v7BytesSortInCreationOrder() {
+        byte[] previous = converter.convertToDatabaseColumn(UuidV7.nextString());
+        for (int i = 0; i < 10_000; i++) {
+            byte[] next = converter.convertToDatabaseColumn(UuidV7.nextString());
+            // BINARY(16) trong MySQL so sánh từng byte không dấu
+            assertTrue(java.util.Arrays.compareUnsigned(previous, next) < 0);
+            previous = next;
+        }
+    }
+
+    @Test
+    void rejectsMalformedIds() {
+        assertFalse(UuidBinaryConverter.isUuid(null));
+        assertFalse(UuidBinaryConverter.isUuid("not-a-uuid"));
+        assertFalse(UuidBinaryConverter.isUuid("1-2-3-4-5"));
+        assertFalse(UuidBinaryConverter.isUuid("123e4567-e89b-12d3-a456-4266141740000"));
+        assertTrue(UuidBinaryConverter.isUuid("123E4567-e89b-12d3-a456-426614174000"));
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToDatabaseColumn("1-2-3-4-5"));
+    }
+
+    @Test
+    void nullStaysNull() {
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+}